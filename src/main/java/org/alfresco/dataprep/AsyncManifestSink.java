@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.dataprep;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Manifest sink that stores the records from a background thread.
+ * Callers only put the records in a bounded queue, the writer thread
+ * serializes them to a buffered stream.
+ */
+public abstract class AsyncManifestSink implements ManifestSink
+{
+    private static Log logger = LogFactory.getLog(AsyncManifestSink.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Object CLOSE = new Object();
+    private final BlockingQueue<Object> queue;
+    private final OutputStream out;
+    private final Thread writer;
+    /** puts share the read lock, close takes the write lock so nothing is queued after CLOSE */
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile IOException failure;
+    private boolean closed;
+
+    /**
+     * @param out stream where the records are written, closed with the sink
+     * @param queueSize maximum number of records waiting to be written
+     */
+    protected AsyncManifestSink(final OutputStream out,
+                                final int queueSize)
+    {
+        this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+        this.queue = new ArrayBlockingQueue<Object>(queueSize);
+        this.writer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                drain();
+            }
+        }, "manifest-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Write the header of the manifest, called once from the writer thread.
+     *
+     * @param out stream
+     * @throws IOException if error
+     */
+    protected void writeHeader(final OutputStream out) throws IOException
+    {
+    }
+
+    /**
+     * Serialize one record, called from the writer thread.
+     *
+     * @param out stream
+     * @param record record to write
+     * @throws IOException if error
+     */
+    protected abstract void writeRecord(final OutputStream out,
+                                        final ManifestRecord record) throws IOException;
+
+    @Override
+    public void write(final ManifestRecord record)
+    {
+        if(record == null)
+        {
+            throw new IllegalArgumentException("Record is required");
+        }
+        put(record);
+    }
+
+    @Override
+    public void flush()
+    {
+        CountDownLatch latch = new CountDownLatch(1);
+        put(latch);
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while flushing manifest", e);
+        }
+        checkFailure();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        closeLock.writeLock().lock();
+        try
+        {
+            if(closed)
+            {
+                return;
+            }
+            closed = true;
+            queue.put(CLOSE);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing manifest", e);
+        }
+        finally
+        {
+            closeLock.writeLock().unlock();
+        }
+        try
+        {
+            writer.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing manifest", e);
+        }
+        if(failure != null)
+        {
+            throw failure;
+        }
+    }
+
+    private void put(final Object item)
+    {
+        closeLock.readLock().lock();
+        try
+        {
+            if(closed)
+            {
+                throw new IllegalStateException("Manifest is closed");
+            }
+            checkFailure();
+            queue.put(item);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while writing manifest", e);
+        }
+        finally
+        {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    private void checkFailure()
+    {
+        if(failure != null)
+        {
+            throw new RuntimeException("Unable to write manifest", failure);
+        }
+    }
+
+    private IOException toIOException(final Exception e)
+    {
+        return e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e);
+    }
+
+    private void drain()
+    {
+        try
+        {
+            writeHeader(out);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            logger.error("Unable to write manifest header", e);
+            failure = toIOException(e);
+        }
+        while(true)
+        {
+            Object item;
+            try
+            {
+                item = queue.take();
+            }
+            catch (InterruptedException e)
+            {
+                return;
+            }
+            try
+            {
+                if(item == CLOSE)
+                {
+                    out.close();
+                    return;
+                }
+                else if(item instanceof CountDownLatch)
+                {
+                    if(failure == null)
+                    {
+                        out.flush();
+                    }
+                    ((CountDownLatch) item).countDown();
+                }
+                else if(failure == null)
+                {
+                    writeRecord(out, (ManifestRecord) item);
+                }
+            }
+            catch (IOException | RuntimeException e)
+            {
+                // keep draining so that the flush latches still queued are released
+                logger.error("Unable to write manifest record " + item, e);
+                failure = toIOException(e);
+                if(item instanceof CountDownLatch)
+                {
+                    ((CountDownLatch) item).countDown();
+                }
+                if(item == CLOSE)
+                {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.dataprep;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs data preparation tasks on a bounded pool of worker threads.
+ * Each task takes its own http client or CMIS session, nothing is shared between workers.
+ */
+public final class BatchExecutor
+{
+    private BatchExecutor()
+    {
+    }
+
+    /**
+     * Run the tasks concurrently and wait for all of them to finish.
+     *
+     * @param tasks tasks to run
+     * @param threads maximum number of tasks running at the same time
+     * @return results of the tasks, in the same order as the tasks
+     * @throws RuntimeException if any of the tasks failed
+     */
+    public static <T> List<T> runAll(final List<? extends Callable<T>> tasks,
+                                     final int threads)
+    {
+        if(threads < 1)
+        {
+            throw new IllegalArgumentException("Number of threads must be greater than 0");
+        }
+        List<T> results = new ArrayList<T>();
+        if(tasks.isEmpty())
+        {
+            return results;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+        try
+        {
+            List<Future<T>> futures = new ArrayList<Future<T>>();
+            for(Callable<T> task : tasks)
+            {
+                futures.add(executor.submit(task));
+            }
+            for(Future<T> future : futures)
+            {
+                results.add(future.get());
+            }
+            return results;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for tasks to finish", e);
+        }
+        catch (ExecutionException e)
+        {
+            if(e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Task failed", e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
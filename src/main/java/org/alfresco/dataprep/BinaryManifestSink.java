@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.dataprep;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+import org.alfresco.dataprep.ManifestRecord.RecordType;
+
+/**
+ * Compact binary manifest. The stream starts with the "DPM" magic and a version byte,
+ * followed by the records: type (byte), present fields mask (byte), id and the present
+ * optional fields (modified UTF-8) and the timestamp (long).
+ */
+public class BinaryManifestSink extends AsyncManifestSink
+{
+    private static final byte[] MAGIC = {'D', 'P', 'M'};
+    private static final byte VERSION = 1;
+    private static final int HAS_NAME = 1;
+    private static final int HAS_SITE = 2;
+    private static final int HAS_PARENT = 4;
+    private static final int HAS_CREATOR = 8;
+    private DataOutputStream data;
+
+    public BinaryManifestSink(final OutputStream out,
+                              final int queueSize)
+    {
+        super(out, queueSize);
+    }
+
+    public BinaryManifestSink(final File file) throws FileNotFoundException
+    {
+        this(new FileOutputStream(file), 10000);
+    }
+
+    @Override
+    protected void writeHeader(final OutputStream out) throws IOException
+    {
+        data = new DataOutputStream(out);
+        data.write(MAGIC);
+        data.writeByte(VERSION);
+    }
+
+    @Override
+    protected void writeRecord(final OutputStream out,
+                               final ManifestRecord record) throws IOException
+    {
+        int mask = (record.getName() != null ? HAS_NAME : 0)
+                | (record.getSiteName() != null ? HAS_SITE : 0)
+                | (record.getParentId() != null ? HAS_PARENT : 0)
+                | (record.getCreatedBy() != null ? HAS_CREATOR : 0);
+        data.writeByte(record.getType().ordinal());
+        data.writeByte(mask);
+        data.writeUTF(record.getId());
+        if(record.getName() != null)
+        {
+            data.writeUTF(record.getName());
+        }
+        if(record.getSiteName() != null)
+        {
+            data.writeUTF(record.getSiteName());
+        }
+        if(record.getParentId() != null)
+        {
+            data.writeUTF(record.getParentId());
+        }
+        if(record.getCreatedBy() != null)
+        {
+            data.writeUTF(record.getCreatedBy());
+        }
+        data.writeLong(record.getTimestamp());
+    }
+
+    /**
+     * Read a binary manifest.
+     *
+     * @param in stream with the manifest, not closed by this method
+     * @param consumer receives the records in the order they were written
+     * @return number of records read
+     * @throws IOException if the stream is not a valid manifest
+     */
+    public static int read(final InputStream in,
+                           final Consumer<ManifestRecord> consumer) throws IOException
+    {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        byte[] magic = new byte[MAGIC.length];
+        data.readFully(magic);
+        if(magic[0] != MAGIC[0] || magic[1] != MAGIC[1] || magic[2] != MAGIC[2] || data.readByte() != VERSION)
+        {
+            throw new IOException("Not a data prep manifest");
+        }
+        RecordType[] types = RecordType.values();
+        int count = 0;
+        while(true)
+        {
+            int type = data.read();
+            if(type < 0)
+            {
+                return count;
+            }
+            try
+            {
+                int mask = data.readByte();
+                String id = data.readUTF();
+                String name = (mask & HAS_NAME) != 0 ? data.readUTF() : null;
+                String site = (mask & HAS_SITE) != 0 ? data.readUTF() : null;
+                String parent = (mask & HAS_PARENT) != 0 ? data.readUTF() : null;
+                String creator = (mask & HAS_CREATOR) != 0 ? data.readUTF() : null;
+                long timestamp = data.readLong();
+                consumer.accept(new ManifestRecord(types[type], id, name, site, parent, creator, timestamp));
+                count++;
+            }
+            catch (EOFException e)
+            {
+                throw new IOException("Truncated manifest after " + count + " records", e);
+            }
+        }
+    }
+}
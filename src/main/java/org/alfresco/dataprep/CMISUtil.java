@@ -16,10 +16,20 @@ package org.alfresco.dataprep;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
 
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.api.Document;
@@ -27,6 +37,7 @@ import org.apache.chemistry.opencmis.client.api.FileableCmisObject;
 import org.apache.chemistry.opencmis.client.api.Folder;
 import org.apache.chemistry.opencmis.client.api.ItemIterable;
 import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
 import org.apache.chemistry.opencmis.client.api.Property;
 import org.apache.chemistry.opencmis.client.api.QueryResult;
 import org.apache.chemistry.opencmis.client.api.Repository;
@@ -45,6 +56,10 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundExcept
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisUnauthorizedException;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.json.simple.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
@@ -141,8 +156,13 @@ public class CMISUtil
         }
     }
     
+    /** user of the sessions, the node ref cache is kept per user */
+    private static final Map<Session, String> SESSION_USERS = Collections.synchronizedMap(new WeakHashMap<Session, String>());
     @Autowired protected  AlfrescoHttpClientFactory alfrescoHttpClientFactory;
-    Map<String, String> contents = new HashMap<String,String>();
+    @Autowired protected NodeRefCache nodeRefCache;
+    @Autowired protected PersonDirectory personDirectory;
+    @Autowired protected CategoryCache categoryCache;
+    @Autowired protected ManifestRecorder manifestRecorder;
 
     /**
      * Method to get a CMIS session.
@@ -170,6 +190,7 @@ public class CMISUtil
             List<Repository> repositories = factory.getRepositories(parameter);
             parameter.put(SessionParameter.REPOSITORY_ID, repositories.get(0).getId());
             Session session = repositories.get(0).createSession();
+            SESSION_USERS.put(session, userName);
             return session;
         }
         catch (CmisUnauthorizedException unauthorized)
@@ -193,30 +214,8 @@ public class CMISUtil
                              final String siteName,
                              final String contentName)
     {
-        String nodeRef = "";
-        contents.clear();
         Session session = getCMISSession(userName, password);
-        try
-        {
-            Folder documentLibrary = (Folder) session.getObjectByPath("/Sites/" + siteName + "/documentLibrary");
-            for (Tree<FileableCmisObject> t : documentLibrary.getDescendants(-1)) 
-            {
-                contents = getId(t, contentName);
-            }
-            for (Map.Entry<String, String> entry : contents.entrySet()) 
-            {
-                if(entry.getKey().equalsIgnoreCase(contentName))
-                {
-                    nodeRef = entry.getValue().split(";")[0];
-                    return nodeRef;
-                }
-            }
-        }
-        catch(CmisObjectNotFoundException nf)
-        {
-            throw new CmisRuntimeException("Site doesn't exists: " + siteName, nf);
-        }
-        return nodeRef;
+        return getNodeRef(session, siteName, contentName);
     }
     
     /**
@@ -232,40 +231,48 @@ public class CMISUtil
                              final String siteName,
                              final String contentName)
     {
-        String nodeRef = "";
-        contents.clear();
+        return findNodeRef(getNodeRefs(session, siteName), contentName);
+    }
+
+    /**
+     * Gets the object ids of all the documents and folders from a site, with a single walk of the document library.
+     * 
+     * @param session Session Cmis session
+     * @param siteName String site identifier
+     * @return Map content name to node identifier
+     * @throws CmisRuntimeException if site is not found
+     */
+    public Map<String, String> getNodeRefs(final Session session,
+                                           final String siteName)
+    {
+        Map<String, String> contents = new HashMap<String, String>();
         try
         {
             Folder documentLibrary = (Folder) session.getObjectByPath("/Sites/" + siteName + "/documentLibrary");
             for (Tree<FileableCmisObject> t : documentLibrary.getDescendants(-1)) 
             {
-                contents = getId(t, contentName);
-            }
-            for (Map.Entry<String, String> entry : contents.entrySet()) 
-            {
-                if(entry.getKey().equalsIgnoreCase(contentName))
-                {
-                    nodeRef = entry.getValue().split(";")[0];
-                    return nodeRef;
-                }
+                getId(t, contents);
             }
         }
         catch(CmisObjectNotFoundException nf)
         {
             throw new CmisRuntimeException("Site doesn't exists: " + siteName, nf);
         }
-        return nodeRef;
+        for (Map.Entry<String, String> entry : contents.entrySet())
+        {
+            entry.setValue(stripVersion(entry.getValue()));
+        }
+        return contents;
     }
 
-    private Map<String, String> getId(Tree<FileableCmisObject> tree,
-                                      final String contentName)
+    private void getId(Tree<FileableCmisObject> tree,
+                       Map<String, String> contents)
     { 
         contents.put(tree.getItem().getName(), tree.getItem().getId());
         for (Tree<FileableCmisObject> t : tree.getChildren()) 
         {
-            getId(t, contentName);
+            getId(t, contents);
         }
-        return contents;
     }
     
     /**
@@ -287,7 +294,7 @@ public class CMISUtil
         try
         {
             CmisObject content = session.getObjectByPath(session.getRootFolder().getPath() + "/" + pathToContent);
-            return content.getId().split(";")[0];
+            return stripVersion(content.getId());
         }
         catch(CmisObjectNotFoundException nf)
         {
@@ -311,7 +318,7 @@ public class CMISUtil
         try
         {
             CmisObject content = session.getObjectByPath(session.getRootFolder().getPath() + "/" + pathToContent);
-            return content.getId().split(";")[0];
+            return stripVersion(content.getId());
         }
         catch(CmisObjectNotFoundException nf)
         {
@@ -319,6 +326,470 @@ public class CMISUtil
         }
     }
     
+    /**
+     * Gets the object id for a document or folder from site, using the node ref cache.
+     * The site is searched only if the content is not cached yet, and then all the
+     * contents of the site are cached.
+     *
+     * @param userName String identifier
+     * @param password String password
+     * @param siteName String site identifier
+     * @param contentName String content identifier
+     * @return String node identifier
+     */
+    public String getCachedNodeRef(final String userName,
+                                   final String password,
+                                   final String siteName,
+                                   final String contentName)
+    {
+        String nodeRef = nodeRefCache.get(userName, siteName, contentName);
+        if(nodeRef == null)
+        {
+            nodeRef = findNodeRef(getCachedNodeRefs(getCMISSession(userName, password), siteName), contentName);
+        }
+        return nodeRef;
+    }
+
+    /**
+     * Gets the object id for a document or folder from site, using the node ref cache.
+     *
+     * @param session Session Cmis session
+     * @param siteName String site identifier
+     * @param contentName String content identifier
+     * @return String node identifier
+     */
+    public String getCachedNodeRef(final Session session,
+                                   final String siteName,
+                                   final String contentName)
+    {
+        String nodeRef = nodeRefCache.get(getSessionUser(session), siteName, contentName);
+        if(nodeRef == null)
+        {
+            nodeRef = findNodeRef(getCachedNodeRefs(session, siteName), contentName);
+        }
+        return nodeRef;
+    }
+
+    /**
+     * Walk the document library of a site and add all its contents to the node ref cache
+     */
+    private Map<String, String> getCachedNodeRefs(final Session session,
+                                                  final String siteName)
+    {
+        Map<String, String> contents = getNodeRefs(session, siteName);
+        nodeRefCache.putAll(getSessionUser(session), siteName, contents);
+        return contents;
+    }
+
+    private String findNodeRef(final Map<String, String> contents,
+                               final String contentName)
+    {
+        for (Map.Entry<String, String> entry : contents.entrySet())
+        {
+            if(entry.getKey().equalsIgnoreCase(contentName))
+            {
+                return entry.getValue();
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Document or folder of a batch, given by site and name or by path
+     */
+    public static class NodeTarget
+    {
+        private final String siteName;
+        private final String contentName;
+        private final String pathToItem;
+
+        private NodeTarget(final String siteName,
+                           final String contentName,
+                           final String pathToItem)
+        {
+            this.siteName = siteName;
+            this.contentName = contentName;
+            this.pathToItem = pathToItem;
+        }
+
+        /**
+         * @param siteName site name
+         * @param contentName file or folder name
+         * @return content from site
+         */
+        public static NodeTarget inSite(final String siteName,
+                                        final String contentName)
+        {
+            if(StringUtils.isEmpty(siteName) || StringUtils.isEmpty(contentName))
+            {
+                throw new IllegalArgumentException("Parameter missing");
+            }
+            return new NodeTarget(siteName, contentName, null);
+        }
+
+        /**
+         * @param pathToItem path to document or folder (e.g. Sites/siteId/documentLibrary/doc.txt)
+         * @return content from repository
+         */
+        public static NodeTarget byPath(final String pathToItem)
+        {
+            if(StringUtils.isEmpty(pathToItem))
+            {
+                throw new IllegalArgumentException("Parameter missing");
+            }
+            return new NodeTarget(null, null, pathToItem);
+        }
+
+        /**
+         * @return String key shared by the targets of one node given the same way
+         */
+        String getNodeKey()
+        {
+            if(pathToItem != null)
+            {
+                return "path:" + StringUtils.strip(pathToItem, "/");
+            }
+            return "site:" + siteName.toLowerCase() + "/" + contentName.toLowerCase();
+        }
+
+        public String getSiteName()
+        {
+            return siteName;
+        }
+
+        public String getContentName()
+        {
+            return contentName;
+        }
+
+        public String getPathToItem()
+        {
+            return pathToItem;
+        }
+    }
+
+    /**
+     * Result of the requests sent for one node of a batch.
+     * Results are given to the listener of the batch one at a time, calls to the listener are synchronized.
+     */
+    public abstract static class NodeResult
+    {
+        private final String nodeRef;
+        private final boolean successful;
+        private final String error;
+
+        protected NodeResult(final String nodeRef,
+                             final boolean successful,
+                             final String error)
+        {
+            this.nodeRef = nodeRef;
+            this.successful = successful;
+            this.error = error;
+        }
+
+        public String getNodeRef()
+        {
+            return nodeRef;
+        }
+
+        public boolean isSuccessful()
+        {
+            return successful;
+        }
+
+        public String getError()
+        {
+            return error;
+        }
+    }
+
+    /**
+     * Work done by {@link CMISUtil#runBatch} on one element of a batch
+     */
+    protected interface BatchWork
+    {
+        /**
+         * @param session Session of the worker
+         * @param index int index of the element
+         * @return int number of successful operations
+         */
+        int run(Session session, int index);
+    }
+
+    /**
+     * Run the work on every element of a batch. The elements are shared between the workers,
+     * worker w takes the elements w, w + workers, w + 2 * workers..., and each worker uses its own session.
+     *
+     * @param userName login username
+     * @param password login password
+     * @param size number of elements
+     * @param threads maximum number of workers
+     * @param work work done on each element
+     * @return int number of successful operations
+     */
+    protected int runBatch(final String userName,
+                           final String password,
+                           final int size,
+                           final int threads,
+                           final BatchWork work)
+    {
+        if(size == 0)
+        {
+            return 0;
+        }
+        final int workers = Math.min(threads, size);
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for(int w = 0; w < workers; w++)
+        {
+            final int worker = w;
+            tasks.add(new Callable<Integer>()
+            {
+                @Override
+                public Integer call()
+                {
+                    Session session = getCMISSession(userName, password);
+                    int successful = 0;
+                    for(int i = worker; i < size; i = i + workers)
+                    {
+                        successful = successful + work.run(session, i);
+                    }
+                    return successful;
+                }
+            });
+        }
+        int successful = 0;
+        for(Integer count : BatchExecutor.runAll(tasks, workers))
+        {
+            successful = successful + count;
+        }
+        return successful;
+    }
+
+    /**
+     * Add an item to its group, keeping the groups in the order of their first item
+     *
+     * @param groups groups by key
+     * @param key key of the group of the item
+     * @param item item to add
+     */
+    protected static <K, T> void addToGroup(final Map<K, List<T>> groups,
+                                            final K key,
+                                            final T item)
+    {
+        List<T> group = groups.get(key);
+        if(group == null)
+        {
+            group = new ArrayList<T>();
+            groups.put(key, group);
+        }
+        group.add(item);
+    }
+
+    /**
+     * Give a result of a batch to the listener. Workers share the listener, so the calls are synchronized.
+     *
+     * @param listener listener of the batch, may be null
+     * @param result result to give
+     */
+    protected <T> void notifyListener(final Consumer<T> listener,
+                                      final T result)
+    {
+        if(listener != null)
+        {
+            synchronized (listener)
+            {
+                listener.accept(result);
+            }
+        }
+    }
+
+    /**
+     * Node refs of the site contents used by a batch. The document library of a site is walked
+     * once for the whole batch, by the first worker that needs it, instead of once for each
+     * content missing from the node ref cache. Walks that failed are not retried, their error
+     * is thrown again for every content of the site.
+     */
+    protected class SiteNodeRefs
+    {
+        private final ConcurrentMap<String, FutureTask<Map<String, String>>> sites =
+                new ConcurrentHashMap<String, FutureTask<Map<String, String>>>();
+
+        /**
+         * @param session Session Cmis session of the worker
+         * @param siteName String site identifier
+         * @param contentName String content identifier
+         * @return String node identifier, empty if the content is not in the site
+         * @throws CmisRuntimeException if site is not found
+         */
+        public String get(final Session session,
+                          final String siteName,
+                          final String contentName)
+        {
+            String nodeRef = nodeRefCache.get(getSessionUser(session), siteName, contentName);
+            if(nodeRef != null)
+            {
+                return nodeRef;
+            }
+            nodeRef = getSite(session, siteName).get(contentName.toLowerCase());
+            return nodeRef == null ? "" : nodeRef;
+        }
+
+        /**
+         * @param session Session Cmis session of the worker
+         * @param target NodeTarget document or folder
+         * @return String node identifier, empty if the content is not found
+         */
+        public String get(final Session session,
+                          final NodeTarget target)
+        {
+            if(target.getPathToItem() != null)
+            {
+                return getCachedNodeRefByPath(session, target.getPathToItem());
+            }
+            return get(session, target.getSiteName(), target.getContentName());
+        }
+
+        private Map<String, String> getSite(final Session session,
+                                            final String siteName)
+        {
+            String key = siteName.toLowerCase();
+            FutureTask<Map<String, String>> walk = sites.get(key);
+            if(walk == null)
+            {
+                FutureTask<Map<String, String>> newWalk = new FutureTask<Map<String, String>>(new Callable<Map<String, String>>()
+                {
+                    @Override
+                    public Map<String, String> call()
+                    {
+                        Map<String, String> contents = new HashMap<String, String>();
+                        for(Map.Entry<String, String> entry : getCachedNodeRefs(session, siteName).entrySet())
+                        {
+                            contents.put(entry.getKey().toLowerCase(), entry.getValue());
+                        }
+                        return contents;
+                    }
+                });
+                walk = sites.putIfAbsent(key, newWalk);
+                if(walk == null)
+                {
+                    walk = newWalk;
+                    walk.run();
+                }
+            }
+            try
+            {
+                return walk.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while listing site " + siteName, e);
+            }
+            catch (ExecutionException e)
+            {
+                if(e.getCause() instanceof RuntimeException)
+                {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException("Unable to list site " + siteName, e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Get the node ref for a item by path, using the node ref cache.
+     *
+     * @param userName String user
+     * @param password String password
+     * @param pathToContent String path to item (e.g. Sites/siteId/documentLibrary/doc.txt)
+     * @return String node ref of the item
+     */
+    public String getCachedNodeRefByPath(final String userName,
+                                         final String password,
+                                         final String pathToContent)
+    {
+        if(StringUtils.isEmpty(pathToContent))
+        {
+            throw new CmisRuntimeException("Path to content is missing");
+        }
+        String nodeRef = nodeRefCache.getByPath(userName, pathToContent);
+        if(nodeRef == null)
+        {
+            nodeRef = getNodeRefByPath(userName, password, pathToContent);
+            nodeRefCache.putPath(userName, pathToContent, nodeRef);
+        }
+        return nodeRef;
+    }
+
+    /**
+     * Get the node ref for a item by path, using the node ref cache.
+     *
+     * @param session Session Cmis session
+     * @param pathToContent String path to item (e.g. Sites/siteId/documentLibrary/doc.txt)
+     * @return String node ref of the item
+     */
+    public String getCachedNodeRefByPath(final Session session,
+                                         final String pathToContent)
+    {
+        if(StringUtils.isEmpty(pathToContent))
+        {
+            throw new CmisRuntimeException("Path to content is missing");
+        }
+        String userName = getSessionUser(session);
+        String nodeRef = nodeRefCache.getByPath(userName, pathToContent);
+        if(nodeRef == null)
+        {
+            nodeRef = getNodeRefByPath(session, pathToContent);
+            nodeRefCache.putPath(userName, pathToContent, nodeRef);
+        }
+        return nodeRef;
+    }
+
+    /**
+     * Add a new created document or folder to the node ref cache
+     *
+     * @param userName String user that created the content
+     * @param siteName String site identifier, null if content is not in site
+     * @param parentPath String path of the parent folder (e.g. Sites/siteId/documentLibrary), null if unknown
+     * @param contentName String content name
+     * @param nodeRef String node identifier
+     */
+    protected void cacheNodeRef(final String userName,
+                                final String siteName,
+                                final String parentPath,
+                                final String contentName,
+                                final String nodeRef)
+    {
+        nodeRefCache.put(userName, siteName, contentName, nodeRef);
+        if(parentPath != null)
+        {
+            nodeRefCache.putPath(userName, parentPath + "/" + contentName, nodeRef);
+        }
+    }
+
+    /**
+     * Get the user of a session created by {@link #getCMISSession}
+     *
+     * @param session Session the session
+     * @return String user name, null if the session was created elsewhere (nothing is cached for it)
+     */
+    protected String getSessionUser(final Session session)
+    {
+        return SESSION_USERS.get(session);
+    }
+
+    /**
+     * Remove the version label from a CMIS object id (e.g. workspace://SpacesStore/id;1.0)
+     *
+     * @param objectId String object id, with or without version
+     * @return String node ref without version
+     */
+    public static String stripVersion(final String objectId)
+    {
+        int version = objectId.indexOf(';');
+        return version < 0 ? objectId : objectId.substring(0, version);
+    }
+
     /**
      * Method to add aspect
      *
@@ -359,6 +830,64 @@ public class CMISUtil
         }
     }
 
+    /**
+     * Add aspects with their properties for document or folder.
+     * Only the current aspects are read, the new aspects and all the properties
+     * are set with a single update.
+     *
+     * @param session the session
+     * @param contentNodeRef String node identifier
+     * @param aspects aspects to add with their properties, the properties of an aspect may be null
+     */
+    public void addAspects(final Session session,
+                           final String contentNodeRef,
+                           final Map<DocumentAspect, Map<String, Object>> aspects)
+    {
+        if(aspects == null || aspects.isEmpty())
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        if(StringUtils.isEmpty(contentNodeRef))
+        {
+            throw new CmisRuntimeException("Invalid content " + contentNodeRef);
+        }
+        try
+        {
+            OperationContext context = session.createOperationContext();
+            context.setFilterString(PropertyIds.OBJECT_ID + "," + PropertyIds.SECONDARY_OBJECT_TYPE_IDS);
+            context.setIncludeAcls(false);
+            context.setIncludePolicies(false);
+            context.setIncludeAllowableActions(false);
+            context.setRenditionFilterString("cmis:none");
+            context.setCacheEnabled(false);
+            CmisObject contentObj = session.getObject(contentNodeRef, context);
+            List<String> secondaryTypes = new ArrayList<String>();
+            List<String> currentTypes = contentObj.getPropertyValue(PropertyIds.SECONDARY_OBJECT_TYPE_IDS);
+            if(currentTypes != null)
+            {
+                secondaryTypes.addAll(currentTypes);
+            }
+            Map<String, Object> properties = new HashMap<String, Object>();
+            for(Map.Entry<DocumentAspect, Map<String, Object>> aspect : aspects.entrySet())
+            {
+                if(!secondaryTypes.contains(aspect.getKey().getProperty()))
+                {
+                    secondaryTypes.add(aspect.getKey().getProperty());
+                }
+                if(aspect.getValue() != null)
+                {
+                    properties.putAll(aspect.getValue());
+                }
+            }
+            properties.put(PropertyIds.SECONDARY_OBJECT_TYPE_IDS, secondaryTypes);
+            contentObj.updateProperties(properties, false);
+        }
+        catch(CmisInvalidArgumentException ia)
+        {
+            throw new CmisRuntimeException("Invalid content " + contentNodeRef, ia);
+        }
+    }
+
     /**
      * Method to add properties for aspects
      *
@@ -451,15 +980,109 @@ public class CMISUtil
     }
     
     /**
-     * Method to get the ID for a Category
+     * Method to get the ID for a Category. Categories found are cached, so the same
+     * category is queried only once. A category path is resolved from the root category,
+     * a category name matches any category with that name.
      * @param userName String identifier
      * @param password String password
-     * @param categoryName String category name
+     * @param categoryName String category name or category path (e.g. Regions/EUROPE)
      * @return String node identifier
      */
     public String getCategoryNodeRef(final String userName,
                                      final String password,
                                      final String categoryName)
+    {
+        String path = StringUtils.strip(categoryName, "/");
+        if(path.contains("/"))
+        {
+            return getCategoryNodeRefByPath(userName, password, path);
+        }
+        String cached = categoryCache.getByName(path);
+        if(cached != null)
+        {
+            return cached;
+        }
+        String categoryNodeRef = queryCategoryNodeRef(userName, password, path);
+        categoryCache.putName(path, categoryNodeRef);
+        return categoryNodeRef;
+    }
+
+    /**
+     * Get the ID of a category from its path. A path of one segment is a root category.
+     * Categories found are cached by path.
+     * @param userName String identifier
+     * @param password String password
+     * @param categoryPath String category path (e.g. Regions/EUROPE)
+     * @return String node identifier, empty if the category doesn't exist
+     */
+    protected String getCategoryNodeRefByPath(final String userName,
+                                              final String password,
+                                              final String categoryPath)
+    {
+        String cached = categoryCache.getByPath(categoryPath);
+        if(cached != null)
+        {
+            return cached;
+        }
+        String categoryNodeRef = findCategoryNodeRef(userName, password, StringUtils.strip(categoryPath, "/"));
+        categoryCache.putPath(categoryPath, categoryNodeRef);
+        return categoryNodeRef;
+    }
+
+    /**
+     * Find a category among the subcategories of its parent path, or among the root categories
+     */
+    @SuppressWarnings("unchecked")
+    private String findCategoryNodeRef(final String userName,
+                                            final String password,
+                                            final String categoryPath)
+    {
+        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
+        StringBuilder url = new StringBuilder(client.getAlfrescoUrl() + "alfresco/s/slingshot/doclib/categorynode/node/alfresco/category/root");
+        String[] names = StringUtils.split(categoryPath, "/");
+        try
+        {
+            for(int i = 0; i < names.length - 1; i++)
+            {
+                url.append("/").append(URLEncoder.encode(names[i], AlfrescoHttpClient.UTF_8_ENCODING).replace("+", "%20"));
+            }
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new RuntimeException("Invalid category path " + categoryPath, e);
+        }
+        HttpGet get = new HttpGet(url.toString());
+        try
+        {
+            HttpResponse response = client.execute(userName, password, get);
+            if(HttpStatus.SC_OK != response.getStatusLine().getStatusCode())
+            {
+                return "";
+            }
+            List<JSONObject> items = (List<JSONObject>) client.readStream(response.getEntity()).get("items");
+            if(items == null)
+            {
+                return "";
+            }
+            for(JSONObject item : items)
+            {
+                if(names[names.length - 1].equalsIgnoreCase((String) item.get("name")))
+                {
+                    return StringUtils.removeStart((String) item.get("nodeRef"), "workspace://SpacesStore/");
+                }
+            }
+            return "";
+        }
+        finally
+        {
+            get.releaseConnection();
+            client.close();
+        }
+    }
+
+    private String queryCategoryNodeRef(final String userName,
+                                        final String password,
+                                        final String categoryName)
     {
         List<CmisObject> objList = new ArrayList<CmisObject>();
         String categoryNodeRef = "";
@@ -494,16 +1117,65 @@ public class CMISUtil
                                  final String password,
                                  final String searchedUser)
     {
-        Session session = getCMISSession(userManager, password);
-        String objectId = "";
+        String objectId = personDirectory.get(searchedUser);
+        if(objectId != null)
+        {
+            return objectId;
+        }
+        return getUserNodeRef(getCMISSession(userManager, password), searchedUser);
+    }
+
+    /**
+     * Get the nodeRef of a user with an existing session
+     * 
+     * @param session Session the session
+     * @param searchedUser String user name
+     * @return String nodeRef of the user, empty if not found
+     */
+    protected String getUserNodeRef(final Session session,
+                                    final String searchedUser)
+    {
+        String objectId = personDirectory.get(searchedUser);
+        if(objectId != null)
+        {
+            return objectId;
+        }
+        objectId = "";
         ItemIterable<QueryResult> results = session.query("select cmis:objectId from cm:person where cm:userName = '" + searchedUser + "'", false);
         for (QueryResult qResult : results) 
         {
             PropertyData<?> propData = qResult.getPropertyById("cmis:objectId");
             objectId = "workspace://SpacesStore/" + (String) propData.getFirstValue();
         }
+        personDirectory.put(searchedUser, objectId);
         return objectId;
     }
+
+    /**
+     * Load the node refs of all the users in the person directory, with one paged query.
+     * 
+     * @param userManager String user name
+     * @param password String password
+     * @return int number of users loaded
+     */
+    public int loadPersonDirectory(final String userManager,
+                                   final String password)
+    {
+        Session session = getCMISSession(userManager, password);
+        OperationContext context = session.createOperationContext();
+        context.setMaxItemsPerPage(1000);
+        context.setCacheEnabled(false);
+        ItemIterable<QueryResult> results = session.query("select cmis:objectId, cm:userName from cm:person", false, context);
+        int loaded = 0;
+        for (QueryResult qResult : results)
+        {
+            String userName = qResult.getPropertyValueById("cm:userName");
+            String objectId = qResult.getPropertyValueById(PropertyIds.OBJECT_ID);
+            personDirectory.put(userName, objectId);
+            loaded++;
+        }
+        return loaded;
+    }
     
     /**
      * Method to attach a document to an existent object
@@ -542,14 +1214,14 @@ public class CMISUtil
      */
     protected void waitInSeconds(int seconds)
     {
-        long time0;
-        long time1;
-        time0 = System.currentTimeMillis();
-        do
+        try
+        {
+            Thread.sleep(seconds * 1000L);
+        }
+        catch (InterruptedException e)
         {
-            time1 = System.currentTimeMillis();
+            Thread.currentThread().interrupt();
         }
-        while (time1 - time0 < seconds * 1000);
     }
     
     /**
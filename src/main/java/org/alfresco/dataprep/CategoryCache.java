@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.dataprep;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Cache of the category node ids by category path (e.g. Regions/EUROPE/France)
+ * and by category name, used to classify content without a query for each category.
+ * Paths and names are kept apart: a name matches a category anywhere in the tree,
+ * while a path of one segment is a root category.
+ * It is filled by {@link CMISUtil#getCategoryNodeRef} and by the category tree builder
+ * of {@link UserService}, and cleared when a category is deleted.
+ */
+public class CategoryCache
+{
+    private static final String STORE = "workspace://SpacesStore/";
+    private static final String NAME_KEY = "name:";
+    private static final String PATH_KEY = "path:";
+    private final LruMap<String, String> entries = new LruMap<String, String>(10000);
+
+    public synchronized int getMaxSize()
+    {
+        return entries.getMaxSize();
+    }
+
+    public synchronized void setMaxSize(int maxSize)
+    {
+        entries.setMaxSize(maxSize);
+    }
+
+    /**
+     * @param categoryName category name
+     * @return String node id of the category or null if unknown
+     */
+    public synchronized String getByName(final String categoryName)
+    {
+        return entries.get(NAME_KEY + StringUtils.lowerCase(categoryName));
+    }
+
+    /**
+     * @param categoryName category name
+     * @param nodeRef node ref or node id of the category
+     */
+    public synchronized void putName(final String categoryName,
+                                     final String nodeRef)
+    {
+        if(StringUtils.isEmpty(categoryName) || StringUtils.isEmpty(nodeRef))
+        {
+            return;
+        }
+        entries.put(NAME_KEY + categoryName.toLowerCase(), StringUtils.removeStart(nodeRef, STORE));
+    }
+
+    /**
+     * @param path category path from the root category
+     * @return String node id of the category or null if unknown
+     */
+    public synchronized String getByPath(final String path)
+    {
+        return entries.get(pathKey(path));
+    }
+
+    /**
+     * @param path category path from the root category
+     * @param nodeRef node ref or node id of the category
+     */
+    public synchronized void putPath(final String path,
+                                     final String nodeRef)
+    {
+        if(StringUtils.isEmpty(path) || StringUtils.isEmpty(nodeRef))
+        {
+            return;
+        }
+        entries.put(pathKey(path), StringUtils.removeStart(nodeRef, STORE));
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Normalize a category path: no leading or trailing slash, lower case
+     */
+    private String pathKey(final String path)
+    {
+        return PATH_KEY + StringUtils.lowerCase(StringUtils.strip(path, "/"));
+    }
+}
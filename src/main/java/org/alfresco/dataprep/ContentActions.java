@@ -15,26 +15,36 @@
 package org.alfresco.dataprep;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
+import org.alfresco.dataprep.ServerCapabilities.Feature;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.api.Document;
 import org.apache.chemistry.opencmis.client.api.FileableCmisObject;
 import org.apache.chemistry.opencmis.client.api.Folder;
 import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
 import org.apache.chemistry.opencmis.client.api.Session;
-import org.apache.chemistry.opencmis.client.api.Tree;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisStorageException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisVersioningException;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -43,11 +53,16 @@ import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.protocol.HTTP;
+import org.apache.http.util.EntityUtils;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 @Service
 /**
@@ -57,7 +72,7 @@ import org.springframework.stereotype.Service;
  */
 public class ContentActions extends CMISUtil
 {
-    private enum ActionType
+    public enum ActionType
     {
         TAGS("/tags", "tag"),
         COMMENTS("/comments", "content"),
@@ -71,6 +86,7 @@ public class ContentActions extends CMISUtil
         }
     }     
     private static Log logger = LogFactory.getLog(ContentActions.class);
+    @Autowired private ServerCapabilities serverCapabilities;
 
     /**
      * Create single tag or comment for document or folder
@@ -97,11 +113,11 @@ public class ContentActions extends CMISUtil
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
         if(!repository)
         {
-            nodeRef = getNodeRef(userName, password, siteName, contentName);
+            nodeRef = getCachedNodeRef(userName, password, siteName, contentName);
         }
         else
         {
-            nodeRef = getNodeRefByPath(userName, password, pathToItem);
+            nodeRef = getCachedNodeRefByPath(userName, password, pathToItem);
         }
         if(StringUtils.isEmpty(nodeRef))
         {
@@ -162,11 +178,11 @@ public class ContentActions extends CMISUtil
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
         if(!repository)
         {
-            nodeRef = getNodeRef(userName, password, siteName, contentName);
+            nodeRef = getCachedNodeRef(userName, password, siteName, contentName);
         }
         else
         {
-            nodeRef = getNodeRefByPath(userName, password, pathToItem);
+            nodeRef = getCachedNodeRefByPath(userName, password, pathToItem);
         }
         String reqUrl = client.getApiVersionUrl() + "nodes/" + nodeRef + optType.name;
         HttpPost post  = new HttpPost(reqUrl);
@@ -216,11 +232,11 @@ public class ContentActions extends CMISUtil
         String nodeRef;
         if(!repository)
         {
-            nodeRef = getNodeRef(userName, password, siteName, contentName);
+            nodeRef = getCachedNodeRef(userName, password, siteName, contentName);
         }
         else
         {
-            nodeRef = getNodeRefByPath(userName, password, pathToItem);
+            nodeRef = getCachedNodeRefByPath(userName, password, pathToItem);
         }
         switch (optType)
         {
@@ -375,11 +391,11 @@ public class ContentActions extends CMISUtil
         String nodeRef;
         if(!repository)
         {
-            nodeRef = getNodeRef(userName, password, siteName, contentName);
+            nodeRef = getCachedNodeRef(userName, password, siteName, contentName);
         }
         else
         {
-            nodeRef = getNodeRefByPath(userName, password, pathToItem);
+            nodeRef = getCachedNodeRefByPath(userName, password, pathToItem);
         }
         String reqUrl = client.getApiVersionUrl() + "nodes/" + nodeRef + actionType.name;
         if(actionType.equals(ActionType.LIKES))
@@ -853,6 +869,278 @@ public class ContentActions extends CMISUtil
         return removeAction(userName, password, null, null, true, pathToItem, ActionType.LIKES, "");
     }
 
+    /**
+     * Tag, comment or like to be added on a document or folder with {@link ContentActions#addBatchActions}
+     */
+    public static class BatchAction
+    {
+        private final NodeTarget target;
+        private final ActionType actionType;
+        private final String value;
+
+        private BatchAction(final NodeTarget target,
+                            final ActionType actionType,
+                            final String value)
+        {
+            if(actionType == null || (actionType != ActionType.LIKES && StringUtils.isEmpty(value)))
+            {
+                throw new IllegalArgumentException("Parameter missing");
+            }
+            this.target = target;
+            this.actionType = actionType;
+            this.value = value;
+        }
+
+        /**
+         * @param siteName site name
+         * @param contentName file or folder name
+         * @param actionType action type
+         * @param value tag or comment, ignored for likes
+         * @return action on a content from site
+         */
+        public static BatchAction inSite(final String siteName,
+                                         final String contentName,
+                                         final ActionType actionType,
+                                         final String value)
+        {
+            return new BatchAction(NodeTarget.inSite(siteName, contentName), actionType, value);
+        }
+
+        /**
+         * @param pathToItem path to document or folder
+         * @param actionType action type
+         * @param value tag or comment, ignored for likes
+         * @return action on a content from repository
+         */
+        public static BatchAction byPath(final String pathToItem,
+                                         final ActionType actionType,
+                                         final String value)
+        {
+            return new BatchAction(NodeTarget.byPath(pathToItem), actionType, value);
+        }
+
+        public NodeTarget getTarget()
+        {
+            return target;
+        }
+
+        public String getSiteName()
+        {
+            return target.getSiteName();
+        }
+
+        public String getContentName()
+        {
+            return target.getContentName();
+        }
+
+        public String getPathToItem()
+        {
+            return target.getPathToItem();
+        }
+
+        public ActionType getActionType()
+        {
+            return actionType;
+        }
+
+        public String getValue()
+        {
+            return value;
+        }
+    }
+
+    /**
+     * Result of one request sent by {@link ContentActions#addBatchActions}.
+     * All the tags (or comments) of a node are added with a single request.
+     */
+    public static class BatchActionResult extends NodeResult
+    {
+        private final BatchAction firstAction;
+        private final ActionType actionType;
+        private final List<String> values;
+
+        private BatchActionResult(final BatchAction firstAction,
+                                  final String nodeRef,
+                                  final ActionType actionType,
+                                  final List<String> values,
+                                  final boolean successful,
+                                  final String error)
+        {
+            super(nodeRef, successful, error);
+            this.firstAction = firstAction;
+            this.actionType = actionType;
+            this.values = values;
+        }
+
+        public String getSiteName()
+        {
+            return firstAction.getSiteName();
+        }
+
+        public String getContentName()
+        {
+            return firstAction.getContentName();
+        }
+
+        public String getPathToItem()
+        {
+            return firstAction.getPathToItem();
+        }
+
+        public ActionType getActionType()
+        {
+            return actionType;
+        }
+
+        public List<String> getValues()
+        {
+            return values;
+        }
+    }
+
+    /**
+     * Add tags, comments and likes on many documents or folders.
+     * Actions are grouped by node: the node ref is resolved once (using the node ref cache,
+     * the document library of a site is walked at most once), all the tags and all the comments
+     * of a node are sent in one request each and a node is liked once. Nodes are processed
+     * concurrently, each worker uses one session.
+     * 
+     * @param userName login username
+     * @param password login password
+     * @param actions list of actions
+     * @param threads number of nodes processed at the same time
+     * @param listener receives the result of each request as soon as it is done, may be null
+     * @return number of successful requests
+     */
+    public int addBatchActions(final String userName,
+                               final String password,
+                               final List<BatchAction> actions,
+                               final int threads,
+                               final Consumer<BatchActionResult> listener)
+    {
+        if (StringUtils.isEmpty(userName) || StringUtils.isEmpty(password) || actions == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        if(threads < 1)
+        {
+            throw new IllegalArgumentException("Number of threads must be greater than 0");
+        }
+        Map<String, List<BatchAction>> actionsByNode = new LinkedHashMap<String, List<BatchAction>>();
+        for(BatchAction action : actions)
+        {
+            addToGroup(actionsByNode, action.getTarget().getNodeKey(), action);
+        }
+        final List<List<BatchAction>> nodes = new ArrayList<List<BatchAction>>(actionsByNode.values());
+        final SiteNodeRefs siteNodeRefs = new SiteNodeRefs();
+        return runBatch(userName, password, nodes.size(), threads, new BatchWork()
+        {
+            @Override
+            public int run(final Session session,
+                           final int index)
+            {
+                return addNodeActions(session, userName, password, nodes.get(index), siteNodeRefs, listener);
+            }
+        });
+    }
+
+    /**
+     * Send the actions of one node, one request for each action type.
+     * 
+     * @return number of successful requests
+     */
+    @SuppressWarnings("unchecked")
+    private int addNodeActions(final Session session,
+                               final String userName,
+                               final String password,
+                               final List<BatchAction> nodeActions,
+                               final SiteNodeRefs siteNodeRefs,
+                               final Consumer<BatchActionResult> listener)
+    {
+        BatchAction first = nodeActions.get(0);
+        Map<ActionType, List<String>> valuesByType = new LinkedHashMap<ActionType, List<String>>();
+        for(BatchAction action : nodeActions)
+        {
+            List<String> values = valuesByType.get(action.getActionType());
+            if(values == null)
+            {
+                values = new ArrayList<String>();
+                valuesByType.put(action.getActionType(), values);
+            }
+            if(action.getActionType() != ActionType.LIKES)
+            {
+                values.add(action.getValue());
+            }
+        }
+        String nodeRef;
+        String error = "Content doesn't exists";
+        try
+        {
+            nodeRef = siteNodeRefs.get(session, first.getTarget());
+        }
+        catch(RuntimeException e)
+        {
+            nodeRef = "";
+            error = e.getMessage();
+        }
+        int successful = 0;
+        for(Map.Entry<ActionType, List<String>> entry : valuesByType.entrySet())
+        {
+            ActionType type = entry.getKey();
+            if(StringUtils.isEmpty(nodeRef))
+            {
+                notifyListener(listener, new BatchActionResult(first, nodeRef, type, entry.getValue(), false, error));
+                continue;
+            }
+            AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
+            HttpPost post = new HttpPost(client.getApiVersionUrl() + "nodes/" + nodeRef + type.name);
+            String body;
+            if(type == ActionType.LIKES)
+            {
+                JSONObject like = new JSONObject();
+                like.put(type.bodyParam, "likes");
+                like.put("myRating", true);
+                body = like.toJSONString();
+            }
+            else
+            {
+                JSONArray array = new JSONArray();
+                for(String value : entry.getValue())
+                {
+                    JSONObject item = new JSONObject();
+                    item.put(type.bodyParam, value);
+                    array.add(item);
+                }
+                body = array.toJSONString();
+            }
+            StringEntity se = new StringEntity(body, AlfrescoHttpClient.UTF_8_ENCODING);
+            se.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, AlfrescoHttpClient.MIME_TYPE_JSON));
+            post.setEntity(se);
+            BatchActionResult result;
+            try
+            {
+                HttpResponse response = client.executeRequest(userName, password, post);
+                if(HttpStatus.SC_CREATED == response.getStatusLine().getStatusCode())
+                {
+                    successful++;
+                    result = new BatchActionResult(first, nodeRef, type, entry.getValue(), true, null);
+                }
+                else
+                {
+                    logger.error("Unable to add new action: " + response.toString());
+                    result = new BatchActionResult(first, nodeRef, type, entry.getValue(), false, response.getStatusLine().toString());
+                }
+            }
+            catch(RuntimeException e)
+            {
+                result = new BatchActionResult(first, nodeRef, type, entry.getValue(), false, e.getMessage());
+            }
+            notifyListener(listener, result);
+        }
+        return successful;
+    }
+
     /**
      * Set document or folder as favorite
      * 
@@ -875,7 +1163,7 @@ public class ContentActions extends CMISUtil
             throw new IllegalArgumentException("Parameter missing");
         }
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        String nodeRef = getNodeRef(userName, password, siteName, contentName);
+        String nodeRef = getCachedNodeRef(userName, password, siteName, contentName);
         if(StringUtils.isEmpty(nodeRef))
         {
             throw new RuntimeException("Content doesn't exists " + contentName);
@@ -955,7 +1243,7 @@ public class ContentActions extends CMISUtil
             throw new IllegalArgumentException("Parameter missing");
         }
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        String contentNodeRef = getNodeRef(userName, password, siteName, contentName);
+        String contentNodeRef = getCachedNodeRef(userName, password, siteName, contentName);
         if(StringUtils.isEmpty(contentNodeRef))
         {
             throw new RuntimeException("Content doesn't exists");
@@ -994,7 +1282,7 @@ public class ContentActions extends CMISUtil
             throw new IllegalArgumentException("Parameter missing");
         }
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        String contentNodeRef = getNodeRef(userName, password, siteName, contentName);
+        String contentNodeRef = getCachedNodeRef(userName, password, siteName, contentName);
         if(StringUtils.isEmpty(contentNodeRef))
         {
             throw new RuntimeException("Content doesn't exists");
@@ -1151,180 +1439,856 @@ public class ContentActions extends CMISUtil
         Session session = getCMISSession(userName, password);
         return getDocumentObject(session, siteId, fileName).getVersionLabel();
     }
-    
-    private CmisObject copyTo(final String userName,
-                              final String password,
-                              final String sourceSite,
-                              final String contentName,
-                              final String targetSite,
-                              final String targetFolder,
-                              final boolean byPath,
-                              final String pathFrom,
-                              final String pathTo)
+
+    /**
+     * How {@link ContentActions#createVersionHistory} adds a version
+     */
+    public enum VersionMode
     {
-        CmisObject objTarget = null;
-        CmisObject copiedContent = null;
-        Session session = getCMISSession(userName, password);
-        CmisObject objFrom = null;
-        if(!byPath)
+        /** check out, then check in the new content */
+        CHECK_IN,
+        /**
+         * replace the content, without the public api this always adds a minor version
+         * so the major versions are added with check out and check in
+         */
+        SET_CONTENT;
+    }
+
+    /**
+     * Versions to be added to a document with {@link ContentActions#createVersionHistory}
+     */
+    public static class VersionHistory
+    {
+        private final String siteName;
+        private final String docName;
+        private final int versions;
+        private DocumentType docType = DocumentType.TEXT_PLAIN;
+        private VersionMode mode = VersionMode.CHECK_IN;
+        private int majorEvery = 0;
+        private long contentSize = 1024;
+        private String comment = "version";
+
+        /**
+         * @param siteName site name
+         * @param docName document name
+         * @param versions number of versions to add
+         */
+        public VersionHistory(final String siteName,
+                              final String docName,
+                              final int versions)
         {
-            objFrom = getCmisObject(session, sourceSite, contentName);
-            if(!StringUtils.isEmpty(targetFolder))
+            if(StringUtils.isEmpty(siteName) || StringUtils.isEmpty(docName))
             {
-                objTarget = getCmisObject(session, targetSite, targetFolder);
+                throw new IllegalArgumentException("Parameter missing");
             }
-            else
+            if(versions < 1)
             {
-                objTarget = getCmisObject(session, "/Sites/" + targetSite + "/documentLibrary");
+                throw new IllegalArgumentException("Number of versions must be greater than 0");
             }
+            this.siteName = siteName;
+            this.docName = docName;
+            this.versions = versions;
         }
-        else
+
+        public String getSiteName()
         {
-            objFrom = getCmisObject(session, pathFrom);
-            objTarget = getCmisObject(session, pathTo);
+            return siteName;
         }
-        if(objFrom instanceof Document)
+
+        public String getDocName()
         {
-            Document d = (Document)objFrom;
-            copiedContent = d.copy(objTarget);
+            return docName;
         }
-        else if(objFrom instanceof Folder)
+
+        public int getVersions()
         {
-            Folder fFrom = (Folder)objFrom;
-            Folder toFolder = (Folder)objTarget;
-            copiedContent = copyFolder(fFrom, toFolder);
+            return versions;
         }
-        return copiedContent;
-}
-    
-    /**
-     * Copy file or folder
-     *
-     * @param userName user name
-     * @param password password
-     * @param siteName source site
-     * @param contentName content to be copied
-     * @param targetSite tartget site
-     * @param targetFolder target folder. If null document library is set
-     * @return CmisObject of new created object
-     */
-    public CmisObject copyTo(final String userName,
-                             final String password,
-                             final String sourceSite,
-                             final String contentName,
-                             final String targetSite,
-                             final String targetFolder)
-    {
-        return copyTo(userName, password, sourceSite, contentName, targetSite, targetFolder, false, null, null);
-    }
-    
-    /**
-     * Copy item by path
-     * 
-     * @param userName String user name
-     * @param password String password
-     * @param pathFrom String path from
-     * @param pathTo String path to
-     * @return
-     */
-    public CmisObject copyTo(final String userName,
-                             final String password,
-                             final String pathFrom,
-                             final String pathTo)
-    {
-        return copyTo(userName, password, null, null, null, null, true, pathFrom, pathTo);
-    }
 
-    
-    /**
-     * Copy folder with all childs 
-     * 
-     * @param toCopyFolder source folder
-     * @param targetFolder target folder
-     * @return CmisObject of new created folder
-     */
-    private CmisObject copyFolder(Folder sourceFolder,
-                                  Folder targetFolder)
-    {
-        Map<String, Object> folderProperties = new HashMap<String, Object>(2);
-        folderProperties.put(PropertyIds.NAME, sourceFolder.getName());
-        folderProperties.put(PropertyIds.OBJECT_TYPE_ID, sourceFolder.getBaseTypeId().value());
-        Folder newFolder = targetFolder.createFolder(folderProperties);
-        copyChildrenFromFolder(sourceFolder, newFolder);
-        return newFolder;
-    }
-    
-    /**
-     * Copy all the childs of the source folder to the target folder
-     * 
-     * @param sourceFolder
-     * @param targetFolder
-     */
-    private void copyChildrenFromFolder(Folder sourceFolder,
-                                        Folder targetFolder)
-    {
-        for (Tree<FileableCmisObject> t : sourceFolder.getDescendants(-1))
+        public DocumentType getDocType()
         {
-            CmisObject obj = t.getItem();
-            if (obj instanceof Document)
-            {
-                Document d = (Document)obj;
-                d.copy(targetFolder);
-            } 
-            else if (obj instanceof Folder)
-            {
-                copyFolder((Folder) obj, targetFolder);
-            }
+            return docType;
         }
-    }
-    
-    private CmisObject moveTo(final String userName,
-                              final String password,
-                              final String sourceSite,
-                              final String contentName,
-                              final String targetSite,
-                              final String targetFolder,
-                              final boolean byPath,
-                              final String pathFrom,
-                              final String pathTo)
-    {
-        CmisObject objTarget = null;
-        CmisObject movedContent = null;
-        Session session = getCMISSession(userName, password);
-        CmisObject objFrom = null;
-        if(!byPath)
+
+        /**
+         * @param docType mime type of the generated content
+         */
+        public void setDocType(DocumentType docType)
         {
-            objFrom = getCmisObject(session, sourceSite, contentName);
-            if(!StringUtils.isEmpty(targetFolder))
-            {
-                objTarget = getCmisObject(session, targetSite, targetFolder);
-            }
-            else
-            {
-                objTarget = getCmisObject(session, "/Sites/" + targetSite + "/documentLibrary");
-            }
+            this.docType = docType;
         }
-        else
+
+        public VersionMode getMode()
         {
-            objFrom = getCmisObject(session, pathFrom);
-            objTarget = getCmisObject(session, pathTo);
+            return mode;
         }
-        if(objFrom instanceof Document)
+
+        public void setMode(VersionMode mode)
         {
-            Document d = (Document)objFrom;
-            List<Folder> parents = d.getParents();
-            CmisObject parent = session.getObject(parents.get(0).getId());
-            movedContent = d.move(parent, objTarget);
+            this.mode = mode;
         }
-        else if(objFrom instanceof Folder)
+
+        public int getMajorEvery()
         {
-            Folder f = (Folder)objFrom;
-            List<Folder> parents = f.getParents();
-            CmisObject parent = session.getObject(parents.get(0).getId());
-            movedContent = f.move(parent, objTarget);
+            return majorEvery;
         }
-        return movedContent;
-    }
+
+        /**
+         * @param majorEvery every n-th version is major, 0 for minor versions only
+         */
+        public void setMajorEvery(int majorEvery)
+        {
+            if(majorEvery < 0)
+            {
+                throw new IllegalArgumentException("Major version interval must not be negative");
+            }
+            this.majorEvery = majorEvery;
+        }
+
+        public long getContentSize()
+        {
+            return contentSize;
+        }
+
+        /**
+         * @param contentSize size in bytes of the content of each version
+         */
+        public void setContentSize(long contentSize)
+        {
+            if(contentSize < 0)
+            {
+                throw new IllegalArgumentException("Content size must not be negative");
+            }
+            this.contentSize = contentSize;
+        }
+
+        public String getComment()
+        {
+            return comment;
+        }
+
+        /**
+         * @param comment version comment, followed by the number of the version
+         */
+        public void setComment(String comment)
+        {
+            this.comment = comment;
+        }
+
+        private boolean isMajor(final int version)
+        {
+            return majorEvery > 0 && version % majorEvery == 0;
+        }
+    }
+
+    /**
+     * Add versions to many documents. The versions of a document are added in a loop,
+     * without waiting between them, and documents are processed concurrently, each worker using its own session.
+     * The content of each version is generated while it is sent.
+     *
+     * @param userName login username
+     * @param password login password
+     * @param documents versions to add
+     * @param threads number of documents processed at the same time
+     * @return number of versions created
+     */
+    public int createVersionHistory(final String userName,
+                                    final String password,
+                                    final List<VersionHistory> documents,
+                                    final int threads)
+    {
+        if (StringUtils.isEmpty(userName) || StringUtils.isEmpty(password) || documents == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        if(threads < 1)
+        {
+            throw new IllegalArgumentException("Number of threads must be greater than 0");
+        }
+        if(documents.isEmpty())
+        {
+            return 0;
+        }
+        final boolean publicApi = serverCapabilities.supports(Feature.PUBLIC_API);
+        final int workers = Math.min(threads, documents.size());
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for(int w = 0; w < workers; w++)
+        {
+            final int worker = w;
+            tasks.add(new Callable<Integer>()
+            {
+                @Override
+                public Integer call()
+                {
+                    Session session = getCMISSession(userName, password);
+                    AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
+                    CloseableHttpClient httpClient = client.getHttpClientWithBasicAuth(userName, password);
+                    int created = 0;
+                    try
+                    {
+                        for(int i = worker; i < documents.size(); i = i + workers)
+                        {
+                            created = created + addVersions(session, client, httpClient, documents.get(i), publicApi);
+                        }
+                    }
+                    finally
+                    {
+                        client.close(httpClient);
+                    }
+                    return created;
+                }
+            });
+        }
+        int created = 0;
+        for(Integer count : BatchExecutor.runAll(tasks, workers))
+        {
+            created = created + count;
+        }
+        return created;
+    }
+
+    /**
+     * Add the versions of one document
+     *
+     * @return number of versions created
+     */
+    private int addVersions(final Session session,
+                            final AlfrescoHttpClient client,
+                            final CloseableHttpClient httpClient,
+                            final VersionHistory history,
+                            final boolean publicApi)
+    {
+        String nodeRef = getCachedNodeRef(session, history.getSiteName(), history.getDocName());
+        if(StringUtils.isEmpty(nodeRef))
+        {
+            throw new CmisRuntimeException("Content " + history.getDocName() + " doesn't exist");
+        }
+        String repositoryId = session.getRepositoryInfo().getId();
+        String mimeType = history.getDocType().type;
+        for(int version = 1; version <= history.getVersions(); version++)
+        {
+            boolean major = history.isMajor(version);
+            String comment = history.getComment() + " " + version;
+            byte[] seed = getBytes(history.getDocName() + " " + comment + "\n");
+            if(history.getMode() == VersionMode.SET_CONTENT && publicApi)
+            {
+                putContent(client, httpClient, nodeRef, new GeneratedEntity(seed, history.getContentSize(), mimeType), major, comment);
+                continue;
+            }
+            ContentStream contentStream = session.getObjectFactory().createContentStream(history.getDocName(),
+                    history.getContentSize(), mimeType, new GeneratedContent(seed, history.getContentSize()));
+            if(history.getMode() == VersionMode.CHECK_IN || major)
+            {
+                // the binding calls work on ids, no object is read between the versions
+                Holder<String> pwcId = new Holder<String>(nodeRef);
+                session.getBinding().getVersioningService().checkOut(repositoryId, pwcId, null, null);
+                session.getBinding().getVersioningService().checkIn(repositoryId, pwcId, major, null, contentStream, comment,
+                        null, null, null, null);
+            }
+            else
+            {
+                session.getBinding().getObjectService().setContentStream(repositoryId, new Holder<String>(nodeRef), true, null,
+                        contentStream, null);
+            }
+        }
+        return history.getVersions();
+    }
+
+    private void putContent(final AlfrescoHttpClient client,
+                            final CloseableHttpClient httpClient,
+                            final String nodeRef,
+                            final GeneratedEntity entity,
+                            final boolean major,
+                            final String comment)
+    {
+        HttpPut put;
+        try
+        {
+            put = new HttpPut(client.getApiVersionUrl() + "nodes/" + nodeRef + "/content?majorVersion=" + major
+                    + "&comment=" + URLEncoder.encode(comment, AlfrescoHttpClient.UTF_8_ENCODING));
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new RuntimeException("Unable to encode the version comment", e);
+        }
+        put.setEntity(entity);
+        try
+        {
+            HttpResponse response = httpClient.execute(put);
+            if(HttpStatus.SC_OK != response.getStatusLine().getStatusCode())
+            {
+                throw new RuntimeException("Unable to update content of " + nodeRef + ": " + response.getStatusLine());
+            }
+            EntityUtils.consumeQuietly(response.getEntity());
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Failed to execute the request", e);
+        }
+        finally
+        {
+            put.releaseConnection();
+        }
+    }
+
+    private byte[] getBytes(final String text)
+    {
+        try
+        {
+            return text.getBytes(AlfrescoHttpClient.UTF_8_ENCODING);
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new RuntimeException("Unable to read the new content", e);
+        }
+    }
+
+    /**
+     * Generated content: the seed repeated up to the length
+     */
+    private static class GeneratedContent extends InputStream
+    {
+        private final byte[] seed;
+        private final long length;
+        private long position;
+
+        private GeneratedContent(final byte[] seed,
+                                 final long length)
+        {
+            this.seed = seed;
+            this.length = length;
+        }
+
+        @Override
+        public int read()
+        {
+            if(position >= length)
+            {
+                return -1;
+            }
+            return seed[(int) (position++ % seed.length)] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len)
+        {
+            if(position >= length)
+            {
+                return -1;
+            }
+            int count = (int) Math.min(len, length - position);
+            for(int i = 0; i < count; i++)
+            {
+                b[off + i] = seed[(int) ((position + i) % seed.length)];
+            }
+            position = position + count;
+            return count;
+        }
+    }
+
+    /**
+     * Request entity of a generated content, generated again if the request is retried
+     */
+    private static class GeneratedEntity extends AbstractHttpEntity
+    {
+        private final byte[] seed;
+        private final long length;
+
+        private GeneratedEntity(final byte[] seed,
+                                final long length,
+                                final String mimeType)
+        {
+            this.seed = seed;
+            this.length = length;
+            setContentType(mimeType);
+        }
+
+        @Override
+        public boolean isRepeatable()
+        {
+            return true;
+        }
+
+        @Override
+        public long getContentLength()
+        {
+            return length;
+        }
+
+        @Override
+        public InputStream getContent()
+        {
+            return new GeneratedContent(seed, length);
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException
+        {
+            InputStream content = getContent();
+            byte[] buffer = new byte[8192];
+            int read;
+            while((read = content.read(buffer, 0, buffer.length)) != -1)
+            {
+                out.write(buffer, 0, read);
+            }
+        }
+
+        @Override
+        public boolean isStreaming()
+        {
+            return false;
+        }
+    }
+    
+    private CmisObject copyTo(final String userName,
+                              final String password,
+                              final String sourceSite,
+                              final String contentName,
+                              final String targetSite,
+                              final String targetFolder,
+                              final boolean byPath,
+                              final String pathFrom,
+                              final String pathTo)
+    {
+        CmisObject objTarget = null;
+        CmisObject copiedContent = null;
+        Session session = getCMISSession(userName, password);
+        CmisObject objFrom = null;
+        if(!byPath)
+        {
+            objFrom = getCmisObject(session, sourceSite, contentName);
+            if(!StringUtils.isEmpty(targetFolder))
+            {
+                objTarget = getCmisObject(session, targetSite, targetFolder);
+            }
+            else
+            {
+                objTarget = getCmisObject(session, "/Sites/" + targetSite + "/documentLibrary");
+            }
+        }
+        else
+        {
+            objFrom = getCmisObject(session, pathFrom);
+            objTarget = getCmisObject(session, pathTo);
+        }
+        if(objFrom instanceof Document)
+        {
+            Document d = (Document)objFrom;
+            copiedContent = d.copy(objTarget);
+        }
+        else if(objFrom instanceof Folder)
+        {
+            Map<String, String> copies = copyFolderTree(session, userName, password, (Folder) objFrom, objTarget.getId(), 1, false);
+            copiedContent = session.getObject(copies.get(stripVersion(objFrom.getId())));
+        }
+        return copiedContent;
+}
+    
+    /**
+     * Copy file or folder
+     *
+     * @param userName user name
+     * @param password password
+     * @param siteName source site
+     * @param contentName content to be copied
+     * @param targetSite tartget site
+     * @param targetFolder target folder. If null document library is set
+     * @return CmisObject of new created object
+     */
+    public CmisObject copyTo(final String userName,
+                             final String password,
+                             final String sourceSite,
+                             final String contentName,
+                             final String targetSite,
+                             final String targetFolder)
+    {
+        return copyTo(userName, password, sourceSite, contentName, targetSite, targetFolder, false, null, null);
+    }
+    
+    /**
+     * Copy item by path
+     * 
+     * @param userName String user name
+     * @param password String password
+     * @param pathFrom String path from
+     * @param pathTo String path to
+     * @return
+     */
+    public CmisObject copyTo(final String userName,
+                             final String password,
+                             final String pathFrom,
+                             final String pathTo)
+    {
+        return copyTo(userName, password, null, null, null, null, true, pathFrom, pathTo);
+    }
+
+    
+    /**
+     * Copy a folder with all its content in a site.
+     * The source tree is listed once, the folders are created level by level
+     * and the documents are copied concurrently, each worker using its own session.
+     * With server side copy the whole tree is copied by one request to the
+     * nodes/{id}/copy api (when the server has the public api) and the copied tree is listed to map the ids.
+     *
+     * @param userName user name
+     * @param password password
+     * @param sourceSite source site
+     * @param folderName folder to be copied
+     * @param targetSite target site
+     * @param targetFolder target folder. If null document library is set
+     * @param threads number of folders or documents copied at the same time
+     * @param serverSide true to copy the tree on the server in one request
+     * @return Map source node ref to the node ref of the copy (without version), including the copied folder
+     */
+    public Map<String, String> copyFolderTree(final String userName,
+                                              final String password,
+                                              final String sourceSite,
+                                              final String folderName,
+                                              final String targetSite,
+                                              final String targetFolder,
+                                              final int threads,
+                                              final boolean serverSide)
+    {
+        Session session = getCMISSession(userName, password);
+        CmisObject objFrom = getCmisObject(session, sourceSite, folderName);
+        CmisObject objTarget;
+        if(!StringUtils.isEmpty(targetFolder))
+        {
+            objTarget = getCmisObject(session, targetSite, targetFolder);
+        }
+        else
+        {
+            objTarget = getCmisObject(session, "/Sites/" + targetSite + "/documentLibrary");
+        }
+        if(!(objFrom instanceof Folder))
+        {
+            throw new CmisRuntimeException("Invalid folder " + folderName);
+        }
+        return copyFolderTree(session, userName, password, (Folder) objFrom, objTarget.getId(), threads, serverSide);
+    }
+
+    /**
+     * Copy a folder with all its content by path
+     *
+     * @param userName user name
+     * @param password password
+     * @param pathFrom String path of the folder
+     * @param pathTo String path of the target folder
+     * @param threads number of folders or documents copied at the same time
+     * @param serverSide true to copy the tree on the server in one request
+     * @return Map source node ref to the node ref of the copy (without version), including the copied folder
+     */
+    public Map<String, String> copyFolderTree(final String userName,
+                                              final String password,
+                                              final String pathFrom,
+                                              final String pathTo,
+                                              final int threads,
+                                              final boolean serverSide)
+    {
+        Session session = getCMISSession(userName, password);
+        CmisObject objFrom = getCmisObject(session, pathFrom);
+        CmisObject objTarget = getCmisObject(session, pathTo);
+        if(!(objFrom instanceof Folder))
+        {
+            throw new CmisRuntimeException("Invalid folder " + pathFrom);
+        }
+        return copyFolderTree(session, userName, password, (Folder) objFrom, objTarget.getId(), threads, serverSide);
+    }
+
+    /**
+     * Object of the copied tree
+     */
+    private static class TreeNode
+    {
+        private final String id;
+        private final String parentId;
+        private final String path;
+        private final String name;
+        private final boolean folder;
+
+        private TreeNode(final String id,
+                         final String parentId,
+                         final String path,
+                         final String name,
+                         final boolean folder)
+        {
+            this.id = id;
+            this.parentId = parentId;
+            this.path = path;
+            this.name = name;
+            this.folder = folder;
+        }
+    }
+
+    private Map<String, String> copyFolderTree(final Session session,
+                                               final String userName,
+                                               final String password,
+                                               final Folder source,
+                                               final String targetId,
+                                               final int threads,
+                                               final boolean serverSide)
+    {
+        if(threads < 1)
+        {
+            throw new IllegalArgumentException("Number of threads must be greater than 0");
+        }
+        OperationContext context = session.createOperationContext();
+        context.setFilterString(PropertyIds.OBJECT_ID + "," + PropertyIds.NAME + "," + PropertyIds.BASE_TYPE_ID);
+        context.setIncludeAcls(false);
+        context.setIncludePolicies(false);
+        context.setIncludeAllowableActions(false);
+        context.setRenditionFilterString("cmis:none");
+        context.setMaxItemsPerPage(1000);
+        context.setCacheEnabled(false);
+        List<List<TreeNode>> levels = listTree(source, context);
+        String sourceId = stripVersion(source.getId());
+        final Map<String, String> copies = Collections.synchronizedMap(new LinkedHashMap<String, String>());
+        if(serverSide && serverCapabilities.supports(Feature.PUBLIC_API))
+        {
+            String copyId = stripVersion(copyNodeOnServer(userName, password, sourceId, targetId));
+            copies.put(sourceId, copyId);
+            Map<String, String> copiedPaths = new HashMap<String, String>();
+            Folder copy = (Folder) session.getObject(copyId, context);
+            for(List<TreeNode> level : listTree(copy, context))
+            {
+                for(TreeNode node : level)
+                {
+                    copiedPaths.put(node.path, node.id);
+                }
+            }
+            for(List<TreeNode> level : levels)
+            {
+                for(TreeNode node : level)
+                {
+                    copies.put(node.id, copiedPaths.get(node.path));
+                }
+            }
+            return copies;
+        }
+        copies.put(sourceId, copyObject(session, new TreeNode(sourceId, null, "", source.getName(), true), targetId));
+        List<TreeNode> documents = new ArrayList<TreeNode>();
+        for(List<TreeNode> level : levels)
+        {
+            List<TreeNode> folders = new ArrayList<TreeNode>();
+            for(TreeNode node : level)
+            {
+                if(node.folder)
+                {
+                    folders.add(node);
+                }
+                else
+                {
+                    documents.add(node);
+                }
+            }
+            copyObjects(session, userName, password, folders, copies, threads);
+        }
+        copyObjects(session, userName, password, documents, copies, threads);
+        return copies;
+    }
+
+    /**
+     * List the tree under a folder, one level after another.
+     * The children of each folder are read once, in pages. Ids are kept without version.
+     */
+    private List<List<TreeNode>> listTree(final Folder root,
+                                          final OperationContext context)
+    {
+        List<List<TreeNode>> levels = new ArrayList<List<TreeNode>>();
+        List<Folder> folders = new ArrayList<Folder>();
+        Map<String, String> paths = new HashMap<String, String>();
+        folders.add(root);
+        paths.put(stripVersion(root.getId()), "");
+        while(!folders.isEmpty())
+        {
+            List<TreeNode> level = new ArrayList<TreeNode>();
+            List<Folder> next = new ArrayList<Folder>();
+            for(Folder folder : folders)
+            {
+                String folderId = stripVersion(folder.getId());
+                for(CmisObject child : folder.getChildren(context))
+                {
+                    boolean isFolder = child instanceof Folder;
+                    String childId = stripVersion(child.getId());
+                    String path = paths.get(folderId) + "/" + child.getName();
+                    if(isFolder)
+                    {
+                        next.add((Folder) child);
+                        paths.put(childId, path);
+                    }
+                    else if(!(child instanceof Document))
+                    {
+                        continue;
+                    }
+                    level.add(new TreeNode(childId, folderId, path, child.getName(), isFolder));
+                }
+            }
+            if(!level.isEmpty())
+            {
+                levels.add(level);
+            }
+            folders = next;
+        }
+        return levels;
+    }
+
+    /**
+     * Copy objects whose parents are already copied, one session per worker.
+     * With a single thread the objects are copied with the session of the caller.
+     */
+    private void copyObjects(final Session session,
+                             final String userName,
+                             final String password,
+                             final List<TreeNode> nodes,
+                             final Map<String, String> copies,
+                             final int threads)
+    {
+        if(nodes.isEmpty())
+        {
+            return;
+        }
+        if(threads == 1)
+        {
+            for(TreeNode node : nodes)
+            {
+                copies.put(node.id, copyObject(session, node, copies.get(node.parentId)));
+            }
+            return;
+        }
+        final int workers = Math.min(threads, nodes.size());
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for(int w = 0; w < workers; w++)
+        {
+            final int worker = w;
+            tasks.add(new Callable<Integer>()
+            {
+                @Override
+                public Integer call()
+                {
+                    Session workerSession = getCMISSession(userName, password);
+                    int count = 0;
+                    for(int i = worker; i < nodes.size(); i = i + workers)
+                    {
+                        TreeNode node = nodes.get(i);
+                        copies.put(node.id, copyObject(workerSession, node, copies.get(node.parentId)));
+                        count++;
+                    }
+                    return count;
+                }
+            });
+        }
+        BatchExecutor.runAll(tasks, workers);
+    }
+
+    /**
+     * Create an empty folder with the same name or copy a document on the server
+     *
+     * @return String id of the copy
+     */
+    private String copyObject(final Session session,
+                              final TreeNode node,
+                              final String targetId)
+    {
+        if(node.folder)
+        {
+            Map<String, String> properties = new HashMap<String, String>(2);
+            properties.put(PropertyIds.NAME, node.name);
+            properties.put(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_FOLDER.value());
+            return stripVersion(session.createFolder(properties, session.createObjectId(targetId)).getId());
+        }
+        return stripVersion(session.createDocumentFromSource(session.createObjectId(node.id), null, session.createObjectId(targetId), null).getId());
+    }
+
+    /**
+     * Copy a node with all its children using the public api
+     *
+     * @return String id of the copy
+     */
+    @SuppressWarnings("unchecked")
+    private String copyNodeOnServer(final String userName,
+                                    final String password,
+                                    final String nodeId,
+                                    final String targetId)
+    {
+        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
+        HttpPost post = new HttpPost(client.getApiVersionUrl() + "nodes/" + stripVersion(nodeId) + "/copy");
+        JSONObject body = new JSONObject();
+        body.put("targetParentId", stripVersion(targetId));
+        post.setEntity(client.setMessageBody(body));
+        try
+        {
+            HttpResponse response = client.execute(userName, password, post);
+            if(HttpStatus.SC_CREATED != response.getStatusLine().getStatusCode())
+            {
+                throw new RuntimeException("Unable to copy " + nodeId + ": " + response.getStatusLine());
+            }
+            JSONObject entry = (JSONObject) client.readStream(response.getEntity()).get("entry");
+            return (String) entry.get("id");
+        }
+        finally
+        {
+            post.releaseConnection();
+            client.close();
+        }
+    }
+
+    private CmisObject moveTo(final String userName,
+                              final String password,
+                              final String sourceSite,
+                              final String contentName,
+                              final String targetSite,
+                              final String targetFolder,
+                              final boolean byPath,
+                              final String pathFrom,
+                              final String pathTo)
+    {
+        CmisObject objTarget = null;
+        CmisObject movedContent = null;
+        Session session = getCMISSession(userName, password);
+        CmisObject objFrom = null;
+        if(!byPath)
+        {
+            objFrom = getCmisObject(session, sourceSite, contentName);
+            if(!StringUtils.isEmpty(targetFolder))
+            {
+                objTarget = getCmisObject(session, targetSite, targetFolder);
+            }
+            else
+            {
+                objTarget = getCmisObject(session, "/Sites/" + targetSite + "/documentLibrary");
+            }
+        }
+        else
+        {
+            objFrom = getCmisObject(session, pathFrom);
+            objTarget = getCmisObject(session, pathTo);
+        }
+        if(objFrom instanceof Document)
+        {
+            Document d = (Document)objFrom;
+            List<Folder> parents = d.getParents();
+            CmisObject parent = session.getObject(parents.get(0).getId());
+            movedContent = d.move(parent, objTarget);
+        }
+        else if(objFrom instanceof Folder)
+        {
+            Folder f = (Folder)objFrom;
+            List<Folder> parents = f.getParents();
+            CmisObject parent = session.getObject(parents.get(0).getId());
+            String oldPath = f.getPath();
+            movedContent = f.move(parent, objTarget);
+            nodeRefCache.removePath(oldPath);
+            if(!byPath)
+            {
+                nodeRefCache.removeSite(sourceSite);
+            }
+        }
+        if(objFrom != null)
+        {
+            nodeRefCache.removeNodeRef(objFrom.getId());
+        }
+        return movedContent;
+    }
     
     /**
      * Move file or folder in site
@@ -1364,6 +2328,288 @@ public class ContentActions extends CMISUtil
         return moveTo(userName, password, null, null, null, null, true, pathFrom, pathTo);
     }
 
+    /**
+     * Document or folder to be moved with {@link ContentActions#moveItems}
+     */
+    public static class MoveItem
+    {
+        private final NodeTarget target;
+        private final String targetSite;
+        private final String targetFolder;
+        private final String pathTo;
+
+        private MoveItem(final NodeTarget target,
+                         final String targetSite,
+                         final String targetFolder,
+                         final String pathTo)
+        {
+            this.target = target;
+            this.targetSite = targetSite;
+            this.targetFolder = targetFolder;
+            this.pathTo = pathTo;
+        }
+
+        /**
+         * @param siteName source site
+         * @param contentName file or folder name
+         * @param targetSite target site
+         * @param targetFolder target folder. If null document library is set
+         * @return move of a content from site
+         */
+        public static MoveItem inSite(final String siteName,
+                                      final String contentName,
+                                      final String targetSite,
+                                      final String targetFolder)
+        {
+            if(StringUtils.isEmpty(targetSite))
+            {
+                throw new IllegalArgumentException("Parameter missing");
+            }
+            return new MoveItem(NodeTarget.inSite(siteName, contentName), targetSite, targetFolder, null);
+        }
+
+        /**
+         * @param pathToItem path to document or folder (e.g. Sites/siteId/documentLibrary/doc.txt)
+         * @param pathTo path to the target folder
+         * @return move of a content from repository
+         */
+        public static MoveItem byPath(final String pathToItem,
+                                      final String pathTo)
+        {
+            if(StringUtils.isEmpty(pathTo))
+            {
+                throw new IllegalArgumentException("Parameter missing");
+            }
+            return new MoveItem(NodeTarget.byPath(pathToItem), null, null, pathTo);
+        }
+
+        private String getTargetKey()
+        {
+            if(pathTo != null)
+            {
+                return "path:" + StringUtils.strip(pathTo, "/");
+            }
+            return "site:" + targetSite.toLowerCase() + "/" + StringUtils.lowerCase(targetFolder);
+        }
+
+        public NodeTarget getTarget()
+        {
+            return target;
+        }
+
+        public String getSiteName()
+        {
+            return target.getSiteName();
+        }
+
+        public String getContentName()
+        {
+            return target.getContentName();
+        }
+
+        public String getPathToItem()
+        {
+            return target.getPathToItem();
+        }
+
+        public String getTargetSite()
+        {
+            return targetSite;
+        }
+
+        public String getTargetFolder()
+        {
+            return targetFolder;
+        }
+
+        public String getPathTo()
+        {
+            return pathTo;
+        }
+    }
+
+    /**
+     * Result of one move done by {@link ContentActions#moveItems}
+     */
+    public static class MoveResult extends NodeResult
+    {
+        private final MoveItem item;
+
+        private MoveResult(final MoveItem item,
+                           final String nodeRef,
+                           final boolean successful,
+                           final String error)
+        {
+            super(nodeRef, successful, error);
+            this.item = item;
+        }
+
+        public MoveItem getItem()
+        {
+            return item;
+        }
+    }
+
+    /**
+     * Move many documents or folders.
+     * Each target folder is resolved once and the items are grouped by it, so the same folder
+     * given by site and by path gets one group. The moves of a group are done one after another,
+     * so two items with the same name never race for the target folder.
+     * The contents of a site are listed once for all the items addressed by site.
+     * Target folders are processed concurrently, each worker using its own session.
+     * A failed move is reported to the listener and the other moves go on.
+     *
+     * @param userName login username
+     * @param password login password
+     * @param items list of items to move
+     * @param threads number of target folders processed at the same time
+     * @param listener receives the result of each move as soon as it is done, may be null
+     * @return number of successful moves
+     */
+    public int moveItems(final String userName,
+                         final String password,
+                         final List<MoveItem> items,
+                         final int threads,
+                         final Consumer<MoveResult> listener)
+    {
+        if (StringUtils.isEmpty(userName) || StringUtils.isEmpty(password) || items == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        if(threads < 1)
+        {
+            throw new IllegalArgumentException("Number of threads must be greater than 0");
+        }
+        Map<String, List<MoveItem>> itemsByKey = new LinkedHashMap<String, List<MoveItem>>();
+        for(MoveItem item : items)
+        {
+            addToGroup(itemsByKey, item.getTargetKey(), item);
+        }
+        final SiteNodeRefs siteNodeRefs = new SiteNodeRefs();
+        final List<List<MoveItem>> keyGroups = new ArrayList<List<MoveItem>>(itemsByKey.values());
+        final String[] targetIds = new String[keyGroups.size()];
+        final String[] targetErrors = new String[keyGroups.size()];
+        runBatch(userName, password, keyGroups.size(), threads, new BatchWork()
+        {
+            @Override
+            public int run(final Session session,
+                           final int index)
+            {
+                try
+                {
+                    targetIds[index] = getTargetId(session, keyGroups.get(index).get(0), siteNodeRefs);
+                }
+                catch(RuntimeException e)
+                {
+                    targetErrors[index] = e.getMessage();
+                }
+                return 0;
+            }
+        });
+        Map<String, List<MoveItem>> itemsByTarget = new LinkedHashMap<String, List<MoveItem>>();
+        for(int i = 0; i < keyGroups.size(); i++)
+        {
+            for(MoveItem item : keyGroups.get(i))
+            {
+                if(StringUtils.isEmpty(targetIds[i]))
+                {
+                    String error = targetErrors[i] != null ? targetErrors[i] : "Target folder doesn't exist";
+                    notifyListener(listener, new MoveResult(item, null, false, error));
+                }
+                else
+                {
+                    addToGroup(itemsByTarget, targetIds[i], item);
+                }
+            }
+        }
+        final List<String> targets = new ArrayList<String>(itemsByTarget.keySet());
+        final List<List<MoveItem>> groups = new ArrayList<List<MoveItem>>(itemsByTarget.values());
+        return runBatch(userName, password, groups.size(), threads, new BatchWork()
+        {
+            @Override
+            public int run(final Session session,
+                           final int index)
+            {
+                return moveTargetItems(session, targets.get(index), groups.get(index), siteNodeRefs, listener);
+            }
+        });
+    }
+
+    /**
+     * @return node ref of the target folder of the item, empty if it doesn't exist
+     */
+    private String getTargetId(final Session session,
+                               final MoveItem item,
+                               final SiteNodeRefs siteNodeRefs)
+    {
+        if(item.getPathTo() != null)
+        {
+            return getCachedNodeRefByPath(session, item.getPathTo());
+        }
+        if(!StringUtils.isEmpty(item.getTargetFolder()))
+        {
+            return siteNodeRefs.get(session, item.getTargetSite(), item.getTargetFolder());
+        }
+        return getCachedNodeRefByPath(session, "Sites/" + item.getTargetSite() + "/documentLibrary");
+    }
+
+    /**
+     * Move the items of one target folder, one after another.
+     *
+     * @return number of successful moves
+     */
+    private int moveTargetItems(final Session session,
+                                final String targetId,
+                                final List<MoveItem> targetItems,
+                                final SiteNodeRefs siteNodeRefs,
+                                final Consumer<MoveResult> listener)
+    {
+        OperationContext context = session.createOperationContext();
+        context.setFilterString(PropertyIds.OBJECT_ID + "," + PropertyIds.NAME + ","
+                + PropertyIds.BASE_TYPE_ID + "," + PropertyIds.PATH);
+        context.setIncludeAcls(false);
+        context.setIncludePolicies(false);
+        context.setIncludeAllowableActions(false);
+        context.setRenditionFilterString("cmis:none");
+        context.setCacheEnabled(false);
+        int successful = 0;
+        List<String> moved = new ArrayList<String>();
+        for(MoveItem item : targetItems)
+        {
+            String nodeRef = null;
+            MoveResult result;
+            try
+            {
+                nodeRef = siteNodeRefs.get(session, item.getTarget());
+                if(StringUtils.isEmpty(nodeRef))
+                {
+                    result = new MoveResult(item, nodeRef, false, "Content doesn't exists");
+                }
+                else
+                {
+                    FileableCmisObject object = (FileableCmisObject) session.getObject(nodeRef, context);
+                    Folder parent = object.getParents(context).get(0);
+                    if(object instanceof Folder)
+                    {
+                        // node refs are kept by a move, only the paths under the folder change
+                        nodeRefCache.removePath(((Folder) object).getPath());
+                    }
+                    object.move(parent, session.createObjectId(targetId), context);
+                    moved.add(nodeRef);
+                    successful++;
+                    result = new MoveResult(item, nodeRef, true, null);
+                }
+            }
+            catch(RuntimeException e)
+            {
+                result = new MoveResult(item, nodeRef, false, e.getMessage());
+            }
+            notifyListener(listener, result);
+        }
+        nodeRefCache.removeNodeRefs(moved);
+        return successful;
+    }
+
     @SuppressWarnings("unchecked")
     private boolean managePermission(final String userName,
                                      final String password,
@@ -1377,7 +2623,7 @@ public class ContentActions extends CMISUtil
                                      final boolean remove)
     {
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        String node = getNodeRef(userName, password, siteName, contentName);
+        String node = getCachedNodeRef(userName, password, siteName, contentName);
         if(StringUtils.isEmpty(node))
         {
             throw new RuntimeException("Invalid content " + contentName);
@@ -1506,4 +2752,229 @@ public class ContentActions extends CMISUtil
     {
         return managePermission(userName, password, siteName, contentName, false, null, groupToRemove, role, isInherited, true);
     }
+
+    /**
+     * Permission to be set or removed on a document or folder with {@link ContentActions#applyPermissions}
+     */
+    public static class PermissionEntry
+    {
+        private final NodeTarget target;
+        private final String authority;
+        private final String role;
+        private final boolean remove;
+
+        private PermissionEntry(final NodeTarget target,
+                                final String authority,
+                                final String role,
+                                final boolean remove)
+        {
+            if(StringUtils.isEmpty(authority) || StringUtils.isEmpty(role))
+            {
+                throw new IllegalArgumentException("Parameter missing");
+            }
+            this.target = target;
+            this.authority = authority;
+            this.role = role;
+            this.remove = remove;
+        }
+
+        /**
+         * @param siteName site name
+         * @param contentName file or folder name
+         * @param authority user name, or group name prefixed by GROUP_
+         * @param role String role
+         * @param remove true to remove the permission
+         * @return permission on a content from site
+         */
+        public static PermissionEntry inSite(final String siteName,
+                                             final String contentName,
+                                             final String authority,
+                                             final String role,
+                                             final boolean remove)
+        {
+            return new PermissionEntry(NodeTarget.inSite(siteName, contentName), authority, role, remove);
+        }
+
+        /**
+         * @param pathToItem path to document or folder
+         * @param authority user name, or group name prefixed by GROUP_
+         * @param role String role
+         * @param remove true to remove the permission
+         * @return permission on a content from repository
+         */
+        public static PermissionEntry byPath(final String pathToItem,
+                                             final String authority,
+                                             final String role,
+                                             final boolean remove)
+        {
+            return new PermissionEntry(NodeTarget.byPath(pathToItem), authority, role, remove);
+        }
+
+        public NodeTarget getTarget()
+        {
+            return target;
+        }
+
+        public String getSiteName()
+        {
+            return target.getSiteName();
+        }
+
+        public String getContentName()
+        {
+            return target.getContentName();
+        }
+
+        public String getPathToItem()
+        {
+            return target.getPathToItem();
+        }
+
+        public String getAuthority()
+        {
+            return authority;
+        }
+
+        public String getRole()
+        {
+            return role;
+        }
+
+        public boolean isRemove()
+        {
+            return remove;
+        }
+    }
+
+    /**
+     * Result of the permissions request of one node sent by {@link ContentActions#applyPermissions}
+     */
+    public static class PermissionResult extends NodeResult
+    {
+        private final List<PermissionEntry> entries;
+
+        private PermissionResult(final List<PermissionEntry> entries,
+                                 final String nodeRef,
+                                 final boolean successful,
+                                 final String error)
+        {
+            super(nodeRef, successful, error);
+            this.entries = entries;
+        }
+
+        /**
+         * @return List permissions of the node
+         */
+        public List<PermissionEntry> getEntries()
+        {
+            return entries;
+        }
+    }
+
+    /**
+     * Set or remove many permissions on many documents or folders.
+     * Permissions are grouped by node: the node ref is resolved once (using the node ref cache,
+     * the document library of a site is walked at most once) and all the permissions of a node
+     * are sent in one request. Nodes are processed concurrently, each worker uses one session.
+     *
+     * @param userName login username
+     * @param password login password
+     * @param entries list of permissions
+     * @param isInherited boolean inherit the permissions of the parent, set on every node
+     * @param threads number of nodes processed at the same time
+     * @param listener receives the result of each node as soon as it is done, may be null
+     * @return number of nodes updated
+     */
+    public int applyPermissions(final String userName,
+                                final String password,
+                                final List<PermissionEntry> entries,
+                                final boolean isInherited,
+                                final int threads,
+                                final Consumer<PermissionResult> listener)
+    {
+        if (StringUtils.isEmpty(userName) || StringUtils.isEmpty(password) || entries == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        if(threads < 1)
+        {
+            throw new IllegalArgumentException("Number of threads must be greater than 0");
+        }
+        Map<String, List<PermissionEntry>> entriesByNode = new LinkedHashMap<String, List<PermissionEntry>>();
+        for(PermissionEntry entry : entries)
+        {
+            addToGroup(entriesByNode, entry.getTarget().getNodeKey(), entry);
+        }
+        final List<List<PermissionEntry>> nodes = new ArrayList<List<PermissionEntry>>(entriesByNode.values());
+        final SiteNodeRefs siteNodeRefs = new SiteNodeRefs();
+        return runBatch(userName, password, nodes.size(), threads, new BatchWork()
+        {
+            @Override
+            public int run(final Session session,
+                           final int index)
+            {
+                PermissionResult result = applyNodePermissions(session, userName, password, nodes.get(index),
+                        isInherited, siteNodeRefs);
+                notifyListener(listener, result);
+                return result.isSuccessful() ? 1 : 0;
+            }
+        });
+    }
+
+    /**
+     * Send all the permissions of one node in one request
+     */
+    @SuppressWarnings("unchecked")
+    private PermissionResult applyNodePermissions(final Session session,
+                                                  final String userName,
+                                                  final String password,
+                                                  final List<PermissionEntry> nodeEntries,
+                                                  final boolean isInherited,
+                                                  final SiteNodeRefs siteNodeRefs)
+    {
+        String nodeRef;
+        try
+        {
+            nodeRef = siteNodeRefs.get(session, nodeEntries.get(0).getTarget());
+        }
+        catch(RuntimeException e)
+        {
+            return new PermissionResult(nodeEntries, null, false, e.getMessage());
+        }
+        if(StringUtils.isEmpty(nodeRef))
+        {
+            return new PermissionResult(nodeEntries, nodeRef, false, "Content doesn't exists");
+        }
+        JSONArray array = new JSONArray();
+        for(PermissionEntry entry : nodeEntries)
+        {
+            JSONObject permission = new JSONObject();
+            permission.put("authority", entry.getAuthority());
+            permission.put("role", entry.getRole());
+            if(entry.isRemove())
+            {
+                permission.put("remove", true);
+            }
+            array.add(permission);
+        }
+        JSONObject body = new JSONObject();
+        body.put("permissions", array);
+        body.put("isInherited", isInherited);
+        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
+        HttpPost post = new HttpPost(client.getAlfrescoUrl() + "alfresco/s/slingshot/doclib/permissions/workspace/SpacesStore/" + nodeRef);
+        try
+        {
+            HttpResponse response = client.executeRequest(userName, password, body, post);
+            if(HttpStatus.SC_OK == response.getStatusLine().getStatusCode())
+            {
+                return new PermissionResult(nodeEntries, nodeRef, true, null);
+            }
+            logger.error("Unable to set permissions: " + response.toString());
+            return new PermissionResult(nodeEntries, nodeRef, false, response.getStatusLine().toString());
+        }
+        catch(RuntimeException e)
+        {
+            return new PermissionResult(nodeEntries, nodeRef, false, e.getMessage());
+        }
+    }
 }
@@ -16,19 +16,35 @@ package org.alfresco.dataprep;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.api.Property;
 import org.apache.chemistry.opencmis.client.api.SecondaryType;
 import org.apache.chemistry.opencmis.client.api.Session;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.BulkUpdateObjectIdAndChangeToken;
+import org.apache.chemistry.opencmis.commons.data.Properties;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.enums.Updatability;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.BulkUpdateObjectIdAndChangeTokenImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.springframework.stereotype.Service;
 @Service
 /**
@@ -38,6 +54,8 @@ import org.springframework.stereotype.Service;
  */
 public class ContentAspects extends CMISUtil
 {
+    private static Log logger = LogFactory.getLog(ContentAspects.class);
+
     /**
      * Add aspect for document or folder
      * 
@@ -52,7 +70,7 @@ public class ContentAspects extends CMISUtil
                           final String contentName,
                           DocumentAspect aspect)
     {
-        String contentNodeRef = getNodeRef(session, siteName, contentName);
+        String contentNodeRef = getCachedNodeRef(session, siteName, contentName);
         List<DocumentAspect> aspectsToAdd = new ArrayList<DocumentAspect>();
         aspectsToAdd.add(aspect);
         addAspect(session, contentNodeRef, aspectsToAdd);
@@ -74,7 +92,7 @@ public class ContentAspects extends CMISUtil
                           DocumentAspect aspect)
     {
         Session session = getCMISSession(userName, password);
-        String contentNodeRef = getNodeRef(session, siteName, contentName);
+        String contentNodeRef = getCachedNodeRef(session, siteName, contentName);
         List<DocumentAspect> aspectsToAdd = new ArrayList<DocumentAspect>();
         aspectsToAdd.add(aspect);
         addAspect(session, contentNodeRef, aspectsToAdd);
@@ -98,7 +116,7 @@ public class ContentAspects extends CMISUtil
         try
         {
             Session session = getCMISSession(userName, password);
-            String contentNodeRef = getNodeRef(session, siteName, contentName);
+            String contentNodeRef = getCachedNodeRef(session, siteName, contentName);
             CmisObject contentObj = session.getObject(contentNodeRef);
             List<SecondaryType> secondaryTypesList = contentObj.getSecondaryTypes();
             List<String> secondaryTypes = new ArrayList<String>();
@@ -119,6 +137,263 @@ public class ContentAspects extends CMISUtil
         }
     }
     
+    /**
+     * Add many aspects with their properties for document or folder in a single update
+     * 
+     * @param userName login username
+     * @param password login password
+     * @param siteName site name
+     * @param contentName file or folder name
+     * @param aspects aspects to add with their properties, the properties of an aspect may be null
+     */
+    public void addAspects(final String userName,
+                           final String password,
+                           final String siteName,
+                           final String contentName,
+                           final Map<DocumentAspect, Map<String, Object>> aspects)
+    {
+        Session session = getCMISSession(userName, password);
+        String contentNodeRef = getCachedNodeRef(session, siteName, contentName);
+        if(StringUtils.isEmpty(contentNodeRef))
+        {
+            throw new CmisRuntimeException("Invalid content " + contentName);
+        }
+        addAspects(session, contentNodeRef, aspects);
+    }
+
+    /**
+     * Add an aspect with its properties in a single update
+     */
+    private void addAspect(final Session session,
+                           final String siteName,
+                           final String contentName,
+                           final DocumentAspect aspect,
+                           final Map<String, Object> properties)
+    {
+        String contentNodeRef = getCachedNodeRef(session, siteName, contentName);
+        if(StringUtils.isEmpty(contentNodeRef))
+        {
+            throw new CmisRuntimeException("Invalid content " + contentName);
+        }
+        Map<DocumentAspect, Map<String, Object>> aspects = new HashMap<DocumentAspect, Map<String, Object>>();
+        aspects.put(aspect, properties);
+        addAspects(session, contentNodeRef, aspects);
+    }
+    
+    /**
+     * Objects of one batch of {@link ContentAspects#bulkUpdateProperties}
+     */
+    public static class BulkUpdateResult
+    {
+        private final int batch;
+        private final boolean bulk;
+        private final List<String> updated;
+        private final List<String> failed;
+
+        private BulkUpdateResult(final int batch,
+                                 final boolean bulk,
+                                 final List<String> updated,
+                                 final List<String> failed)
+        {
+            this.batch = batch;
+            this.bulk = bulk;
+            this.updated = updated;
+            this.failed = failed;
+        }
+
+        /**
+         * @return int index of the batch, starting from 0
+         */
+        public int getBatch()
+        {
+            return batch;
+        }
+
+        /**
+         * @return true if the batch was updated with a single bulk update request
+         */
+        public boolean isBulk()
+        {
+            return bulk;
+        }
+
+        /**
+         * @return List node refs updated
+         */
+        public List<String> getUpdated()
+        {
+            return updated;
+        }
+
+        /**
+         * @return List node refs not updated
+         */
+        public List<String> getFailed()
+        {
+            return failed;
+        }
+    }
+
+    /**
+     * Add the same aspects and properties to many documents or folders.
+     * The nodes are updated in batches with the CMIS 1.1 bulk update. If the server
+     * does not support it or rejects a batch, the nodes of the batch are updated one by one.
+     * Batches are processed concurrently, each worker using its own session.
+     * 
+     * @param userName login username
+     * @param password login password
+     * @param nodeRefs node refs of the documents or folders
+     * @param aspects aspects to add with their properties, the properties of an aspect may be null
+     * @param batchSize number of nodes updated by one request
+     * @param threads number of batches processed at the same time
+     * @param listener receives the result of each batch as soon as it is done, may be null.
+     * Calls to the listener are synchronized.
+     * @return number of updated nodes
+     */
+    public int bulkUpdateProperties(final String userName,
+                                    final String password,
+                                    final List<String> nodeRefs,
+                                    final Map<DocumentAspect, Map<String, Object>> aspects,
+                                    final int batchSize,
+                                    final int threads,
+                                    final Consumer<BulkUpdateResult> listener)
+    {
+        if(StringUtils.isEmpty(userName) || StringUtils.isEmpty(password) || nodeRefs == null
+                || aspects == null || aspects.isEmpty())
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        if(batchSize < 1 || threads < 1)
+        {
+            throw new IllegalArgumentException("Batch size and number of threads must be greater than 0");
+        }
+        if(nodeRefs.isEmpty())
+        {
+            return 0;
+        }
+        final List<List<String>> batches = new ArrayList<List<String>>();
+        for(int i = 0; i < nodeRefs.size(); i = i + batchSize)
+        {
+            batches.add(nodeRefs.subList(i, Math.min(i + batchSize, nodeRefs.size())));
+        }
+        Session session = getCMISSession(userName, password);
+        final AtomicBoolean bulkSupported = new AtomicBoolean(
+                !CmisVersion.CMIS_1_0.equals(session.getRepositoryInfo().getCmisVersion()));
+        return runBatch(userName, password, batches.size(), threads, new BatchWork()
+        {
+            @Override
+            public int run(final Session workerSession,
+                           final int index)
+            {
+                BulkUpdateResult result = null;
+                if(bulkSupported.get())
+                {
+                    result = bulkUpdate(workerSession, index, batches.get(index), aspects, bulkSupported);
+                }
+                if(result == null)
+                {
+                    result = updateOneByOne(workerSession, index, batches.get(index), aspects);
+                }
+                notifyListener(listener, result);
+                return result.getUpdated().size();
+            }
+        });
+    }
+
+    /**
+     * Update a batch with one bulk update request
+     * 
+     * @return BulkUpdateResult result or null if the batch was rejected
+     */
+    private BulkUpdateResult bulkUpdate(final Session session,
+                                        final int batch,
+                                        final List<String> nodeRefs,
+                                        final Map<DocumentAspect, Map<String, Object>> aspects,
+                                        final AtomicBoolean bulkSupported)
+    {
+        List<String> secondaryTypeIds = new ArrayList<String>();
+        List<SecondaryType> secondaryTypes = new ArrayList<SecondaryType>();
+        Map<String, Object> properties = new HashMap<String, Object>();
+        for(Map.Entry<DocumentAspect, Map<String, Object>> aspect : aspects.entrySet())
+        {
+            secondaryTypeIds.add(aspect.getKey().getProperty());
+            secondaryTypes.add((SecondaryType) session.getTypeDefinition(aspect.getKey().getProperty()));
+            if(aspect.getValue() != null)
+            {
+                properties.putAll(aspect.getValue());
+            }
+        }
+        List<BulkUpdateObjectIdAndChangeToken> objects = new ArrayList<BulkUpdateObjectIdAndChangeToken>();
+        for(String nodeRef : nodeRefs)
+        {
+            objects.add(new BulkUpdateObjectIdAndChangeTokenImpl(nodeRef, null));
+        }
+        Properties cmisProperties = properties.isEmpty() ? new PropertiesImpl() : session.getObjectFactory().convertProperties(
+                properties, session.getTypeDefinition(BaseTypeId.CMIS_DOCUMENT.value()), secondaryTypes,
+                EnumSet.of(Updatability.READWRITE));
+        List<BulkUpdateObjectIdAndChangeToken> result;
+        try
+        {
+            result = session.getBinding().getObjectService().bulkUpdateProperties(session.getRepositoryInfo().getId(),
+                    objects, cmisProperties, secondaryTypeIds, null, null);
+        }
+        catch(CmisNotSupportedException ns)
+        {
+            bulkSupported.set(false);
+            return null;
+        }
+        catch(CmisBaseException e)
+        {
+            logger.error("Bulk update of batch " + batch + " rejected, the nodes are updated one by one", e);
+            return null;
+        }
+        Set<String> updatedIds = new HashSet<String>();
+        for(BulkUpdateObjectIdAndChangeToken object : result)
+        {
+            updatedIds.add(stripVersion(object.getId()));
+        }
+        List<String> updated = new ArrayList<String>();
+        List<String> failed = new ArrayList<String>();
+        for(String nodeRef : nodeRefs)
+        {
+            if(updatedIds.contains(stripVersion(nodeRef)))
+            {
+                updated.add(nodeRef);
+            }
+            else
+            {
+                failed.add(nodeRef);
+            }
+        }
+        return new BulkUpdateResult(batch, true, updated, failed);
+    }
+
+    /**
+     * Update the nodes of a batch one by one
+     */
+    private BulkUpdateResult updateOneByOne(final Session session,
+                                            final int batch,
+                                            final List<String> nodeRefs,
+                                            final Map<DocumentAspect, Map<String, Object>> aspects)
+    {
+        List<String> updated = new ArrayList<String>();
+        List<String> failed = new ArrayList<String>();
+        for(String nodeRef : nodeRefs)
+        {
+            try
+            {
+                addAspects(session, nodeRef, aspects);
+                updated.add(nodeRef);
+            }
+            catch(RuntimeException e)
+            {
+                logger.error("Unable to update " + nodeRef, e);
+                failed.add(nodeRef);
+            }
+        }
+        return new BulkUpdateResult(batch, false, updated, failed);
+    }
+    
     /**
      * Method to add Complianceable aspect
      * 
@@ -135,11 +410,9 @@ public class ContentAspects extends CMISUtil
                                   final Date removeAfter)
     {
         Session session = getCMISSession(userName, password);
-        addAspect(session, siteName, contentName, DocumentAspect.COMPLIANCEABLE);
         Map<String, Object> propertyMap = new HashMap<String, Object>();
         propertyMap.put("cm:removeAfter", removeAfter);
-        String contentNodeRef = getNodeRef(session, siteName, contentName);
-        addProperties(session, contentNodeRef, propertyMap);
+        addAspect(session, siteName, contentName, DocumentAspect.COMPLIANCEABLE, propertyMap);
     }
 
     /**
@@ -172,7 +445,6 @@ public class ContentAspects extends CMISUtil
                               final String subject)
     {
         Session session = getCMISSession(userName, password);
-        addAspect(session, siteName, contentName, DocumentAspect.DUBLIN_CORE);
         Map<String, Object> propertyMap = new HashMap<String, Object>();
         propertyMap.put("cm:contributor", contributor);
         propertyMap.put("cm:publisher", publisher);
@@ -182,8 +454,7 @@ public class ContentAspects extends CMISUtil
         propertyMap.put("cm:rights", rights);
         propertyMap.put("cm:coverage", coverage);
         propertyMap.put("cm:dcsource", source);
-        String contentNodeRef = getNodeRef(session, siteName, contentName);
-        addProperties(session, contentNodeRef, propertyMap);
+        addAspect(session, siteName, contentName, DocumentAspect.DUBLIN_CORE, propertyMap);
     }
     
     /**
@@ -204,12 +475,10 @@ public class ContentAspects extends CMISUtil
                                final Date toDate)
     {
         Session session = getCMISSession(userName, password);
-        addAspect(session, siteName, contentName, DocumentAspect.EFFECTIVITY);
         Map<String, Object> propertyMap = new HashMap<String, Object>();
         propertyMap.put("cm:from", fromDate);
         propertyMap.put("cm:to", toDate);
-        String contentNodeRef = getNodeRef(session, siteName, contentName);
-        addProperties(session, contentNodeRef, propertyMap);
+        addAspect(session, siteName, contentName, DocumentAspect.EFFECTIVITY, propertyMap);
     }
     
     /**
@@ -230,12 +499,10 @@ public class ContentAspects extends CMISUtil
                                     final double latitude)
     {
         Session session = getCMISSession(userName, password);
-        addAspect(session, siteName, contentName, DocumentAspect.GEOGRAPHIC);
         Map<String, Object> propertyMap = new HashMap<String, Object>();
         propertyMap.put("cm:longitude", longitude);
         propertyMap.put("cm:latitude", latitude);
-        String contentNodeRef = getNodeRef(session, siteName, contentName);
-        addProperties(session, contentNodeRef, propertyMap);
+        addAspect(session, siteName, contentName, DocumentAspect.GEOGRAPHIC, propertyMap);
     }
     
     /**
@@ -254,11 +521,9 @@ public class ContentAspects extends CMISUtil
                                 final String summary)
     {
         Session session = getCMISSession(userName, password);
-        addAspect(session, siteName, contentName, DocumentAspect.SUMMARIZABLE);
         Map<String, Object> propertyMap = new HashMap<String, Object>();
         propertyMap.put("cm:summary", summary);
-        String contentNodeRef = getNodeRef(session, siteName, contentName);
-        addProperties(session, contentNodeRef, propertyMap);
+        addAspect(session, siteName, contentName, DocumentAspect.SUMMARIZABLE, propertyMap);
     }
     
     /**
@@ -278,15 +543,13 @@ public class ContentAspects extends CMISUtil
                                final String templateContent)
     {
         Session session = getCMISSession(userName, password);
-        addAspect(session, siteName, contentName, DocumentAspect.TEMPLATABLE);
-        String templateNodeRef = getNodeRef(session, siteName, templateContent);
+        String templateNodeRef = getCachedNodeRef(session, siteName, templateContent);
         if(!StringUtils.isEmpty(templateNodeRef))
         {
             templateNodeRef = "workspace://SpacesStore/" + templateNodeRef;
             Map<String, Object> propertyMap = new HashMap<String, Object>();
             propertyMap.put("cm:template", templateNodeRef);
-            String contentNodeRef = getNodeRef(session, siteName, contentName);
-            addProperties(session, contentNodeRef, propertyMap);
+            addAspect(session, siteName, contentName, DocumentAspect.TEMPLATABLE, propertyMap);
         }
         else
         {
@@ -318,15 +581,13 @@ public class ContentAspects extends CMISUtil
                            final Date sentDate)
     {
         Session session = getCMISSession(userName, password);
-        addAspect(session, siteName, contentName, DocumentAspect.EMAILED);
         Map<String, Object> propertyMap = new HashMap<String, Object>();
         propertyMap.put("cm:addressee", addressee);
         propertyMap.put("cm:addressees", addressees);
         propertyMap.put("cm:subjectline", subject);
         propertyMap.put("cm:originator", originator);
         propertyMap.put("cm:sentdate", sentDate);
-        String contentNodeRef = getNodeRef(session, siteName, contentName);
-        addProperties(session, contentNodeRef, propertyMap);
+        addAspect(session, siteName, contentName, DocumentAspect.EMAILED, propertyMap);
     }
     
     /**
@@ -347,12 +608,10 @@ public class ContentAspects extends CMISUtil
                                 final boolean contentIndexed)
     {
         Session session = getCMISSession(userName, password);
-        addAspect(session, siteName, contentName, DocumentAspect.INDEX_CONTROL);
         Map<String, Object> propertyMap = new HashMap<String, Object>();
         propertyMap.put("cm:isIndexed", isIndexed);
         propertyMap.put("cm:isContentIndexed", contentIndexed);
-        String contentNodeRef = getNodeRef(session, siteName, contentName);
-        addProperties(session, contentNodeRef, propertyMap);
+        addAspect(session, siteName, contentName, DocumentAspect.INDEX_CONTROL, propertyMap);
     }
     
     /**
@@ -371,12 +630,10 @@ public class ContentAspects extends CMISUtil
                                 final int hours)
     {
         Session session = getCMISSession(userName, password);
-        addAspect(session, siteName, contentName, DocumentAspect.RESTRICTABLE);
         long milliseconds = TimeUnit.HOURS.toMillis(hours);
         Map<String, Object> propertyMap = new HashMap<String, Object>();
         propertyMap.put("dp:offlineExpiresAfter", milliseconds);
-        String contentNodeRef = getNodeRef(userName, password, siteName, contentName);
-        addProperties(session, contentNodeRef, propertyMap);
+        addAspect(session, siteName, contentName, DocumentAspect.RESTRICTABLE, propertyMap);
     }
     
     /**
@@ -386,7 +643,7 @@ public class ContentAspects extends CMISUtil
      * @param password login password
      * @param siteName site name
      * @param contentName file or folder name
-     * @param categoryName list of categories
+     * @param categoryName list of category names or category paths from the root category (e.g. Regions/EUROPE)
      */
     public void addClasifiable(final String userName,
                                final String password,
@@ -395,7 +652,6 @@ public class ContentAspects extends CMISUtil
                                final List<String> categoryName)
     {
         Session session = getCMISSession(userName, password);
-        addAspect(session, siteName, contentName, DocumentAspect.CLASSIFIABLE); 
         List<String> nodeRefs = new ArrayList<String>();
         for(int i = 0; i < categoryName.size(); i++)
         {       
@@ -403,8 +659,7 @@ public class ContentAspects extends CMISUtil
         }     
         Map<String, Object> propertyMap = new HashMap<String, Object>();
         propertyMap.put("cm:categories", nodeRefs);
-        String contentNodeRef = getNodeRef(session, siteName, contentName);
-        addProperties(session, contentNodeRef, propertyMap);
+        addAspect(session, siteName, contentName, DocumentAspect.CLASSIFIABLE, propertyMap);
     }
     
     /**
@@ -463,7 +718,9 @@ public class ContentAspects extends CMISUtil
         propertyMap.put("cm:title", docTitle);
         propertyMap.put(PropertyIds.DESCRIPTION, docDescription);
         propertyMap.put("cm:author", author);
-        String contentNodeRef = getNodeRef(session, siteName, contentName);
+        String contentNodeRef = getCachedNodeRef(session, siteName, contentName);
         addProperties(session, contentNodeRef, propertyMap);
+        nodeRefCache.removeNodeRef(contentNodeRef);
+        nodeRefCache.put(userName, siteName, docName, contentNodeRef);
     }
 }
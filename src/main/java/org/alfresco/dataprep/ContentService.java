@@ -18,29 +18,54 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 
+import org.alfresco.dataprep.ManifestRecord.RecordType;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.api.Document;
 import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
 import org.apache.chemistry.opencmis.client.api.Session;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
 import org.apache.chemistry.opencmis.commons.enums.UnfileObject;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisContentAlreadyExistsException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisUnauthorizedException;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
@@ -60,6 +85,10 @@ import org.springframework.stereotype.Service;
  */
 public class ContentService extends CMISUtil
 {
+    private static Log logger = LogFactory.getLog(ContentService.class);
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int CHUNK_RETRIES = 3;
+
     /**
      * Create a new folder
      * 
@@ -93,6 +122,7 @@ public class ContentService extends CMISUtil
             {
                 Folder documentLibrary = (Folder) session.getObjectByPath("/Sites/" + siteName + "/documentLibrary");
                 newFolder = documentLibrary.createFolder(properties);
+                cacheNodeRef(userName, siteName, "Sites/" + siteName + "/documentLibrary", folderName, newFolder.getId());
             }
             else
             {
@@ -102,7 +132,9 @@ public class ContentService extends CMISUtil
                 }
                 Folder repository = (Folder) session.getObjectByPath(session.getRootFolder().getPath() + "/" + path);
                 newFolder = repository.createFolder(properties);
+                cacheNodeRef(userName, null, path, folderName, newFolder.getId());
             }
+            manifestRecorder.record(RecordType.FOLDER, newFolder.getId(), folderName, siteName, null, userName);
             return newFolder;
         }
         catch(CmisObjectNotFoundException nf)
@@ -169,6 +201,300 @@ public class ContentService extends CMISUtil
         return addFolder(userName, password, folderName, null, true, path);
     }
 
+    /**
+     * Receives the folders created by {@link ContentService#createFolderTree}.
+     * Called from the worker threads, implementations must be thread safe.
+     */
+    public interface FolderCallback
+    {
+        /**
+         * @param folderId String id of the new folder
+         * @param name String folder name
+         * @param parentId String id of the parent folder
+         * @param level int level of the folder, 1 for the children of the root
+         */
+        void folderCreated(String folderId, String name, String parentId, int level);
+    }
+
+    /**
+     * Shape of a folder tree: number of levels, children of each folder and folder names.
+     * When the fan-out is greater than the maximum number of children per folder, the
+     * children of a folder are spread into overflow folders (overflow-1, overflow-2...),
+     * nested as needed, so that no folder has more children than the maximum.
+     */
+    public static class FolderTree
+    {
+        private final int depth;
+        private final int fanOut;
+        private int maxChildrenPerFolder = Integer.MAX_VALUE;
+        private String namePattern = "folder-%d-%d";
+
+        /**
+         * @param depth int number of levels under the root folder
+         * @param fanOut int number of sub folders of each folder
+         */
+        public FolderTree(final int depth,
+                          final int fanOut)
+        {
+            if(depth < 1 || fanOut < 1)
+            {
+                throw new IllegalArgumentException("Depth and fan-out must be greater than 0");
+            }
+            this.depth = depth;
+            this.fanOut = fanOut;
+        }
+
+        public int getDepth()
+        {
+            return depth;
+        }
+
+        public int getFanOut()
+        {
+            return fanOut;
+        }
+
+        public int getMaxChildrenPerFolder()
+        {
+            return maxChildrenPerFolder;
+        }
+
+        /**
+         * @param maxChildrenPerFolder int maximum number of sub folders in a folder, overflow folders included
+         */
+        public void setMaxChildrenPerFolder(int maxChildrenPerFolder)
+        {
+            if(maxChildrenPerFolder < Math.min(2, fanOut))
+            {
+                throw new IllegalArgumentException("Maximum children must be greater than 1");
+            }
+            this.maxChildrenPerFolder = maxChildrenPerFolder;
+        }
+
+        /**
+         * @return int number of levels of overflow folders between a folder and its children
+         */
+        public int getOverflowLevels()
+        {
+            int levels = 0;
+            for(long capacity = maxChildrenPerFolder; capacity < fanOut; capacity = capacity * maxChildrenPerFolder)
+            {
+                levels++;
+            }
+            return levels;
+        }
+
+        /**
+         * @param level int overflow level, from 1 (children of the folder) to {@link #getOverflowLevels()}
+         * @return int number of overflow folders of that level under each folder
+         */
+        public int getOverflowFolders(final int level)
+        {
+            long capacity = 1;
+            for(int i = level; i <= getOverflowLevels(); i++)
+            {
+                capacity = capacity * maxChildrenPerFolder;
+            }
+            return (int) ((fanOut + capacity - 1) / capacity);
+        }
+
+        public String getNamePattern()
+        {
+            return namePattern;
+        }
+
+        /**
+         * @param namePattern String format of the folder names, with the level and the index of
+         * the folder in its parent as arguments (default folder-%d-%d)
+         */
+        public void setNamePattern(String namePattern)
+        {
+            this.namePattern = namePattern;
+        }
+
+        /**
+         * @return long number of folders in the tree, root and overflow folders excluded
+         */
+        public long size()
+        {
+            long size = 0;
+            long level = 1;
+            for(int i = 0; i < depth; i++)
+            {
+                level = level * fanOut;
+                size = size + level;
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Create a tree of folders in a site. The folders are created level by level, the folders
+     * of a level are split between the workers and each worker uses one session. New folders
+     * are created from the id of their parent, no path is resolved after the root.
+     * Overflow folders are recorded in the manifest but not notified to the callback.
+     * 
+     * @param userName login username
+     * @param password login password
+     * @param siteName site name
+     * @param rootPath path of the root of the tree in the document library, null or empty for the document library
+     * @param tree FolderTree shape of the tree
+     * @param threads int number of folders created at the same time
+     * @param callback FolderCallback notified of each new folder, can be null
+     * @return long number of folders created, overflow folders excluded
+     */
+    public long createFolderTree(final String userName,
+                                 final String password,
+                                 final String siteName,
+                                 final String rootPath,
+                                 final FolderTree tree,
+                                 final int threads,
+                                 final FolderCallback callback)
+    {
+        if (StringUtils.isEmpty(userName) || StringUtils.isEmpty(password) || StringUtils.isEmpty(siteName) || tree == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        String path = "/Sites/" + siteName + "/documentLibrary";
+        if(!StringUtils.isEmpty(rootPath))
+        {
+            path = path + "/" + StringUtils.strip(rootPath, "/");
+        }
+        return addFolderTree(userName, password, siteName, path, tree, threads, callback);
+    }
+
+    /**
+     * Create a tree of folders in repository.
+     * If path is NULL, the tree will be created in ROOT of repository.
+     * 
+     * @param userName login username
+     * @param password login password
+     * @param path path of the root of the tree (e.g: 'Shared')
+     * @param tree FolderTree shape of the tree
+     * @param threads int number of folders created at the same time
+     * @param callback FolderCallback notified of each new folder, can be null
+     * @return long number of folders created
+     * @see #createFolderTree
+     */
+    public long createFolderTreeInRepository(final String userName,
+                                             final String password,
+                                             final String path,
+                                             final FolderTree tree,
+                                             final int threads,
+                                             final FolderCallback callback)
+    {
+        if (StringUtils.isEmpty(userName) || StringUtils.isEmpty(password) || tree == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        return addFolderTree(userName, password, null, "/" + StringUtils.strip(StringUtils.defaultString(path), "/"),
+                tree, threads, callback);
+    }
+
+    private long addFolderTree(final String userName,
+                               final String password,
+                               final String siteName,
+                               final String rootPath,
+                               final FolderTree tree,
+                               final int threads,
+                               final FolderCallback callback)
+    {
+        if(threads < 1)
+        {
+            throw new IllegalArgumentException("Number of threads must be greater than 0");
+        }
+        Session session = getCMISSession(userName, password);
+        String[] parents;
+        try
+        {
+            parents = new String[] { session.getObjectByPath(rootPath).getId() };
+        }
+        catch(CmisObjectNotFoundException nf)
+        {
+            throw new CmisRuntimeException(siteName != null ? "Invalid Site " + siteName : "Invalid path -> " + rootPath, nf);
+        }
+        final int fanOut = tree.getFanOut();
+        final int maxChildren = tree.getMaxChildrenPerFolder();
+        final int overflowLevels = tree.getOverflowLevels();
+        long created = 0;
+        for(int level = 1; level <= tree.getDepth(); level++)
+        {
+            final int currentLevel = level;
+            // overflow folders first, then the folders of the level in the last overflow folders
+            int parentsPerFolder = 1;
+            for(int step = 1; step <= overflowLevels + 1; step++)
+            {
+                final boolean overflow = step <= overflowLevels;
+                final int perFolder = overflow ? tree.getOverflowFolders(step) : fanOut;
+                final int perParent = parentsPerFolder;
+                final String[] levelParents = parents;
+                final long total = (long) levelParents.length / perParent * perFolder;
+                if(total > Integer.MAX_VALUE)
+                {
+                    throw new IllegalArgumentException("Too many folders on level " + level);
+                }
+                // the last level is not kept, its folders have no children
+                final String[] children = overflow || level < tree.getDepth() ? new String[(int) total] : null;
+                final int workers = (int) Math.min(threads, total);
+                List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+                for(int w = 0; w < workers; w++)
+                {
+                    final int worker = w;
+                    tasks.add(new Callable<Integer>()
+                    {
+                        @Override
+                        public Integer call()
+                        {
+                            Session workerSession = getCMISSession(userName, password);
+                            int count = 0;
+                            for(int i = worker; i < total; i = i + workers)
+                            {
+                                int index = i % perFolder;
+                                String parentId = levelParents[i / perFolder * perParent + index / maxChildren];
+                                String name = overflow ? "overflow-" + (index % maxChildren + 1)
+                                        : String.format(tree.getNamePattern(), currentLevel, index + 1);
+                                Map<String, String> properties = new HashMap<String, String>();
+                                properties.put(PropertyIds.OBJECT_TYPE_ID, "cmis:folder");
+                                properties.put(PropertyIds.NAME, name);
+                                String folderId;
+                                try
+                                {
+                                    folderId = workerSession.createFolder(properties, workerSession.createObjectId(parentId)).getId();
+                                }
+                                catch(CmisContentAlreadyExistsException ae)
+                                {
+                                    throw new CmisRuntimeException("Folder already exists " + name, ae);
+                                }
+                                manifestRecorder.record(RecordType.FOLDER, folderId, name, siteName, parentId, userName);
+                                if(children != null)
+                                {
+                                    children[i] = folderId;
+                                }
+                                if(overflow)
+                                {
+                                    continue;
+                                }
+                                if(callback != null)
+                                {
+                                    callback.folderCreated(folderId, name, parentId, currentLevel);
+                                }
+                                count++;
+                            }
+                            return count;
+                        }
+                    });
+                }
+                for(Integer count : BatchExecutor.runAll(tasks, workers))
+                {
+                    created = created + count;
+                }
+                parents = children;
+                parentsPerFolder = perFolder;
+            }
+        }
+        return created;
+    }
+
     /**
      * Delete a folder from site
      *
@@ -193,6 +519,7 @@ public class ContentService extends CMISUtil
             Session session = getCMISSession(userName, password); 
             String folderId = getNodeRef(userName, password, siteName, folderName);
             session.getObject(folderId).delete();
+            nodeRefCache.removeNodeRef(folderId);
         }
         catch(CmisInvalidArgumentException nf)
         {
@@ -221,6 +548,8 @@ public class ContentService extends CMISUtil
             Session session = getCMISSession(userName, password);
             String folderId = getNodeRefByPath(userName, password, path);
             session.getObject(folderId).delete();
+            nodeRefCache.removeNodeRef(folderId);
+            nodeRefCache.removePath(path);
         }
         catch(CmisInvalidArgumentException nf)
         {
@@ -382,6 +711,7 @@ public class ContentService extends CMISUtil
                 Folder documentLibrary = (Folder) session.getObjectByPath("/Sites/" + siteName + "/documentLibrary");
                 documentLibrary.refresh();
                 d = documentLibrary.createDocument(properties, contentStream, VersioningState.MAJOR);
+                cacheNodeRef(userName, siteName, "Sites/" + siteName + "/documentLibrary", d.getName(), d.getId());
             }
             else
             {
@@ -391,8 +721,10 @@ public class ContentService extends CMISUtil
                 }
                 Folder repository = (Folder) session.getObjectByPath(session.getRootFolder().getPath() + "/" + path);
                 d = repository.createDocument(properties, contentStream, VersioningState.MAJOR);
+                cacheNodeRef(userName, null, path, d.getName(), d.getId());
             }
             d.refresh();
+            manifestRecorder.record(RecordType.DOCUMENT, d.getId(), d.getName(), siteName, null, userName);
             return d;
         }
         catch(CmisObjectNotFoundException nf)
@@ -470,12 +802,14 @@ public class ContentService extends CMISUtil
         try
         {
             contentStream = session.getObjectFactory().createContentStream(docName, Long.valueOf(content.length), docType.type, stream);
-            String folderId = getNodeRef(session, siteName, folderName);
+            String folderId = getCachedNodeRef(session, siteName, folderName);
             CmisObject folderObj = session.getObject(folderId);
             if(folderObj instanceof Folder)
             {
                 Folder f = (Folder)folderObj;
                 d = f.createDocument(properties, contentStream, VersioningState.MAJOR);
+                cacheNodeRef(userName, siteName, f.getPath(), docName, d.getId());
+                manifestRecorder.record(RecordType.DOCUMENT, d.getId(), docName, siteName, folderId, userName);
                 return d;
             }
         }
@@ -526,6 +860,7 @@ public class ContentService extends CMISUtil
             Session session = getCMISSession(userName, password); 
             docId = getNodeRef(session, siteName, docName);
             session.getObject(docId).delete();
+            nodeRefCache.removeNodeRef(docId);
         }
         catch(CmisObjectNotFoundException nf)
         {
@@ -577,6 +912,12 @@ public class ContentService extends CMISUtil
                 Folder f = (Folder)o;
                 f.refresh();
                 List<String> failedObj = f.deleteTree(true, UnfileObject.DELETE, true);
+                nodeRefCache.removeNodeRef(folderId);
+                nodeRefCache.removePath(f.getPath());
+                if(!inRepository)
+                {
+                    nodeRefCache.removeSite(siteName);
+                }
                 if(failedObj.isEmpty())
                 {
                     return true;
@@ -681,6 +1022,7 @@ public class ContentService extends CMISUtil
             {
                 Folder documentLibrary = (Folder) session.getObjectByPath("/Sites/" + siteName + "/documentLibrary");
                 d = documentLibrary.createDocument(properties, contentStream, VersioningState.MAJOR);
+                cacheNodeRef(userName, siteName, "Sites/" + siteName + "/documentLibrary", d.getName(), d.getId());
             }
             else
             {
@@ -690,7 +1032,9 @@ public class ContentService extends CMISUtil
                 }
                 Folder repository = (Folder) session.getObjectByPath(session.getRootFolder().getPath() + "/" + pathInRepo);
                 d = repository.createDocument(properties, contentStream, VersioningState.MAJOR);
+                cacheNodeRef(userName, null, pathInRepo, d.getName(), d.getId());
             }
+            manifestRecorder.record(RecordType.DOCUMENT, d.getId(), d.getName(), siteName, null, userName);
             return d;
         }
         catch(CmisObjectNotFoundException nf)
@@ -714,6 +1058,208 @@ public class ContentService extends CMISUtil
         }
     }
 
+    /**
+     * Upload a large file in site in chunks. The document is created with the first chunk and
+     * the next chunks are appended (CMIS 1.1 append content stream), a chunk that fails is retried
+     * from the last offset acknowledged by the server. If a document with the same name holds the
+     * beginning of the file, for example after an interrupted upload, the upload resumes from its
+     * length; any other document with the same name is left untouched and the upload fails.
+     * Servers without append support get the file in one request.
+     *
+     * @param userName login username
+     * @param password user password
+     * @param siteName site name
+     * @param pathToFile path to file
+     * @param chunkSize int size of the chunks in bytes
+     * @return {@link Document} uploaded file
+     */
+    public Document uploadFileInSiteChunked(final String userName,
+                                            final String password,
+                                            final String siteName,
+                                            final String pathToFile,
+                                            final int chunkSize)
+    {
+        if(StringUtils.isEmpty(userName) || StringUtils.isEmpty(password) || StringUtils.isEmpty(siteName)
+                || StringUtils.isEmpty(pathToFile))
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        return uploadFileChunked(userName, password, false, siteName, null, pathToFile, chunkSize);
+    }
+
+    /**
+     * Upload a large file in repository in chunks.
+     * If pathInRepo is NULL, document will be uploaded in ROOT of repository.
+     *
+     * @param userName login username
+     * @param password user password
+     * @param pathInRepo path in repository. If NULL, ROOT is set!
+     * @param pathToFile path to file
+     * @param chunkSize int size of the chunks in bytes
+     * @return {@link Document} uploaded file
+     * @see #uploadFileInSiteChunked
+     */
+    public Document uploadFileInRepositoryChunked(final String userName,
+                                                  final String password,
+                                                  final String pathInRepo,
+                                                  final String pathToFile,
+                                                  final int chunkSize)
+    {
+        if(StringUtils.isEmpty(userName) || StringUtils.isEmpty(password) || StringUtils.isEmpty(pathToFile))
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        return uploadFileChunked(userName, password, true, null, pathInRepo, pathToFile, chunkSize);
+    }
+
+    private Document uploadFileChunked(final String userName,
+                                       final String password,
+                                       final boolean inRepo,
+                                       final String siteName,
+                                       final String pathInRepo,
+                                       final String pathToFile,
+                                       final int chunkSize)
+    {
+        if(chunkSize < 1)
+        {
+            throw new IllegalArgumentException("Chunk size must be greater than 0");
+        }
+        File file = new File(pathToFile);
+        if (!file.isFile())
+        {
+            throw new UnsupportedOperationException("Invalid Path: " + file.getPath());
+        }
+        Session session = getCMISSession(userName, password);
+        if(CmisVersion.CMIS_1_0.equals(session.getRepositoryInfo().getCmisVersion()))
+        {
+            return uploadFile(userName, password, inRepo, siteName, pathInRepo, pathToFile);
+        }
+        String folderPath = inRepo ? session.getRootFolder().getPath() + "/" + StringUtils.defaultString(pathInRepo)
+                : "/Sites/" + siteName + "/documentLibrary";
+        String cachePath = inRepo ? StringUtils.defaultString(pathInRepo) : "Sites/" + siteName + "/documentLibrary";
+        String mimeType = FilenameUtils.getExtension(file.getPath());
+        long length = file.length();
+        Folder folder;
+        try
+        {
+            folder = (Folder) session.getObjectByPath(folderPath);
+        }
+        catch(CmisObjectNotFoundException nf)
+        {
+            throw new CmisRuntimeException(inRepo ? "Invalid path in repository " + pathInRepo : "Invalid Site " + siteName, nf);
+        }
+        OperationContext noCache = session.createOperationContext();
+        noCache.setCacheEnabled(false);
+        Document d = null;
+        try
+        {
+            String parentPath = folder.getPath().endsWith("/") ? folder.getPath() : folder.getPath() + "/";
+            d = (Document) session.getObjectByPath(parentPath + file.getName(), noCache);
+        }
+        catch(CmisObjectNotFoundException nf)
+        {
+            // new document
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            long offset;
+            if(d == null)
+            {
+                Map<String, String> properties = new HashMap<String, String>();
+                properties.put(PropertyIds.OBJECT_TYPE_ID, "cmis:document");
+                properties.put(PropertyIds.NAME, file.getName());
+                d = folder.createDocument(properties, chunk(session, channel, file.getName(), mimeType, 0, Math.min(chunkSize, length)),
+                        VersioningState.MAJOR);
+                offset = Math.min(chunkSize, length);
+            }
+            else
+            {
+                offset = d.getContentStreamLength();
+                if(offset >= length || !isPrefix(d, channel, file.getName(), offset))
+                {
+                    throw new CmisRuntimeException("Document already exits " + file.getName());
+                }
+                logger.info("Resume upload of " + file.getName() + " from " + offset);
+            }
+            int retries = 0;
+            while(offset < length)
+            {
+                long size = Math.min(chunkSize, length - offset);
+                try
+                {
+                    Document appended = d.appendContentStream(chunk(session, channel, file.getName(), mimeType, offset, size),
+                            offset + size == length);
+                    d = appended != null ? appended : d;
+                    offset = offset + size;
+                    retries = 0;
+                }
+                catch(CmisNotSupportedException ns)
+                {
+                    // no append on this server, send the whole file at once
+                    d = d.setContentStream(chunk(session, channel, file.getName(), mimeType, 0, length), true);
+                    offset = length;
+                }
+                catch(CmisBaseException e)
+                {
+                    if(++retries > CHUNK_RETRIES)
+                    {
+                        throw new CmisRuntimeException("Failed to upload " + file.getName() + " at offset " + offset, e);
+                    }
+                    logger.error("Failed to upload chunk of " + file.getName() + " at offset " + offset + ", retrying", e);
+                    // continue from what the server has
+                    d = (Document) session.getObject(stripVersion(d.getId()), noCache);
+                    offset = d.getContentStreamLength();
+                }
+            }
+            cacheNodeRef(userName, siteName, cachePath, d.getName(), d.getId());
+            manifestRecorder.record(RecordType.DOCUMENT, d.getId(), d.getName(), siteName, null, userName);
+            return d;
+        }
+        catch (IOException e)
+        {
+            throw new CmisRuntimeException("Invalid file " + file.getName(), e);
+        }
+    }
+
+    /**
+     * Check that the content of a document is the beginning of a file, by comparing digests
+     */
+    private boolean isPrefix(final Document doc,
+                             final FileChannel channel,
+                             final String fileName,
+                             final long length) throws IOException
+    {
+        if(length == 0)
+        {
+            return true;
+        }
+        ContentStream content = doc.getContentStream();
+        if(content == null)
+        {
+            return false;
+        }
+        String remoteDigest = digest(content.getStream(), getMessageDigest("SHA-256"), fileName);
+        BoundedInputStream local = new BoundedInputStream(Channels.newInputStream(channel.position(0)), length);
+        local.setPropagateClose(false);
+        return remoteDigest.equals(digest(local, getMessageDigest("SHA-256"), fileName));
+    }
+
+    /**
+     * Content stream of a part of a file, read when the chunk is sent
+     */
+    private ContentStream chunk(final Session session,
+                                final FileChannel channel,
+                                final String fileName,
+                                final String mimeType,
+                                final long offset,
+                                final long size) throws IOException
+    {
+        BoundedInputStream stream = new BoundedInputStream(Channels.newInputStream(channel.position(offset)), size);
+        // the channel is closed once all the chunks are sent
+        stream.setPropagateClose(false);
+        return session.getObjectFactory().createContentStream(fileName, size, mimeType, stream);
+    }
+
     /**
      * Upload a single file in site from a location on disk.
      *
@@ -804,6 +1350,8 @@ public class ContentService extends CMISUtil
                 contentStream = session.getObjectFactory().createContentStream(fileName, file.length(), fileExtention, fileContent);
                 Folder documentLibrary = (Folder) session.getObjectByPath("/Sites/" + siteName + "/documentLibrary");
                 Document d = documentLibrary.createDocument(properties, contentStream, VersioningState.MAJOR);
+                cacheNodeRef(userName, siteName, "Sites/" + siteName + "/documentLibrary", fileName, d.getId());
+                manifestRecorder.record(RecordType.DOCUMENT, d.getId(), fileName, siteName, null, userName);
                 uploadedFiles.add(d);
             }
             catch(CmisObjectNotFoundException nf)
@@ -849,7 +1397,7 @@ public class ContentService extends CMISUtil
             throw new IllegalArgumentException(dir.getName() + " is not a directory");
         }
         Session session = getCMISSession(userName, password);
-        String folderId = getNodeRef(userName, password, siteName, folderName);
+        String folderId = getCachedNodeRef(userName, password, siteName, folderName);
         if (StringUtils.isEmpty(folderId))
         {
             throw new CmisRuntimeException("Invalid folder: " + folderName);
@@ -877,6 +1425,8 @@ public class ContentService extends CMISUtil
                 folderObj = session.getObject(folderId);
                 Folder f = (Folder)folderObj;
                 Document d = f.createDocument(properties, contentStream, VersioningState.MAJOR);
+                cacheNodeRef(userName, siteName, f.getPath(), fileName, d.getId());
+                manifestRecorder.record(RecordType.DOCUMENT, d.getId(), fileName, siteName, folderId, userName);
                 uploadedFiles.add(d);
             }
             catch(CmisObjectNotFoundException nf)
@@ -957,6 +1507,554 @@ public class ContentService extends CMISUtil
         return "";
     }
 
+    /**
+     * Open the content of a document as a stream. The content is not loaded in memory,
+     * the connection is released when the stream is closed.
+     * 
+     * @param userName login username
+     * @param password login password
+     * @param siteName site name
+     * @param docName file name
+     * @return InputStream content of the document, to be closed by the caller
+     * @throws CmisRuntimeException if the document is not found
+     */
+    public InputStream getDocumentContentStream(final String userName,
+                                                final String password,
+                                                final String siteName,
+                                                final String docName)
+    {
+        String docNodeRef = getNodeRef(userName, password, siteName, docName);
+        if(StringUtils.isEmpty(docNodeRef))
+        {
+            throw new CmisRuntimeException("Invalid content " + docName);
+        }
+        return openContentStream(userName, password, docNodeRef, docName);
+    }
+
+    private InputStream openContentStream(final String userName,
+                                          final String password,
+                                          final String docNodeRef,
+                                          final String docName)
+    {
+        final AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
+        String serviceUrl = client.getApiUrl().replace("service/", "") + "-default-/public/cmis/versions/1.1/atom/content?id=" + docNodeRef;
+        final HttpGet get = new HttpGet(serviceUrl);
+        boolean opened = false;
+        try
+        {
+            HttpResponse response = client.execute(userName, password, get);
+            if(HttpStatus.SC_OK != response.getStatusLine().getStatusCode())
+            {
+                throw new RuntimeException("Unable to read the content of " + docName + " " + response.getStatusLine());
+            }
+            InputStream stream = new FilterInputStream(response.getEntity().getContent())
+            {
+                @Override
+                public void close() throws IOException
+                {
+                    try
+                    {
+                        super.close();
+                    }
+                    finally
+                    {
+                        get.releaseConnection();
+                        client.close();
+                    }
+                }
+            };
+            opened = true;
+            return stream;
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Unable to execute request " + get, e);
+        }
+        finally
+        {
+            if(!opened)
+            {
+                get.releaseConnection();
+                client.close();
+            }
+        }
+    }
+
+    /**
+     * Write the content of a document to a channel, without loading it in memory.
+     * 
+     * @param userName login username
+     * @param password login password
+     * @param siteName site name
+     * @param docName file name
+     * @param target WritableByteChannel channel to write to, left open
+     * @return long number of bytes written
+     */
+    public long writeDocumentContent(final String userName,
+                                     final String password,
+                                     final String siteName,
+                                     final String docName,
+                                     final WritableByteChannel target)
+    {
+        InputStream stream = getDocumentContentStream(userName, password, siteName, docName);
+        try
+        {
+            ReadableByteChannel source = Channels.newChannel(stream);
+            if(target instanceof FileChannel)
+            {
+                // let the file channel pull the bytes
+                FileChannel file = (FileChannel) target;
+                long position = file.position();
+                long written = 0;
+                long count;
+                while((count = file.transferFrom(source, position + written, STREAM_BUFFER_SIZE)) > 0)
+                {
+                    written = written + count;
+                }
+                file.position(position + written);
+                return written;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+            long written = 0;
+            while(source.read(buffer) != -1)
+            {
+                buffer.flip();
+                while(buffer.hasRemaining())
+                {
+                    written = written + target.write(buffer);
+                }
+                buffer.clear();
+            }
+            return written;
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Unable to write the content of " + docName, e);
+        }
+        finally
+        {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * Save the content of a document to a local file
+     * 
+     * @param userName login username
+     * @param password login password
+     * @param siteName site name
+     * @param docName file name
+     * @param target Path file to create or replace
+     * @return long number of bytes written
+     */
+    public long writeDocumentContent(final String userName,
+                                     final String password,
+                                     final String siteName,
+                                     final String docName,
+                                     final Path target)
+    {
+        try (FileChannel file = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            return writeDocumentContent(userName, password, siteName, docName, file);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Unable to write to " + target, e);
+        }
+    }
+
+    /**
+     * Compute the digest of the content of a document while it is read, without keeping it in memory.
+     * 
+     * @param userName login username
+     * @param password login password
+     * @param siteName site name
+     * @param docName file name
+     * @param algorithm String digest algorithm (e.g. MD5, SHA-256)
+     * @return String hex encoded digest
+     */
+    public String getDocumentContentDigest(final String userName,
+                                           final String password,
+                                           final String siteName,
+                                           final String docName,
+                                           final String algorithm)
+    {
+        MessageDigest digest = getMessageDigest(algorithm);
+        return digest(getDocumentContentStream(userName, password, siteName, docName), digest, docName);
+    }
+
+    private String digest(final InputStream stream,
+                          final MessageDigest digest,
+                          final String docName)
+    {
+        try
+        {
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            int read;
+            while((read = stream.read(buffer)) != -1)
+            {
+                digest.update(buffer, 0, read);
+            }
+            return toHex(digest.digest());
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Unable to read the content of " + docName, e);
+        }
+        finally
+        {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * Compute the digest of a local file, to be compared with {@link #getDocumentContentDigest}
+     * 
+     * @param file Path local file
+     * @param algorithm String digest algorithm (e.g. MD5, SHA-256)
+     * @return String hex encoded digest
+     */
+    public static String getFileDigest(final Path file,
+                                       final String algorithm)
+    {
+        MessageDigest digest = getMessageDigest(algorithm);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+            while(channel.read(buffer) != -1)
+            {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            return toHex(digest.digest());
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Unable to read " + file, e);
+        }
+    }
+
+    /**
+     * Result of a content verification: the documents are identified by their path relative
+     * to the verified folder (e.g. sub/doc.txt)
+     */
+    public static class ContentVerification
+    {
+        private final List<String> mismatched = new ArrayList<String>();
+        private final List<String> missing = new ArrayList<String>();
+        private final List<String> extra = new ArrayList<String>();
+        private final List<String> failed = new ArrayList<String>();
+        private int verified;
+        private long verifiedBytes;
+
+        /**
+         * @return documents with a different size or digest than the local file
+         */
+        public List<String> getMismatched()
+        {
+            return mismatched;
+        }
+
+        /**
+         * @return local files that are not in the repository
+         */
+        public List<String> getMissing()
+        {
+            return missing;
+        }
+
+        /**
+         * @return documents in the repository without a local file
+         */
+        public List<String> getExtra()
+        {
+            return extra;
+        }
+
+        /**
+         * @return documents that could not be read from the repository or local files that could not be read
+         */
+        public List<String> getFailed()
+        {
+            return failed;
+        }
+
+        /**
+         * @return number of documents with the same content as the local file
+         */
+        public int getVerified()
+        {
+            return verified;
+        }
+
+        /**
+         * @return total size of the documents with the same content as the local file
+         */
+        public long getVerifiedBytes()
+        {
+            return verifiedBytes;
+        }
+
+        public boolean isValid()
+        {
+            return mismatched.isEmpty() && missing.isEmpty() && extra.isEmpty() && failed.isEmpty();
+        }
+
+        @Override
+        public String toString()
+        {
+            return verified + " verified, " + mismatched.size() + " mismatched " + mismatched + ", "
+                    + missing.size() + " missing " + missing + ", " + extra.size() + " extra " + extra + ", "
+                    + failed.size() + " failed " + failed;
+        }
+    }
+
+    /**
+     * Check that the documents of a site folder have the same content as a local directory, for example
+     * after {@link #uploadFiles}. Sub folders are compared recursively. Documents with the same size as
+     * the local file are read as a stream and their digest is compared with the digest of the local file,
+     * the comparisons run concurrently and each one keeps only a fixed size buffer in memory.
+     * 
+     * @param userName login username
+     * @param password user password
+     * @param localDir Path local directory with the source files
+     * @param siteName site name
+     * @param folderPath path of the folder in the document library, null or empty for the document library
+     * @param algorithm String digest algorithm (e.g. SHA-256)
+     * @param threads int number of documents compared at the same time
+     * @return ContentVerification mismatched, missing and extra documents
+     */
+    public ContentVerification verifyContent(final String userName,
+                                             final String password,
+                                             final Path localDir,
+                                             final String siteName,
+                                             final String folderPath,
+                                             final String algorithm,
+                                             final int threads)
+    {
+        if (StringUtils.isEmpty(userName) || StringUtils.isEmpty(password) || StringUtils.isEmpty(siteName) || localDir == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        String path = "/Sites/" + siteName + "/documentLibrary";
+        if(!StringUtils.isEmpty(folderPath))
+        {
+            path = path + "/" + StringUtils.strip(folderPath, "/");
+        }
+        return verifyContentInRepository(userName, password, localDir, path, algorithm, threads);
+    }
+
+    /**
+     * Check that the documents of a repository folder have the same content as a local directory.
+     * A document that can't be read is reported as failed and the other documents are still compared.
+     * 
+     * @param userName login username
+     * @param password user password
+     * @param localDir Path local directory with the source files
+     * @param pathInRepo path of the folder in repository (e.g. /Shared/data)
+     * @param algorithm String digest algorithm (e.g. SHA-256)
+     * @param threads int number of documents compared at the same time
+     * @return ContentVerification mismatched, missing, extra and failed documents
+     * @see #verifyContent
+     */
+    public ContentVerification verifyContentInRepository(final String userName,
+                                                         final String password,
+                                                         final Path localDir,
+                                                         final String pathInRepo,
+                                                         final String algorithm,
+                                                         final int threads)
+    {
+        if (StringUtils.isEmpty(userName) || StringUtils.isEmpty(password) || StringUtils.isEmpty(pathInRepo) || localDir == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        if (!Files.isDirectory(localDir))
+        {
+            throw new IllegalArgumentException(localDir + " is not a directory");
+        }
+        // fail before listing anything if the algorithm is not available
+        getMessageDigest(algorithm);
+        Session session = getCMISSession(userName, password);
+        Folder folder;
+        try
+        {
+            folder = (Folder) session.getObjectByPath(pathInRepo.startsWith("/") ? pathInRepo : "/" + pathInRepo);
+        }
+        catch(CmisObjectNotFoundException nf)
+        {
+            throw new CmisRuntimeException("Invalid path -> " + pathInRepo, nf);
+        }
+        OperationContext context = session.createOperationContext();
+        context.setFilterString(PropertyIds.OBJECT_ID + "," + PropertyIds.NAME + "," + PropertyIds.BASE_TYPE_ID + ","
+                + PropertyIds.CONTENT_STREAM_LENGTH);
+        context.setIncludeAcls(false);
+        context.setIncludePolicies(false);
+        context.setRenditionFilterString("cmis:none");
+        context.setMaxItemsPerPage(1000);
+        context.setCacheEnabled(false);
+        final Map<String, RemoteContent> remote = new TreeMap<String, RemoteContent>();
+        listDocuments(folder, "", context, remote);
+        final Map<String, Path> local = listFiles(localDir);
+        final ContentVerification verification = new ContentVerification();
+        List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+        final List<String> compared = new ArrayList<String>();
+        for(Map.Entry<String, Path> file : local.entrySet())
+        {
+            final String name = file.getKey();
+            final Path localFile = file.getValue();
+            final RemoteContent doc = remote.remove(name);
+            if(doc == null)
+            {
+                verification.missing.add(name);
+                continue;
+            }
+            try
+            {
+                if(Files.size(localFile) != doc.length)
+                {
+                    verification.mismatched.add(name);
+                    continue;
+                }
+            }
+            catch (IOException e)
+            {
+                logger.error("Unable to read " + localFile, e);
+                verification.failed.add(name);
+                continue;
+            }
+            compared.add(name);
+            tasks.add(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    try
+                    {
+                        String remoteDigest = digest(openContentStream(userName, password, doc.id, name), getMessageDigest(algorithm), name);
+                        return remoteDigest.equals(getFileDigest(localFile, algorithm));
+                    }
+                    catch (RuntimeException e)
+                    {
+                        logger.error("Unable to compare " + name, e);
+                        return null;
+                    }
+                }
+            });
+        }
+        verification.extra.addAll(remote.keySet());
+        List<Boolean> results = BatchExecutor.runAll(tasks, threads);
+        for(int i = 0; i < results.size(); i++)
+        {
+            String name = compared.get(i);
+            if(results.get(i) == null)
+            {
+                verification.failed.add(name);
+            }
+            else if(results.get(i))
+            {
+                verification.verified++;
+                try
+                {
+                    verification.verifiedBytes += Files.size(local.get(name));
+                }
+                catch (IOException e)
+                {
+                    logger.error("Unable to read " + local.get(name), e);
+                }
+            }
+            else
+            {
+                verification.mismatched.add(name);
+            }
+        }
+        return verification;
+    }
+
+    private void listDocuments(final Folder folder,
+                               final String prefix,
+                               final OperationContext context,
+                               final Map<String, RemoteContent> documents)
+    {
+        for(CmisObject child : folder.getChildren(context))
+        {
+            if(child instanceof Folder)
+            {
+                listDocuments((Folder) child, prefix + child.getName() + "/", context, documents);
+            }
+            else if(child instanceof Document)
+            {
+                Document doc = (Document) child;
+                documents.put(prefix + child.getName(), new RemoteContent(stripVersion(doc.getId()), doc.getContentStreamLength()));
+            }
+        }
+    }
+
+    /**
+     * Id and size of a repository document, all that is kept while listing a folder to verify
+     */
+    private static class RemoteContent
+    {
+        private final String id;
+        private final long length;
+
+        private RemoteContent(final String id,
+                              final long length)
+        {
+            this.id = id;
+            this.length = length;
+        }
+    }
+
+    private Map<String, Path> listFiles(final Path localDir)
+    {
+        final Map<String, Path> files = new TreeMap<String, Path>();
+        try
+        {
+            Files.walkFileTree(localDir, new SimpleFileVisitor<Path>()
+            {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                {
+                    if(attrs.isRegularFile())
+                    {
+                        files.put(localDir.relativize(file).toString().replace(File.separatorChar, '/'), file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Unable to list " + localDir, e);
+        }
+        return files;
+    }
+
+    private static MessageDigest getMessageDigest(final String algorithm)
+    {
+        try
+        {
+            return MessageDigest.getInstance(algorithm);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalArgumentException("Invalid digest algorithm " + algorithm, e);
+        }
+    }
+
+    private static String toHex(final byte[] bytes)
+    {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for(byte b : bytes)
+        {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
     /**
      * Update content of a document
      * @param userName login username
@@ -22,7 +22,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 
+import org.alfresco.dataprep.ManifestRecord.RecordType;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.api.Document;
 import org.apache.chemistry.opencmis.client.api.Folder;
@@ -107,6 +109,7 @@ public class DataListsService extends CMISUtil
         Map<String, Object> newProp = new HashMap<String, Object>();
         newProp.put("cm:title", listName);
         newfold.updateProperties(newProp);
+        manifestRecorder.record(RecordType.DATA_LIST, id.getId(), listName, siteName, null, userName);
         return id;
     }
     
@@ -277,11 +280,19 @@ public class DataListsService extends CMISUtil
                              final String password,
                              final ObjectId objectId,
                              Map<String, Object> propertiesMap)
+    {
+        return addItem(getCMISSession(userName, password), userName, objectId, propertiesMap);
+    }
+
+    private ObjectId addItem(final Session session,
+                             final String userName,
+                             final ObjectId objectId,
+                             final Map<String, Object> propertiesMap)
     {
         try
         {
-            Session session = getCMISSession(userName, password);
             ObjectId itemId = session.createDocument(propertiesMap, objectId, null, null);
+            manifestRecorder.record(RecordType.DATA_LIST_ITEM, itemId.getId(), null, null, objectId.getId(), userName);
             return itemId;
         }
         catch(CmisInvalidArgumentException ia)
@@ -809,7 +820,7 @@ public class DataListsService extends CMISUtil
         Session session = getCMISSession(assigner, passwordAssigner);
         for(int i = 0; i<usersToAssign.size(); i++)
         {
-            String usrNodeRef = getUserNodeRef(assigner, passwordAssigner, usersToAssign.get(i));
+            String usrNodeRef = getUserNodeRef(session, usersToAssign.get(i));
             if(StringUtils.isEmpty(usrNodeRef))
             {
                 throw new RuntimeException(usersToAssign.get(i) + " doesn't exist");
@@ -819,7 +830,263 @@ public class DataListsService extends CMISUtil
             relProps.put(PropertyIds.SOURCE_ID, assignTo.getId());
             relProps.put(PropertyIds.TARGET_ID, usrNodeRef);
             session.createRelationship(relProps);
-            session.clear();
+        }
+    }
+    
+    /**
+     * Item to be created with {@link DataListsService#addItems}
+     */
+    public static class DataListItem
+    {
+        private final String siteName;
+        private final String listTitle;
+        private final DataList type;
+        private final Map<String, Object> properties = new HashMap<String, Object>();
+        private final List<String> assignees = new ArrayList<String>();
+
+        /**
+         * @param siteName String site where the data list was created
+         * @param listTitle String data list title
+         * @param type DataList type of the list
+         */
+        public DataListItem(final String siteName,
+                            final String listTitle,
+                            final DataList type)
+        {
+            if(StringUtils.isEmpty(siteName) || StringUtils.isEmpty(listTitle) || type == null)
+            {
+                throw new IllegalArgumentException("Parameter missing");
+            }
+            this.siteName = siteName;
+            this.listTitle = listTitle;
+            this.type = type;
+        }
+
+        public String getSiteName()
+        {
+            return siteName;
+        }
+
+        public String getListTitle()
+        {
+            return listTitle;
+        }
+
+        public DataList getType()
+        {
+            return type;
+        }
+
+        public Map<String, Object> getProperties()
+        {
+            return properties;
+        }
+
+        public List<String> getAssignees()
+        {
+            return assignees;
+        }
+
+        /**
+         * @param propertyId String property id (e.g. dl:contactFirstName)
+         * @param value Object value
+         */
+        public void setProperty(final String propertyId,
+                                final Object value)
+        {
+            properties.put(propertyId, value);
+        }
+
+        /**
+         * @param title String item title (dl:todoTitle for to do items, cm:title for the others)
+         */
+        public void setTitle(final String title)
+        {
+            properties.put(DataList.TODO_LIST.equals(type) ? "dl:todoTitle" : "cm:title", title);
+        }
+
+        /**
+         * Assign a user to the item. Only task (advanced), issue and to do items have assignees.
+         * 
+         * @param userName String user name
+         */
+        public void addAssignee(final String userName)
+        {
+            if(assigneeType(type) == null)
+            {
+                throw new IllegalArgumentException(type + " items can't be assigned");
+            }
+            assignees.add(userName);
+        }
+    }
+
+    /**
+     * Create data list items of any type. The lists and the assignees are resolved once,
+     * the items are created concurrently with one session per worker and the assignees
+     * are added once all the items exist, also concurrently. An item or assignee that
+     * can't be created is logged and the other items go on.
+     * 
+     * @param userName String user name
+     * @param password String password
+     * @param items List<DataListItem> items to create
+     * @param threads int number of workers
+     * @return List<ObjectId> ids of the new items, in the same order as the items, null for the items not created
+     * @throws RuntimeException if a list or an assignee is not found
+     */
+    public List<ObjectId> addItems(final String userName,
+                                   final String password,
+                                   final List<DataListItem> items,
+                                   final int threads)
+    {
+        if(StringUtils.isEmpty(userName) || StringUtils.isEmpty(password) || items == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        if(threads < 1)
+        {
+            throw new IllegalArgumentException("Number of threads must be greater than 0");
+        }
+        Session session = getCMISSession(userName, password);
+        final Map<String, String> lists = new HashMap<String, String>();
+        final Map<String, String> users = new HashMap<String, String>();
+        for(DataListItem item : items)
+        {
+            String listKey = item.getSiteName() + "/" + item.getListTitle();
+            if(!lists.containsKey(listKey))
+            {
+                List<String> ids = getDataListIds(userName, password, item.getSiteName(), item.getListTitle());
+                if(ids.isEmpty())
+                {
+                    throw new RuntimeException("Data list " + item.getListTitle() + " doesn't exist in " + item.getSiteName());
+                }
+                lists.put(listKey, ids.get(0));
+            }
+            for(String assignee : item.getAssignees())
+            {
+                if(!users.containsKey(assignee))
+                {
+                    String usrNodeRef = getUserNodeRef(session, assignee);
+                    if(StringUtils.isEmpty(usrNodeRef))
+                    {
+                        throw new RuntimeException(assignee + " doesn't exist");
+                    }
+                    users.put(assignee, usrNodeRef);
+                }
+            }
+        }
+        final ObjectId[] itemIds = new ObjectId[items.size()];
+        final int workers = Math.max(1, Math.min(threads, items.size()));
+        // first create all the items
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for(int w = 0; w < workers; w++)
+        {
+            final int worker = w;
+            tasks.add(new Callable<Integer>()
+            {
+                @Override
+                public Integer call()
+                {
+                    Session workerSession = getCMISSession(userName, password);
+                    int created = 0;
+                    for(int i = worker; i < itemIds.length; i = i + workers)
+                    {
+                        DataListItem item = items.get(i);
+                        String listNodeRef = lists.get(item.getSiteName() + "/" + item.getListTitle());
+                        try
+                        {
+                            itemIds[i] = addItem(workerSession, userName, workerSession.createObjectId(listNodeRef), itemProperties(item));
+                            created++;
+                        }
+                        catch (RuntimeException e)
+                        {
+                            logger.error("Unable to add item " + i + " to data list " + item.getListTitle(), e);
+                        }
+                    }
+                    return created;
+                }
+            });
+        }
+        BatchExecutor.runAll(tasks, workers);
+        // then the assignee relationships
+        tasks = new ArrayList<Callable<Integer>>();
+        for(int w = 0; w < workers; w++)
+        {
+            final int worker = w;
+            tasks.add(new Callable<Integer>()
+            {
+                @Override
+                public Integer call()
+                {
+                    Session workerSession = null;
+                    int created = 0;
+                    for(int i = worker; i < itemIds.length; i = i + workers)
+                    {
+                        if(itemIds[i] == null)
+                        {
+                            continue;
+                        }
+                        DataListItem item = items.get(i);
+                        for(String assignee : item.getAssignees())
+                        {
+                            if(workerSession == null)
+                            {
+                                workerSession = getCMISSession(userName, password);
+                            }
+                            Map<String,Object> relProps = new HashMap<String, Object>();
+                            relProps.put(PropertyIds.OBJECT_TYPE_ID, assigneeType(item.getType()));
+                            relProps.put(PropertyIds.SOURCE_ID, itemIds[i].getId());
+                            relProps.put(PropertyIds.TARGET_ID, users.get(assignee));
+                            try
+                            {
+                                workerSession.createRelationship(relProps);
+                                created++;
+                            }
+                            catch (RuntimeException e)
+                            {
+                                logger.error("Unable to assign " + assignee + " to item " + itemIds[i].getId(), e);
+                            }
+                        }
+                    }
+                    return created;
+                }
+            });
+        }
+        BatchExecutor.runAll(tasks, workers);
+        List<ObjectId> result = new ArrayList<ObjectId>();
+        for(ObjectId itemId : itemIds)
+        {
+            result.add(itemId);
+        }
+        return result;
+    }
+
+    private Map<String, Object> itemProperties(final DataListItem item)
+    {
+        Map<String, Object> propertyMap = new HashMap<String, Object>(item.getProperties());
+        propertyMap.put(PropertyIds.OBJECT_TYPE_ID, "D:" + item.getType().listTypeId);
+        propertyMap.put(PropertyIds.NAME, UUID.randomUUID().toString());
+        if(propertyMap.containsKey("cm:title"))
+        {
+            // set the title with the item instead of updating it after
+            List<String> aspects = new ArrayList<String>();
+            aspects.add("P:cm:titled");
+            propertyMap.put(PropertyIds.SECONDARY_OBJECT_TYPE_IDS, aspects);
+        }
+        return propertyMap;
+    }
+
+    private static String assigneeType(final DataList type)
+    {
+        switch (type)
+        {
+            case TASKS_ADVANCED:
+                return "R:dl:taskAssignee";
+            case ISSUE_LIST:
+                return "R:dl:issueAssignedTo";
+            case TODO_LIST:
+                return "R:dl:assignee";
+            default:
+                return null;
         }
     }
 }
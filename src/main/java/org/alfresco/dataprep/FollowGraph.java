@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.dataprep;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Follow relationships between users, generated from a seed. The number of users
+ * followed by each user has a power law distribution, and the users followed are
+ * picked by popularity (Zipf distribution), so a few users have most of the followers.
+ * The users followed by a user are computed on demand from the seed and the user index,
+ * the same seed always gives the same graph and the edges are never kept in memory.
+ */
+public class FollowGraph
+{
+    private final List<String> users;
+    private final long seed;
+    private final int averageFollowing;
+    private final int maxFollowing;
+    /** user index by popularity rank */
+    private final int[] ranks;
+    /** cumulative popularity of the ranks */
+    private final double[] popularity;
+
+    /**
+     * @param users List<String> user names
+     * @param seed long seed of the graph
+     * @param averageFollowing int about the average number of users followed by a user
+     * @param exponent double popularity exponent, 1 gives a classic Zipf distribution
+     */
+    public FollowGraph(final List<String> users,
+                       final long seed,
+                       final int averageFollowing,
+                       final double exponent)
+    {
+        if(users == null || users.size() < 2)
+        {
+            throw new IllegalArgumentException("At least 2 users are required");
+        }
+        if(averageFollowing < 1)
+        {
+            throw new IllegalArgumentException("Average following must be greater than 0");
+        }
+        this.users = new ArrayList<String>(users);
+        this.seed = seed;
+        this.averageFollowing = averageFollowing;
+        this.maxFollowing = Math.max(1, (users.size() - 1) / 2);
+        int size = users.size();
+        ranks = new int[size];
+        for(int i = 0; i < size; i++)
+        {
+            ranks[i] = i;
+        }
+        Random random = new Random(seed);
+        for(int i = size - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            int rank = ranks[i];
+            ranks[i] = ranks[j];
+            ranks[j] = rank;
+        }
+        popularity = new double[size];
+        double total = 0;
+        for(int i = 0; i < size; i++)
+        {
+            total = total + 1 / Math.pow(i + 1, exponent);
+            popularity[i] = total;
+        }
+    }
+
+    public int getUserCount()
+    {
+        return users.size();
+    }
+
+    /**
+     * @param index int index of the user
+     * @return String user name
+     */
+    public String getUser(final int index)
+    {
+        return users.get(index);
+    }
+
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * @param index int index of the follower
+     * @return List<String> users followed, without duplicates and without the follower
+     */
+    public List<String> getFollowing(final int index)
+    {
+        Random random = new Random(seed * 31 + index);
+        // Pareto distribution with shape 2, its mean is the average
+        double pareto = averageFollowing / 2.0 / Math.sqrt(1 - random.nextDouble());
+        int count = (int) Math.max(1, Math.min(maxFollowing, Math.round(pareto)));
+        Set<String> following = new LinkedHashSet<String>();
+        for(int attempt = 0; following.size() < count && attempt < count * 10; attempt++)
+        {
+            int rank = Arrays.binarySearch(popularity, random.nextDouble() * popularity[popularity.length - 1]);
+            int followed = ranks[Math.min(rank < 0 ? -rank - 1 : rank, ranks.length - 1)];
+            if(followed != index)
+            {
+                following.add(users.get(followed));
+            }
+        }
+        return new ArrayList<String>(following);
+    }
+}
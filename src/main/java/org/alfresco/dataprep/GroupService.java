@@ -3,6 +3,7 @@ package org.alfresco.dataprep;
 import java.io.IOException;
 import java.util.List;
 
+import org.alfresco.dataprep.ManifestRecord.RecordType;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -31,6 +32,7 @@ public class GroupService
 {
     private static Log logger = LogFactory.getLog(GroupService.class);
     @Autowired private  AlfrescoHttpClientFactory alfrescoHttpClientFactory;
+    @Autowired private ManifestRecorder manifestRecorder;
     
     /**
      * Method to request to join a site
@@ -141,6 +143,7 @@ public class GroupService
             {
                 logger.trace("Group: " + groupName + " is created successfully");
             }
+            manifestRecorder.record(RecordType.GROUP, groupName, groupName, null, null, adminUser);
             return true;
         }      
         return false;
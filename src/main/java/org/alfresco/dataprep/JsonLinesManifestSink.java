@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.dataprep;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.json.simple.JSONObject;
+
+/**
+ * Manifest written as JSON Lines, one JSON object per created item:
+ * <pre>
+ * {"type":"DOCUMENT","id":"a1b2...","name":"doc.txt","site":"mySite","createdBy":"user","timestamp":1440000000000}
+ * </pre>
+ */
+public class JsonLinesManifestSink extends AsyncManifestSink
+{
+    private static final byte[] NEW_LINE = "\n".getBytes(StandardCharsets.UTF_8);
+
+    public JsonLinesManifestSink(final OutputStream out,
+                                 final int queueSize)
+    {
+        super(out, queueSize);
+    }
+
+    public JsonLinesManifestSink(final File file) throws FileNotFoundException
+    {
+        this(new FileOutputStream(file), 10000);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeRecord(final OutputStream out,
+                               final ManifestRecord record) throws IOException
+    {
+        JSONObject json = new JSONObject();
+        json.put("type", record.getType().name());
+        json.put("id", record.getId());
+        if(record.getName() != null)
+        {
+            json.put("name", record.getName());
+        }
+        if(record.getSiteName() != null)
+        {
+            json.put("site", record.getSiteName());
+        }
+        if(record.getParentId() != null)
+        {
+            json.put("parentId", record.getParentId());
+        }
+        if(record.getCreatedBy() != null)
+        {
+            json.put("createdBy", record.getCreatedBy());
+        }
+        json.put("timestamp", record.getTimestamp());
+        out.write(json.toJSONString().getBytes(StandardCharsets.UTF_8));
+        out.write(NEW_LINE);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.dataprep;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Map holding at most a maximum number of entries, the least recently used entry is
+ * evicted when a new one is added to a full map. It is the storage of the client side
+ * caches, which synchronize the access to it.
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class LruMap<K, V> extends LinkedHashMap<K, V>
+{
+    private static final long serialVersionUID = 1L;
+    private int maxSize;
+
+    /**
+     * @param maxSize int maximum number of entries
+     */
+    public LruMap(final int maxSize)
+    {
+        super(256, 0.75f, true);
+        setMaxSize(maxSize);
+    }
+
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * @param maxSize int maximum number of entries, the least recently used entries are evicted if there are more
+     */
+    public void setMaxSize(int maxSize)
+    {
+        if(maxSize < 1)
+        {
+            throw new IllegalArgumentException("Maximum size must be greater than 0");
+        }
+        this.maxSize = maxSize;
+        Iterator<Map.Entry<K, V>> it = entrySet().iterator();
+        while(size() > maxSize)
+        {
+            Map.Entry<K, V> eldest = it.next();
+            it.remove();
+            evicted(eldest);
+        }
+    }
+
+    /**
+     * Called when an entry is evicted, to clean up what depends on it
+     *
+     * @param eldest Map.Entry evicted entry
+     */
+    protected void evicted(Map.Entry<K, V> eldest)
+    {
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+    {
+        if(size() > maxSize)
+        {
+            evicted(eldest);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.dataprep;
+
+/**
+ * One item created by the data preparation services, as written in the manifest.
+ */
+public class ManifestRecord
+{
+    public enum RecordType
+    {
+        USER,
+        GROUP,
+        SITE,
+        FOLDER,
+        DOCUMENT,
+        DATA_LIST,
+        DATA_LIST_ITEM,
+        WORKFLOW,
+        TASK;
+    }
+
+    private final RecordType type;
+    private final String id;
+    private final String name;
+    private final String siteName;
+    private final String parentId;
+    private final String createdBy;
+    private final long timestamp;
+
+    /**
+     * @param type type of the created item
+     * @param id identifier (user name, site id, node ref, workflow or task id)
+     * @param name display name, may be null
+     * @param siteName site of the item, may be null
+     * @param parentId identifier of the parent item (e.g. workflow id of a task), may be null
+     * @param createdBy user who created the item, may be null
+     * @param timestamp creation time in milliseconds
+     */
+    public ManifestRecord(final RecordType type,
+                          final String id,
+                          final String name,
+                          final String siteName,
+                          final String parentId,
+                          final String createdBy,
+                          final long timestamp)
+    {
+        if(type == null || id == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        this.type = type;
+        this.id = id;
+        this.name = name;
+        this.siteName = siteName;
+        this.parentId = parentId;
+        this.createdBy = createdBy;
+        this.timestamp = timestamp;
+    }
+
+    public RecordType getType()
+    {
+        return type;
+    }
+
+    public String getId()
+    {
+        return id;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getSiteName()
+    {
+        return siteName;
+    }
+
+    public String getParentId()
+    {
+        return parentId;
+    }
+
+    public String getCreatedBy()
+    {
+        return createdBy;
+    }
+
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    @Override
+    public String toString()
+    {
+        return type + " " + id + (name != null ? " (" + name + ")" : "");
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.dataprep;
+
+import org.alfresco.dataprep.ManifestRecord.RecordType;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.stereotype.Service;
+@Service
+/**
+ * Emits a manifest record for every item created by the data preparation services.
+ * Nothing is recorded until a {@link ManifestSink} is set.
+ * <pre>
+ * manifestRecorder.setSink(new JsonLinesManifestSink(new File("manifest.jsonl")));
+ * ... create data ...
+ * manifestRecorder.stop();
+ * </pre>
+ */
+public class ManifestRecorder
+{
+    private static Log logger = LogFactory.getLog(ManifestRecorder.class);
+    private volatile ManifestSink sink;
+
+    public ManifestSink getSink()
+    {
+        return sink;
+    }
+
+    /**
+     * @param sink where the records are written, null to stop recording
+     */
+    public void setSink(final ManifestSink sink)
+    {
+        this.sink = sink;
+    }
+
+    public boolean isRecording()
+    {
+        return sink != null;
+    }
+
+    /**
+     * Stop recording and close the current sink.
+     */
+    public void stop()
+    {
+        ManifestSink current = sink;
+        sink = null;
+        if(current != null)
+        {
+            try
+            {
+                current.close();
+            }
+            catch (Exception e)
+            {
+                logger.error("Unable to close manifest", e);
+            }
+        }
+    }
+
+    /**
+     * Record a created item, if a sink is set.
+     *
+     * @param type type of the item
+     * @param id identifier (user name, site id, node ref, workflow or task id)
+     * @param name display name, may be null
+     * @param siteName site of the item, may be null
+     * @param parentId identifier of the parent item, may be null
+     * @param createdBy user who created the item, may be null
+     */
+    public void record(final RecordType type,
+                       final String id,
+                       final String name,
+                       final String siteName,
+                       final String parentId,
+                       final String createdBy)
+    {
+        ManifestSink current = sink;
+        if(current == null || id == null)
+        {
+            return;
+        }
+        try
+        {
+            current.write(new ManifestRecord(type, CMISUtil.stripVersion(id), name, siteName, parentId, createdBy, System.currentTimeMillis()));
+        }
+        catch (RuntimeException e)
+        {
+            logger.error("Unable to record " + type + " " + id + " in manifest", e);
+        }
+    }
+}
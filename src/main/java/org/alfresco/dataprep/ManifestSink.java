@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.dataprep;
+
+import java.io.Closeable;
+
+/**
+ * Destination of the manifest records emitted by the data preparation services.
+ */
+public interface ManifestSink extends Closeable
+{
+    /**
+     * Add a record to the manifest.
+     *
+     * @param record {@link ManifestRecord} record to write
+     */
+    void write(ManifestRecord record);
+
+    /**
+     * Wait until all the records written so far are stored.
+     */
+    void flush();
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.dataprep;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Bounded cache of resolved node refs, shared by the CMIS based services.
+ * Entries are kept by (site, content name) and by repository path for the user that
+ * resolved them, so a node is never served to a user that could not find it. The least
+ * recently used entries are evicted once the maximum size is reached.
+ */
+public class NodeRefCache
+{
+    private static final String SITE_KEY = "site:";
+    private static final String PATH_KEY = "path:";
+    /** separates the user from the site or path, not allowed in content names */
+    private static final String USER_KEY = "|";
+    private final LruMap<String, String> entries = new LruMap<String, String>(10000);
+
+    public synchronized int getMaxSize()
+    {
+        return entries.getMaxSize();
+    }
+
+    public synchronized void setMaxSize(int maxSize)
+    {
+        entries.setMaxSize(maxSize);
+    }
+
+    /**
+     * Get the cached node ref of a site content
+     *
+     * @param userName user looking for the content
+     * @param siteName site name
+     * @param contentName file or folder name
+     * @return String node ref or null if not cached for the user
+     */
+    public synchronized String get(final String userName,
+                                   final String siteName,
+                                   final String contentName)
+    {
+        return entries.get(siteKey(siteName, contentName) + userKey(userName));
+    }
+
+    /**
+     * Get the cached node ref of a content by path
+     *
+     * @param userName user looking for the content
+     * @param pathToContent path to item (e.g. Sites/siteId/documentLibrary/doc.txt)
+     * @return String node ref or null if not cached for the user
+     */
+    public synchronized String getByPath(final String userName,
+                                         final String pathToContent)
+    {
+        return entries.get(pathKey(pathToContent) + userKey(userName));
+    }
+
+    /**
+     * Cache the node ref of a site content
+     *
+     * @param userName user that resolved the content
+     * @param siteName site name
+     * @param contentName file or folder name
+     * @param nodeRef node ref
+     */
+    public synchronized void put(final String userName,
+                                 final String siteName,
+                                 final String contentName,
+                                 final String nodeRef)
+    {
+        if(StringUtils.isEmpty(userName) || StringUtils.isEmpty(siteName) || StringUtils.isEmpty(contentName) || StringUtils.isEmpty(nodeRef))
+        {
+            return;
+        }
+        entries.put(siteKey(siteName, contentName) + userKey(userName), CMISUtil.stripVersion(nodeRef));
+    }
+
+    /**
+     * Cache the node refs of many contents of a site
+     *
+     * @param userName user that resolved the contents
+     * @param siteName site name
+     * @param nodeRefs Map node ref by file or folder name
+     */
+    public synchronized void putAll(final String userName,
+                                    final String siteName,
+                                    final Map<String, String> nodeRefs)
+    {
+        for(Map.Entry<String, String> entry : nodeRefs.entrySet())
+        {
+            put(userName, siteName, entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Cache the node ref of a content by path
+     *
+     * @param userName user that resolved the content
+     * @param pathToContent path to item (e.g. Shared/doc.txt)
+     * @param nodeRef node ref
+     */
+    public synchronized void putPath(final String userName,
+                                     final String pathToContent,
+                                     final String nodeRef)
+    {
+        if(StringUtils.isEmpty(userName) || StringUtils.isEmpty(pathToContent) || StringUtils.isEmpty(nodeRef))
+        {
+            return;
+        }
+        entries.put(pathKey(pathToContent) + userKey(userName), CMISUtil.stripVersion(nodeRef));
+    }
+
+    /**
+     * Remove the node ref cached for a site content, for all the users
+     *
+     * @param siteName site name
+     * @param contentName file or folder name
+     */
+    public synchronized void remove(final String siteName,
+                                    final String contentName)
+    {
+        removeValues(removeKeys(siteKey(siteName, contentName) + USER_KEY));
+    }
+
+    /**
+     * Remove the node ref cached for a path and every path under it, for all the users
+     *
+     * @param pathToContent path to item
+     */
+    public synchronized void removePath(final String pathToContent)
+    {
+        String key = pathKey(pathToContent);
+        removeValues(removeKeys(key + USER_KEY));
+        removeKeys(key + "/");
+    }
+
+    /**
+     * Remove all the entries pointing to a node ref
+     *
+     * @param nodeRef node ref
+     */
+    public synchronized void removeNodeRef(final String nodeRef)
+    {
+        if(StringUtils.isEmpty(nodeRef))
+        {
+            return;
+        }
+        removeValue(CMISUtil.stripVersion(nodeRef));
+    }
+
+    /**
+     * Remove all the entries pointing to any of the node refs, in a single pass
+     *
+     * @param nodeRefs node refs
+     */
+    public synchronized void removeNodeRefs(final Collection<String> nodeRefs)
+    {
+        Set<String> removed = new HashSet<String>();
+        for(String nodeRef : nodeRefs)
+        {
+            if(!StringUtils.isEmpty(nodeRef))
+            {
+                removed.add(CMISUtil.stripVersion(nodeRef));
+            }
+        }
+        removeValues(removed);
+    }
+
+    /**
+     * Remove all the entries of a site (site contents and paths under the site)
+     *
+     * @param siteName site name
+     */
+    public synchronized void removeSite(final String siteName)
+    {
+        String sitePrefix = SITE_KEY + StringUtils.lowerCase(siteName) + "/";
+        String pathPrefix = pathKey("Sites/" + siteName) + "/";
+        Iterator<String> it = entries.keySet().iterator();
+        while(it.hasNext())
+        {
+            String key = it.next();
+            if(key.startsWith(sitePrefix) || key.startsWith(pathPrefix))
+            {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    private void removeValue(final String nodeRef)
+    {
+        removeValues(Collections.singleton(nodeRef));
+    }
+
+    private void removeValues(final Set<String> nodeRefs)
+    {
+        if(nodeRefs.isEmpty())
+        {
+            return;
+        }
+        Iterator<String> it = entries.values().iterator();
+        while(it.hasNext())
+        {
+            if(nodeRefs.contains(it.next()))
+            {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove the entries with a key starting with the prefix
+     *
+     * @return Set<String> node refs of the removed entries
+     */
+    private Set<String> removeKeys(final String prefix)
+    {
+        Set<String> removed = new HashSet<String>();
+        Iterator<Map.Entry<String, String>> it = entries.entrySet().iterator();
+        while(it.hasNext())
+        {
+            Map.Entry<String, String> entry = it.next();
+            if(entry.getKey().startsWith(prefix))
+            {
+                removed.add(entry.getValue());
+                it.remove();
+            }
+        }
+        return removed;
+    }
+
+    private String siteKey(final String siteName,
+                           final String contentName)
+    {
+        return SITE_KEY + StringUtils.lowerCase(siteName) + "/" + StringUtils.lowerCase(contentName);
+    }
+
+    private String userKey(final String userName)
+    {
+        return USER_KEY + StringUtils.lowerCase(userName);
+    }
+
+    private String pathKey(final String pathToContent)
+    {
+        return PATH_KEY + StringUtils.strip(pathToContent, "/");
+    }
+}
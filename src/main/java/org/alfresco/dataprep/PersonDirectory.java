@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.dataprep;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Directory of the person node refs by user name, used to resolve users
+ * without a query. It is filled in bulk by {@link CMISUtil#loadPersonDirectory},
+ * by the lookups and by {@link UserService} when users are created or deleted.
+ * Only the node id is kept, the store prefix is added back on read.
+ */
+public class PersonDirectory
+{
+    private static final String STORE = "workspace://SpacesStore/";
+    private final LruMap<String, String> entries = new LruMap<String, String>(100000);
+
+    public synchronized int getMaxSize()
+    {
+        return entries.getMaxSize();
+    }
+
+    public synchronized void setMaxSize(int maxSize)
+    {
+        entries.setMaxSize(maxSize);
+    }
+
+    /**
+     * @param userName user name
+     * @return String node ref of the person (workspace://SpacesStore/id) or null if unknown
+     */
+    public synchronized String get(final String userName)
+    {
+        String id = entries.get(key(userName));
+        return id == null ? null : STORE + id;
+    }
+
+    /**
+     * @param userName user name
+     * @param nodeRef node ref or node id of the person
+     */
+    public synchronized void put(final String userName,
+                                 final String nodeRef)
+    {
+        if(StringUtils.isEmpty(userName) || StringUtils.isEmpty(nodeRef))
+        {
+            return;
+        }
+        entries.put(key(userName), StringUtils.removeStart(nodeRef, STORE));
+    }
+
+    /**
+     * @param userName user name
+     */
+    public synchronized void remove(final String userName)
+    {
+        entries.remove(key(userName));
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    private String key(final String userName)
+    {
+        return StringUtils.lowerCase(userName);
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.dataprep;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Client side index of the tasks of the workflow processes, filled from the
+ * process tasks listings and kept up to date by the task operations of {@link WorkflowService}.
+ * The least recently used processes are evicted once the maximum size is reached.
+ */
+public class ProcessTaskIndex
+{
+    private final Map<String, String> taskProcesses = new HashMap<String, String>();
+    private final LruMap<String, List<TaskEntry>> processes = new LruMap<String, List<TaskEntry>>(10000)
+    {
+        private static final long serialVersionUID = 1L;
+        @Override
+        protected void evicted(Map.Entry<String, List<TaskEntry>> eldest)
+        {
+            removeTaskIds(eldest.getValue());
+        }
+    };
+
+    /**
+     * Task of a workflow process as returned by the tasks listing
+     */
+    public static class TaskEntry
+    {
+        private final String id;
+        private final String assignee;
+        private final String state;
+
+        public TaskEntry(final String id,
+                         final String assignee,
+                         final String state)
+        {
+            this.id = id;
+            this.assignee = assignee;
+            this.state = state;
+        }
+
+        public String getId()
+        {
+            return id;
+        }
+
+        public String getAssignee()
+        {
+            return assignee;
+        }
+
+        public String getState()
+        {
+            return state;
+        }
+
+        /**
+         * @param user user name
+         * @return true if the task is assigned to the user or waiting in the pool
+         */
+        public boolean isAvailableTo(final String user)
+        {
+            return (!StringUtils.isEmpty(assignee) && assignee.equals(user)) || "unclaimed".equals(state);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if(!(obj instanceof TaskEntry))
+            {
+                return false;
+            }
+            TaskEntry other = (TaskEntry) obj;
+            return StringUtils.equals(id, other.id)
+                    && StringUtils.equals(assignee, other.assignee)
+                    && StringUtils.equals(state, other.state);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return id == null ? 0 : id.hashCode();
+        }
+
+        @Override
+        public String toString()
+        {
+            return id + " (" + state + ", " + assignee + ")";
+        }
+    }
+
+    public synchronized int getMaxSize()
+    {
+        return processes.getMaxSize();
+    }
+
+    public synchronized void setMaxSize(int maxSize)
+    {
+        processes.setMaxSize(maxSize);
+    }
+
+    /**
+     * Replace the tasks of a process
+     *
+     * @param processId workflow id
+     * @param tasks tasks of the process
+     */
+    public synchronized void putTasks(final String processId,
+                                      final List<TaskEntry> tasks)
+    {
+        if(StringUtils.isEmpty(processId) || tasks == null)
+        {
+            return;
+        }
+        List<TaskEntry> old = processes.remove(processId);
+        if(old != null)
+        {
+            removeTaskIds(old);
+        }
+        processes.put(processId, new ArrayList<TaskEntry>(tasks));
+        for(TaskEntry task : tasks)
+        {
+            taskProcesses.put(task.getId(), processId);
+        }
+    }
+
+    /**
+     * @param processId workflow id
+     * @return copy of the indexed tasks of the process, null if the process is not indexed
+     */
+    public synchronized List<TaskEntry> getTasks(final String processId)
+    {
+        List<TaskEntry> tasks = processes.get(processId);
+        return tasks == null ? null : new ArrayList<TaskEntry>(tasks);
+    }
+
+    /**
+     * Find the task of a process assigned to the user or waiting in the pool
+     *
+     * @param processId workflow id
+     * @param user user name
+     * @return TaskEntry task or null if not found in the index
+     */
+    public synchronized TaskEntry findTask(final String processId,
+                                           final String user)
+    {
+        List<TaskEntry> tasks = processes.get(processId);
+        if(tasks != null)
+        {
+            for(TaskEntry task : tasks)
+            {
+                if(task.isAvailableTo(user))
+                {
+                    return task;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Update the assignee and the state of an indexed task
+     *
+     * @param taskId task id
+     * @param assignee new assignee, null if the task is in the pool
+     * @param state new state
+     */
+    public synchronized void updateTask(final String taskId,
+                                        final String assignee,
+                                        final String state)
+    {
+        List<TaskEntry> tasks = processes.get(taskProcesses.get(taskId));
+        if(tasks == null)
+        {
+            return;
+        }
+        for(int i = 0; i < tasks.size(); i++)
+        {
+            if(tasks.get(i).getId().equals(taskId))
+            {
+                tasks.set(i, new TaskEntry(taskId, assignee, state));
+            }
+        }
+    }
+
+    /**
+     * Remove the process of a task, used once the task is completed
+     * and the process moved to tasks that are not known yet.
+     *
+     * @param taskId task id
+     */
+    public synchronized void removeTaskProcess(final String taskId)
+    {
+        String processId = taskProcesses.get(taskId);
+        if(processId != null)
+        {
+            removeProcess(processId);
+        }
+    }
+
+    /**
+     * @param processId workflow id
+     */
+    public synchronized void removeProcess(final String processId)
+    {
+        List<TaskEntry> tasks = processes.remove(processId);
+        if(tasks != null)
+        {
+            removeTaskIds(tasks);
+        }
+    }
+
+    /**
+     * Compare the indexed tasks of a process with the tasks returned by the server.
+     *
+     * @param processId workflow id
+     * @param serverTasks tasks listed from the server
+     * @return true if the process is not indexed or the index has the same tasks
+     */
+    public synchronized boolean matches(final String processId,
+                                        final List<TaskEntry> serverTasks)
+    {
+        List<TaskEntry> tasks = processes.get(processId);
+        if(tasks == null)
+        {
+            return true;
+        }
+        return new HashSet<TaskEntry>(tasks).equals(new HashSet<TaskEntry>(serverTasks));
+    }
+
+    public synchronized void clear()
+    {
+        processes.clear();
+        taskProcesses.clear();
+    }
+
+    public synchronized int size()
+    {
+        return processes.size();
+    }
+
+    private void removeTaskIds(final List<TaskEntry> tasks)
+    {
+        for(TaskEntry task : tasks)
+        {
+            taskProcesses.remove(task.getId());
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.dataprep;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.json.simple.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+@Service
+/**
+ * Probes the Alfresco server once and keeps its version, edition and the
+ * available APIs, so services can check a feature without a request.
+ * Probes are anonymous: an endpoint that answers 401 is present, 404 means it is missing.
+ * A probe that could not read the version is kept for a short time before probing again.
+ */
+public class ServerCapabilities
+{
+    private static Log logger = LogFactory.getLog(ServerCapabilities.class);
+    private static final Pattern VERSION = Pattern.compile("(\\d+)\\.(\\d+)");
+    @Autowired private AlfrescoHttpClientFactory alfrescoHttpClientFactory;
+    private final ConcurrentMap<String, Probe> endpoints = new ConcurrentHashMap<String, Probe>();
+    private long failedProbeTtlMs = 60000;
+
+    public enum Feature
+    {
+        /** Site invitations are accepted by the server (5.1 and later) */
+        INVITE_AUTO_ACCEPT,
+        CMIS_BROWSER_BINDING,
+        CMIS_ATOM_BINDING,
+        PUBLIC_API,
+        WORKFLOW_API,
+        RECORDS_MANAGEMENT;
+    }
+
+    /**
+     * Result of the probe of one server
+     */
+    public static class Capabilities
+    {
+        private final String version;
+        private final String edition;
+        private final int major;
+        private final int minor;
+        private final Set<Feature> features;
+
+        public Capabilities(final String version,
+                            final String edition,
+                            final Set<Feature> features)
+        {
+            this.version = version;
+            this.edition = edition;
+            Matcher matcher = VERSION.matcher(version == null ? "" : version);
+            if(matcher.find())
+            {
+                major = Integer.parseInt(matcher.group(1));
+                minor = Integer.parseInt(matcher.group(2));
+            }
+            else
+            {
+                major = 0;
+                minor = 0;
+            }
+            this.features = EnumSet.noneOf(Feature.class);
+            this.features.addAll(features);
+            if(isAtLeast(5, 1))
+            {
+                this.features.add(Feature.INVITE_AUTO_ACCEPT);
+            }
+        }
+
+        /**
+         * @return String full version (e.g. 5.1.0 (r123-b45))
+         */
+        public String getVersion()
+        {
+            return version;
+        }
+
+        /**
+         * @return String edition (Enterprise or Community)
+         */
+        public String getEdition()
+        {
+            return edition;
+        }
+
+        public int getMajor()
+        {
+            return major;
+        }
+
+        public int getMinor()
+        {
+            return minor;
+        }
+
+        public boolean isEnterprise()
+        {
+            return "Enterprise".equalsIgnoreCase(edition);
+        }
+
+        public boolean isAtLeast(final int major,
+                                 final int minor)
+        {
+            return this.major > major || (this.major == major && this.minor >= minor);
+        }
+
+        public boolean supports(final Feature feature)
+        {
+            return features.contains(feature);
+        }
+
+        @Override
+        public String toString()
+        {
+            return version + " " + edition + " " + features;
+        }
+    }
+
+    /**
+     * Probed capabilities and the time they are kept until
+     */
+    private static class Probe
+    {
+        private final Capabilities capabilities;
+        private final long expires;
+
+        private Probe(final Capabilities capabilities,
+                      final long expires)
+        {
+            this.capabilities = capabilities;
+            this.expires = expires;
+        }
+    }
+
+    public long getFailedProbeTtlMs()
+    {
+        return failedProbeTtlMs;
+    }
+
+    /**
+     * @param failedProbeTtlMs time a probe that could not read the server version is kept
+     */
+    public void setFailedProbeTtlMs(long failedProbeTtlMs)
+    {
+        if(failedProbeTtlMs < 0)
+        {
+            throw new IllegalArgumentException("Time to live must not be negative");
+        }
+        this.failedProbeTtlMs = failedProbeTtlMs;
+    }
+
+    /**
+     * Get the capabilities of the configured server, probed on first use.
+     *
+     * @return Capabilities server capabilities
+     */
+    public Capabilities getCapabilities()
+    {
+        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
+        try
+        {
+            String endpoint = client.getAlfrescoUrl();
+            Probe probe = endpoints.get(endpoint);
+            if(probe == null || probe.expires < System.currentTimeMillis())
+            {
+                Capabilities capabilities = probe(client);
+                long expires = capabilities.getMajor() > 0 ? Long.MAX_VALUE : System.currentTimeMillis() + failedProbeTtlMs;
+                probe = new Probe(capabilities, expires);
+                endpoints.put(endpoint, probe);
+            }
+            return probe.capabilities;
+        }
+        finally
+        {
+            client.close();
+        }
+    }
+
+    /**
+     * Check a feature of the configured server
+     *
+     * @param feature Feature
+     * @return true if the server supports the feature
+     */
+    public boolean supports(final Feature feature)
+    {
+        return getCapabilities().supports(feature);
+    }
+
+    /**
+     * @param major int major version
+     * @param minor int minor version
+     * @return true if the server version is equal or greater
+     */
+    public boolean isAtLeast(final int major,
+                             final int minor)
+    {
+        return getCapabilities().isAtLeast(major, minor);
+    }
+
+    /**
+     * Forget the probed servers, the next call probes again.
+     */
+    public void refresh()
+    {
+        endpoints.clear();
+    }
+
+    private Capabilities probe(final AlfrescoHttpClient client)
+    {
+        String version = "";
+        String edition = "";
+        HttpGet get = new HttpGet(client.getApiUrl() + "server");
+        try
+        {
+            HttpResponse response = client.execute("", "", get);
+            if(HttpStatus.SC_OK == response.getStatusLine().getStatusCode())
+            {
+                JSONObject data = (JSONObject) client.readStream(response.getEntity()).get("data");
+                version = (String) data.get("version");
+                edition = (String) data.get("edition");
+            }
+        }
+        catch (RuntimeException e)
+        {
+            // server not reachable, no need to probe the features
+            logger.error("Unable to read the version of " + client.getAlfrescoUrl(), e);
+            return new Capabilities(version, edition, EnumSet.noneOf(Feature.class));
+        }
+        finally
+        {
+            get.releaseConnection();
+        }
+        Set<Feature> features = EnumSet.noneOf(Feature.class);
+        String publicApi = client.getAlfrescoUrl() + "alfresco/api/-default-/public/";
+        addIfPresent(client, publicApi + "cmis/versions/1.1/browser", Feature.CMIS_BROWSER_BINDING, features);
+        addIfPresent(client, publicApi + "cmis/versions/1.1/atom", Feature.CMIS_ATOM_BINDING, features);
+        addIfPresent(client, publicApi + "alfresco/versions/1/sites", Feature.PUBLIC_API, features);
+        addIfPresent(client, publicApi + "workflow/versions/1/processes", Feature.WORKFLOW_API, features);
+        addIfPresent(client, client.getApiUrl() + "rma/admin/rmroles", Feature.RECORDS_MANAGEMENT, features);
+        Capabilities capabilities = new Capabilities(version, edition, features);
+        logger.info("Server " + client.getAlfrescoUrl() + ": " + capabilities);
+        return capabilities;
+    }
+
+    private void addIfPresent(final AlfrescoHttpClient client,
+                              final String url,
+                              final Feature feature,
+                              final Set<Feature> features)
+    {
+        HttpGet get = new HttpGet(url);
+        try
+        {
+            HttpResponse response = client.execute("", "", get);
+            int status = response.getStatusLine().getStatusCode();
+            if(status != HttpStatus.SC_NOT_FOUND && status < HttpStatus.SC_INTERNAL_SERVER_ERROR)
+            {
+                features.add(feature);
+            }
+        }
+        catch (RuntimeException e)
+        {
+            logger.error("Unable to probe " + url, e);
+        }
+        finally
+        {
+            get.releaseConnection();
+        }
+    }
+}
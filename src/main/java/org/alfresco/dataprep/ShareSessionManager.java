@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.dataprep;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.util.EntityUtils;
+import org.json.simple.JSONObject;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+@Service
+/**
+ * Keeps one logged in Share session per user. The session cookie (JSESSIONID)
+ * and the CSRF token are reused by all the Share calls of the user, the session
+ * is renewed with a new login when Share rejects it. The least recently used
+ * sessions are closed once the maximum number of sessions is reached.
+ */
+public class ShareSessionManager implements DisposableBean
+{
+    private static Log logger = LogFactory.getLog(ShareSessionManager.class);
+    public static final String CSRF_TOKEN = "Alfresco-CSRFToken";
+    @Autowired private AlfrescoHttpClientFactory alfrescoHttpClientFactory;
+    private int maxSessions = 100;
+    /** sessions by user, in access order */
+    private final Map<String, ShareSession> sessions = new LinkedHashMap<String, ShareSession>(16, 0.75f, true);
+
+    /**
+     * Share session of a user. Posts share the read lock, login and close take
+     * the write lock so the cookies are never cleared under a running post.
+     */
+    private class ShareSession
+    {
+        private final String userName;
+        private final String password;
+        private final String serverUrl;
+        private final String shareUrl;
+        private final BasicCookieStore cookies = new BasicCookieStore();
+        private final CloseableHttpClient client;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        /** incremented by each login, a rejected post renews only the login it used */
+        private volatile int login;
+        private boolean closed;
+
+        private ShareSession(final String userName,
+                             final String password)
+        {
+            this.userName = userName;
+            this.password = password;
+            this.serverUrl = String.format("%s://%s:%d/", alfrescoHttpClientFactory.getScheme(),
+                    alfrescoHttpClientFactory.getHost(), alfrescoHttpClientFactory.getPort());
+            this.shareUrl = serverUrl + "share/";
+            this.client = HttpClientBuilder.create().setDefaultCookieStore(cookies).build();
+        }
+
+        /**
+         * Login if the session has no login yet, or if the login used by a rejected post is still the current one
+         *
+         * @param rejectedLogin login of the rejected post, 0 for the first login
+         */
+        private void login(final int rejectedLogin)
+        {
+            if(login != rejectedLogin)
+            {
+                return;
+            }
+            lock.writeLock().lock();
+            try
+            {
+                checkOpen();
+                if(login != rejectedLogin)
+                {
+                    return;
+                }
+                cookies.clear();
+                HttpPost post = new HttpPost(shareUrl + "page/dologin");
+                List<NameValuePair> formParams = new ArrayList<NameValuePair>();
+                formParams.add(new BasicNameValuePair("username", userName));
+                formParams.add(new BasicNameValuePair("password", password));
+                formParams.add(new BasicNameValuePair("success", "/share/page/user/" + userName + "/dashboard"));
+                formParams.add(new BasicNameValuePair("failure", "/share/page/type/login?error=true"));
+                HttpGet get = new HttpGet(shareUrl + "page/user/" + userName + "/dashboard");
+                try
+                {
+                    post.setEntity(new UrlEncodedFormEntity(formParams, AlfrescoHttpClient.UTF_8_ENCODING));
+                    HttpResponse response = client.execute(post);
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    String location = response.getFirstHeader("Location") != null ? response.getFirstHeader("Location").getValue() : "";
+                    if(HttpStatus.SC_MOVED_TEMPORARILY != response.getStatusLine().getStatusCode() || location.contains("error=true"))
+                    {
+                        throw new RuntimeException("Failed to login in share with user " + userName);
+                    }
+                    // the dashboard sets the CSRF token cookie
+                    response = client.execute(get);
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    login++;
+                    if(logger.isTraceEnabled())
+                    {
+                        logger.trace("Share session created for " + userName);
+                    }
+                }
+                catch (IOException e)
+                {
+                    throw new RuntimeException("Failed to execute the request", e);
+                }
+                finally
+                {
+                    post.releaseConnection();
+                    get.releaseConnection();
+                }
+            }
+            finally
+            {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private String getCsrfToken()
+        {
+            for(Cookie cookie : cookies.getCookies())
+            {
+                if(CSRF_TOKEN.equals(cookie.getName()))
+                {
+                    try
+                    {
+                        return URLDecoder.decode(cookie.getValue(), AlfrescoHttpClient.UTF_8_ENCODING);
+                    }
+                    catch (UnsupportedEncodingException e)
+                    {
+                        return cookie.getValue();
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return int[] response status code and login used by the post
+         */
+        private int[] post(final String path,
+                           final JSONObject body) throws IOException
+        {
+            lock.readLock().lock();
+            HttpPost post = new HttpPost(serverUrl + path);
+            try
+            {
+                checkOpen();
+                StringEntity se = new StringEntity(body.toJSONString(), AlfrescoHttpClient.UTF_8_ENCODING);
+                se.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, AlfrescoHttpClient.MIME_TYPE_JSON));
+                post.setEntity(se);
+                String token = getCsrfToken();
+                if(token != null)
+                {
+                    post.setHeader(CSRF_TOKEN, token);
+                }
+                post.setHeader("Referer", shareUrl);
+                HttpResponse response = client.execute(post);
+                EntityUtils.consumeQuietly(response.getEntity());
+                return new int[] { response.getStatusLine().getStatusCode(), login };
+            }
+            finally
+            {
+                post.releaseConnection();
+                lock.readLock().unlock();
+            }
+        }
+
+        private void checkOpen()
+        {
+            if(closed)
+            {
+                throw new IllegalStateException("Share session of " + userName + " is closed");
+            }
+        }
+
+        /**
+         * Close the session once the running posts are done
+         */
+        private void close()
+        {
+            lock.writeLock().lock();
+            try
+            {
+                closed = true;
+                client.close();
+            }
+            catch (IOException e)
+            {
+                logger.error("Unable to close share session of " + userName, e);
+            }
+            finally
+            {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public int getMaxSessions()
+    {
+        return maxSessions;
+    }
+
+    /**
+     * @param maxSessions maximum number of open sessions, the least recently used are closed
+     */
+    public void setMaxSessions(int maxSessions)
+    {
+        if(maxSessions < 1)
+        {
+            throw new IllegalArgumentException("Number of sessions must be greater than 0");
+        }
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Post a JSON body to Share using the session of the user. The user is logged in
+     * on the first call, and logged in again if Share rejects the session.
+     *
+     * @param userName String user name
+     * @param password String password
+     * @param path String path relative to the server, as the {@link DashboardCustomization} urls
+     * (e.g. share/service/components/dashboard/customise-dashboard)
+     * @param body JSONObject body
+     * @return int response status code
+     */
+    public int post(final String userName,
+                    final String password,
+                    final String path,
+                    final JSONObject body)
+    {
+        if(StringUtils.isEmpty(userName) || StringUtils.isEmpty(password) || StringUtils.isEmpty(path) || body == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        try
+        {
+            try
+            {
+                return post(getSession(userName, password), path, body);
+            }
+            catch (IllegalStateException e)
+            {
+                // the session was closed (evicted or invalidated) while in use, post again with a new one
+                return post(getSession(userName, password), path, body);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Failed to execute the request", e);
+        }
+    }
+
+    /**
+     * Close the Share session of a user
+     *
+     * @param userName String user name
+     */
+    public void invalidate(final String userName)
+    {
+        ShareSession session;
+        synchronized (sessions)
+        {
+            session = sessions.remove(userName);
+        }
+        if(session != null)
+        {
+            session.close();
+        }
+    }
+
+    /**
+     * Close all the Share sessions
+     */
+    public void invalidateAll()
+    {
+        List<ShareSession> closed;
+        synchronized (sessions)
+        {
+            closed = new ArrayList<ShareSession>(sessions.values());
+            sessions.clear();
+        }
+        for(ShareSession session : closed)
+        {
+            session.close();
+        }
+    }
+
+    /**
+     * @return int number of open sessions
+     */
+    public int size()
+    {
+        synchronized (sessions)
+        {
+            return sessions.size();
+        }
+    }
+
+    @Override
+    public void destroy()
+    {
+        invalidateAll();
+    }
+
+    private int post(final ShareSession session,
+                     final String path,
+                     final JSONObject body) throws IOException
+    {
+        int[] result = session.post(path, body);
+        if(isSessionRejected(result[0]))
+        {
+            session.login(result[1]);
+            result = session.post(path, body);
+        }
+        return result[0];
+    }
+
+    /**
+     * Get the logged in session of the user, a new session is opened if the user has none
+     * or the password changed. Sessions over the maximum are closed outside of the map lock.
+     */
+    private ShareSession getSession(final String userName,
+                                    final String password)
+    {
+        List<ShareSession> closed = new ArrayList<ShareSession>();
+        ShareSession session;
+        synchronized (sessions)
+        {
+            session = sessions.get(userName);
+            if(session != null && !session.password.equals(password))
+            {
+                sessions.remove(userName);
+                closed.add(session);
+                session = null;
+            }
+            if(session == null)
+            {
+                session = new ShareSession(userName, password);
+                sessions.put(userName, session);
+                Iterator<ShareSession> eldest = sessions.values().iterator();
+                while(sessions.size() > maxSessions)
+                {
+                    closed.add(eldest.next());
+                    eldest.remove();
+                }
+            }
+        }
+        for(ShareSession old : closed)
+        {
+            old.close();
+        }
+        session.login(0);
+        return session;
+    }
+
+    private boolean isSessionRejected(final int status)
+    {
+        return status == HttpStatus.SC_UNAUTHORIZED
+                || status == HttpStatus.SC_MOVED_TEMPORARILY
+                || status == HttpStatus.SC_SEE_OTHER;
+    }
+}
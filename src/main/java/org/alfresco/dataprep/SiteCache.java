@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.dataprep;
+
+import java.util.Iterator;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Short lived cache of site existence and visibility, used by the write operations
+ * to check the site without a request. Sites that are not private are visible to
+ * every user, so they are cached once for all the users. Private sites and sites that
+ * were not found are cached for the user that checked them.
+ */
+public class SiteCache
+{
+    private static final String PRIVATE = "PRIVATE";
+    private long ttlMs = 30000;
+    private final LruMap<String, Entry> entries = new LruMap<String, Entry>(10000);
+
+    private static class Entry
+    {
+        private final boolean exists;
+        private final String visibility;
+        private final long expires;
+
+        private Entry(final boolean exists,
+                      final String visibility,
+                      final long expires)
+        {
+            this.exists = exists;
+            this.visibility = visibility;
+            this.expires = expires;
+        }
+    }
+
+    public long getTtlMs()
+    {
+        return ttlMs;
+    }
+
+    /**
+     * @param ttlMs time an entry is kept, 0 disables the cache
+     */
+    public void setTtlMs(long ttlMs)
+    {
+        if(ttlMs < 0)
+        {
+            throw new IllegalArgumentException("Time to live must not be negative");
+        }
+        this.ttlMs = ttlMs;
+    }
+
+    public synchronized int getMaxSize()
+    {
+        return entries.getMaxSize();
+    }
+
+    public synchronized void setMaxSize(int maxSize)
+    {
+        entries.setMaxSize(maxSize);
+    }
+
+    /**
+     * @param siteId site identifier
+     * @param userName user checking the site
+     * @return Boolean true or false if the site existence is cached, null if unknown
+     */
+    public synchronized Boolean exists(final String siteId,
+                                       final String userName)
+    {
+        Entry entry = getEntry(sharedKey(siteId));
+        if(entry == null)
+        {
+            entry = getEntry(userKey(siteId, userName));
+        }
+        return entry == null ? null : entry.exists;
+    }
+
+    /**
+     * @param siteId site identifier
+     * @param userName user checking the site
+     * @return String cached visibility of the site, null if unknown or the site doesn't exist
+     */
+    public synchronized String getVisibility(final String siteId,
+                                             final String userName)
+    {
+        Entry entry = getEntry(sharedKey(siteId));
+        if(entry == null)
+        {
+            entry = getEntry(userKey(siteId, userName));
+        }
+        return entry == null ? null : entry.visibility;
+    }
+
+    /**
+     * Cache an existing site
+     *
+     * @param siteId site identifier
+     * @param userName user that found or created the site
+     * @param visibility site visibility (PUBLIC, MODERATED or PRIVATE), null if unknown
+     */
+    public synchronized void putSite(final String siteId,
+                                     final String userName,
+                                     final String visibility)
+    {
+        if(StringUtils.isEmpty(siteId) || ttlMs == 0)
+        {
+            return;
+        }
+        Entry entry = new Entry(true, visibility, System.currentTimeMillis() + ttlMs);
+        if(visibility == null || PRIVATE.equalsIgnoreCase(visibility))
+        {
+            entries.put(userKey(siteId, userName), entry);
+        }
+        else
+        {
+            entries.put(sharedKey(siteId), entry);
+        }
+    }
+
+    /**
+     * Cache a site that was not found by the user
+     *
+     * @param siteId site identifier
+     * @param userName user that checked the site
+     */
+    public synchronized void putMissing(final String siteId,
+                                        final String userName)
+    {
+        if(StringUtils.isEmpty(siteId) || ttlMs == 0)
+        {
+            return;
+        }
+        entries.remove(sharedKey(siteId));
+        entries.put(userKey(siteId, userName), new Entry(false, null, System.currentTimeMillis() + ttlMs));
+    }
+
+    /**
+     * Remove all the entries of a site
+     *
+     * @param siteId site identifier
+     */
+    public synchronized void removeSite(final String siteId)
+    {
+        String key = sharedKey(siteId);
+        Iterator<String> it = entries.keySet().iterator();
+        while(it.hasNext())
+        {
+            String next = it.next();
+            if(next.equals(key) || next.startsWith(key + "/"))
+            {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    private Entry getEntry(final String key)
+    {
+        Entry entry = entries.get(key);
+        if(entry != null && entry.expires < System.currentTimeMillis())
+        {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private String sharedKey(final String siteId)
+    {
+        return StringUtils.lowerCase(siteId);
+    }
+
+    private String userKey(final String siteId,
+                           final String userName)
+    {
+        return sharedKey(siteId) + "/" + StringUtils.lowerCase(userName);
+    }
+}
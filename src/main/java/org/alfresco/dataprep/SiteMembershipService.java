@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.dataprep;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.alfresco.dataprep.ServerCapabilities.Feature;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.util.EntityUtils;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+@Service
+/**
+ * Adds users and groups to sites in bulk. Members are added directly by the site manager,
+ * which takes one request for any site visibility, instead of the invite or the
+ * membership request workflow.
+ */
+public class SiteMembershipService
+{
+    private static Log logger = LogFactory.getLog(SiteMembershipService.class);
+    private static final String GROUP_PREFIX = "GROUP_";
+    @Autowired private AlfrescoHttpClientFactory alfrescoHttpClientFactory;
+    @Autowired private ServerCapabilities serverCapabilities;
+
+    public enum MembershipStatus
+    {
+        ADDED,
+        /** The user or group was already a member of the site, the role was not changed */
+        CONFLICT,
+        FAILED;
+    }
+
+    /**
+     * One membership to create: a user or a group with a role in a site
+     */
+    public static class MembershipRow
+    {
+        private final String siteId;
+        private final String authority;
+        private final String role;
+        private final boolean group;
+
+        /**
+         * @param siteId String site id
+         * @param authority String user name or group name (without the GROUP_ prefix)
+         * @param role String site role (e.g. SiteConsumer)
+         * @param group boolean true if authority is a group
+         */
+        public MembershipRow(final String siteId,
+                             final String authority,
+                             final String role,
+                             final boolean group)
+        {
+            if(StringUtils.isEmpty(siteId) || StringUtils.isEmpty(authority) || StringUtils.isEmpty(role))
+            {
+                throw new IllegalArgumentException("Parameter missing");
+            }
+            this.siteId = siteId;
+            this.authority = authority;
+            this.role = role;
+            this.group = group;
+        }
+
+        public String getSiteId()
+        {
+            return siteId;
+        }
+
+        public String getAuthority()
+        {
+            return authority;
+        }
+
+        public String getRole()
+        {
+            return role;
+        }
+
+        public boolean isGroup()
+        {
+            return group;
+        }
+
+        /**
+         * @return String authority name as listed in the site memberships
+         */
+        private String getFullName()
+        {
+            return group ? GROUP_PREFIX + authority : authority;
+        }
+
+        @Override
+        public String toString()
+        {
+            return siteId + " " + getFullName() + " " + role;
+        }
+    }
+
+    /**
+     * Result of one membership row
+     */
+    public static class MembershipResult
+    {
+        private final MembershipRow row;
+        private final MembershipStatus status;
+        private final String error;
+
+        private MembershipResult(final MembershipRow row,
+                                 final MembershipStatus status,
+                                 final String error)
+        {
+            this.row = row;
+            this.status = status;
+            this.error = error;
+        }
+
+        public MembershipRow getRow()
+        {
+            return row;
+        }
+
+        public MembershipStatus getStatus()
+        {
+            return status;
+        }
+
+        public String getError()
+        {
+            return error;
+        }
+    }
+
+    /**
+     * Add the members of the rows concurrently. The memberships of each site are read once
+     * before, the rows of existing members are reported as conflicts without a request.
+     * Users are added with the public API when the server has it, groups and users on older
+     * servers with the site memberships API.
+     * 
+     * @param siteManager String manager of the sites
+     * @param password String password
+     * @param rows List<MembershipRow> memberships to create
+     * @param threads int number of requests sent at the same time
+     * @return List<MembershipResult> results in the same order as the rows
+     * @throws RuntimeException if a site is not found
+     */
+    public List<MembershipResult> addMembers(final String siteManager,
+                                             final String password,
+                                             final List<MembershipRow> rows,
+                                             final int threads)
+    {
+        if (StringUtils.isEmpty(siteManager) || StringUtils.isEmpty(password) || rows == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        final Map<String, Map<String, String>> members = getMembers(siteManager, password, rows);
+        final boolean publicApi = serverCapabilities.supports(Feature.PUBLIC_API);
+        List<Callable<MembershipResult>> tasks = new ArrayList<Callable<MembershipResult>>();
+        for(final MembershipRow row : rows)
+        {
+            tasks.add(new Callable<MembershipResult>()
+            {
+                @Override
+                public MembershipResult call()
+                {
+                    if(members.get(siteKey(row.getSiteId())).containsKey(memberKey(row.getFullName())))
+                    {
+                        return new MembershipResult(row, MembershipStatus.CONFLICT, null);
+                    }
+                    return addMember(siteManager, password, row, publicApi && !row.isGroup());
+                }
+            });
+        }
+        return BatchExecutor.runAll(tasks, threads);
+    }
+
+    /**
+     * Check the memberships of the rows with one memberships read for each site.
+     * 
+     * @param siteManager String manager of the sites
+     * @param password String password
+     * @param rows List<MembershipRow> expected memberships
+     * @return List<MembershipRow> rows that are missing or have a different role
+     */
+    public List<MembershipRow> verifyMembers(final String siteManager,
+                                             final String password,
+                                             final List<MembershipRow> rows)
+    {
+        if (StringUtils.isEmpty(siteManager) || StringUtils.isEmpty(password) || rows == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        Map<String, Map<String, String>> members = getMembers(siteManager, password, rows);
+        List<MembershipRow> mismatches = new ArrayList<MembershipRow>();
+        for(MembershipRow row : rows)
+        {
+            String role = members.get(siteKey(row.getSiteId())).get(memberKey(row.getFullName()));
+            if(!row.getRole().equals(role))
+            {
+                mismatches.add(row);
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Get the members of a site
+     * 
+     * @param userName String user name
+     * @param password String password
+     * @param siteId String site id
+     * @return Map<String, String> role by lower case user name or group full name (group_name)
+     * @throws RuntimeException if the site is not found
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, String> getMembers(final String userName,
+                                          final String password,
+                                          final String siteId)
+    {
+        if (StringUtils.isEmpty(userName) || StringUtils.isEmpty(password) || StringUtils.isEmpty(siteId))
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
+        String reqURL = client.getApiUrl() + "sites/" + siteId.toLowerCase() + "/memberships";
+        HttpGet get = new HttpGet(reqURL);
+        Map<String, String> members = new HashMap<String, String>();
+        try
+        {
+            HttpResponse response = client.execute(userName, password, get);
+            switch (response.getStatusLine().getStatusCode())
+            {
+                case HttpStatus.SC_OK:
+                    JSONArray memberships = (JSONArray) JSONValue.parse(EntityUtils.toString(response.getEntity(), AlfrescoHttpClient.UTF_8_ENCODING));
+                    for(JSONObject membership : (List<JSONObject>) memberships)
+                    {
+                        JSONObject authority = (JSONObject) membership.get("authority");
+                        members.put(memberKey((String) authority.get("fullName")), (String) membership.get("role"));
+                    }
+                    return members;
+                case HttpStatus.SC_NOT_FOUND:
+                    throw new RuntimeException("Site doesn't exists " + siteId);
+                default:
+                    throw new RuntimeException("Unable to read the members of " + siteId + " " + response.toString());
+            }
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Failed to read the response", e);
+        }
+        finally
+        {
+            get.releaseConnection();
+            client.close();
+        }
+    }
+
+    private Map<String, Map<String, String>> getMembers(final String siteManager,
+                                                       final String password,
+                                                       final List<MembershipRow> rows)
+    {
+        Map<String, Map<String, String>> members = new LinkedHashMap<String, Map<String, String>>();
+        for(MembershipRow row : rows)
+        {
+            String site = siteKey(row.getSiteId());
+            if(!members.containsKey(site))
+            {
+                members.put(site, getMembers(siteManager, password, row.getSiteId()));
+            }
+        }
+        return members;
+    }
+
+    @SuppressWarnings("unchecked")
+    private MembershipResult addMember(final String siteManager,
+                                       final String password,
+                                       final MembershipRow row,
+                                       final boolean publicApi)
+    {
+        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
+        JSONObject body = new JSONObject();
+        body.put("role", row.getRole());
+        HttpPost post;
+        if(publicApi)
+        {
+            post = new HttpPost(client.getApiVersionUrl() + "sites/" + row.getSiteId() + "/members");
+            body.put("id", row.getAuthority());
+        }
+        else
+        {
+            post = new HttpPost(client.getApiUrl() + "sites/" + row.getSiteId().toLowerCase() + "/memberships");
+            JSONObject authority = new JSONObject();
+            if(row.isGroup())
+            {
+                authority.put("fullName", row.getFullName());
+                body.put("group", authority);
+            }
+            else
+            {
+                authority.put("userName", row.getAuthority());
+                body.put("person", authority);
+            }
+        }
+        try
+        {
+            HttpResponse response = client.executeRequest(siteManager, password, body, post);
+            switch (response.getStatusLine().getStatusCode())
+            {
+                case HttpStatus.SC_OK:
+                case HttpStatus.SC_CREATED:
+                    if (logger.isTraceEnabled())
+                    {
+                        logger.trace("Added " + row);
+                    }
+                    return new MembershipResult(row, MembershipStatus.ADDED, null);
+                case HttpStatus.SC_CONFLICT:
+                    return new MembershipResult(row, MembershipStatus.CONFLICT, null);
+                default:
+                    logger.error("Unable to add " + row + " " + response.toString());
+                    return new MembershipResult(row, MembershipStatus.FAILED, response.getStatusLine().toString());
+            }
+        }
+        catch (RuntimeException e)
+        {
+            logger.error("Unable to add " + row, e);
+            return new MembershipResult(row, MembershipStatus.FAILED, e.getMessage());
+        }
+    }
+
+    private static String siteKey(final String siteId)
+    {
+        return siteId.toLowerCase();
+    }
+
+    private static String memberKey(final String fullName)
+    {
+        return StringUtils.lowerCase(fullName);
+    }
+}
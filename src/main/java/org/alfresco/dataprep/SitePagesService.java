@@ -15,9 +15,6 @@
 package org.alfresco.dataprep;
 
 import java.io.IOException;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
@@ -25,6 +22,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
 import org.alfresco.dataprep.DashboardCustomization.Page;
 import org.apache.commons.httpclient.HttpStatus;
@@ -53,6 +52,10 @@ import org.springframework.stereotype.Service;
 public class SitePagesService
 {
     private static Log logger = LogFactory.getLog(SitePagesService.class);
+    private static final DateTimeFormatter FULL_DATE = DateTimeFormat.forPattern("EEEE, dd MMMM, yyyy");
+    private static final DateTimeFormatter DAY = DateTimeFormat.forPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter HOUR_MINUTE = DateTimeFormat.forPattern("HH:mm");
+    private static final DateTimeFormatter HOUR_MINUTE_AM_PM = DateTimeFormat.forPattern("hh:mm a");
     @Autowired private AlfrescoHttpClientFactory alfrescoHttpClientFactory;
     @Autowired private SiteService siteService;
     
@@ -91,7 +94,7 @@ public class SitePagesService
         {
             throw new IllegalArgumentException("Parameter missing");
         }
-        if(!siteService.exists(siteName, userName, password))
+        if(!siteService.existsCached(siteName, userName, password))
         {
             throw new RuntimeException("Site doesn't exists " + siteName);
         }
@@ -108,10 +111,6 @@ public class SitePagesService
             timeEnd = "13:00";
         }
         Date currentDate = new Date();
-        String pattern = "yyyy-MM-dd'T'Z";
-        SimpleDateFormat fulldate = new SimpleDateFormat("EEEE, dd MMMM, yyyy");
-        SimpleDateFormat fullFormat = new SimpleDateFormat(pattern);
-        DateTimeFormatter dtf = DateTimeFormat.forPattern(pattern);
         String fulldatefrom = "";
         String fulldateto = "";
         String timeStart24 = "";
@@ -137,32 +136,24 @@ public class SitePagesService
         if(startDate == null)
         {
             // set the current date
-            fulldatefrom = fulldate.format(currentDate);
-            startAt = fullFormat.format(currentDate);
-            DateTime dateTime = dtf.parseDateTime(startAt);
-            startAt = dateTime.toString().replaceFirst("00:00", timeStart24);
+            fulldatefrom = FULL_DATE.print(currentDate.getTime());
+            startAt = eventTime(currentDate, timeStart24);
         }
         else
         {
-            fulldatefrom = fulldate.format(startDate); 
-            startAt = fullFormat.format(startDate);
-            DateTime dateTime = dtf.parseDateTime(startAt);
-            startAt = dateTime.toString().replaceFirst("00:00", timeStart24);
+            fulldatefrom = FULL_DATE.print(startDate.getTime()); 
+            startAt = eventTime(startDate, timeStart24);
         }
         if(endDate == null)
         {
             // set the current date
-            fulldateto = fulldate.format(currentDate);
-            endAt = fullFormat.format(currentDate);
-            DateTime dateTime = dtf.parseDateTime(endAt);
-            endAt = dateTime.toString().replaceFirst("00:00", timeEnd24);
+            fulldateto = FULL_DATE.print(currentDate.getTime());
+            endAt = eventTime(currentDate, timeEnd24);
         }
         else
         {
-            fulldateto = fulldate.format(endDate); 
-            endAt = fullFormat.format(endDate);
-            DateTime dateTime = dtf.parseDateTime(endAt);
-            endAt = dateTime.toString().replaceFirst("00:00", timeEnd24);
+            fulldateto = FULL_DATE.print(endDate.getTime()); 
+            endAt = eventTime(endDate, timeEnd24);
         }
         HttpPost post = new HttpPost(reqURL);
         JSONObject body = new JSONObject();
@@ -226,12 +217,11 @@ public class SitePagesService
     {
         String name = "";
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd"); 
         Calendar calendar = Calendar.getInstance();
         calendar.add(Calendar.DATE, 1);
         to = calendar.getTime();
-        String strFrom = dateFormat.format(from);
-        String strTo = dateFormat.format(to);
+        String strFrom = DAY.print(from.getTime());
+        String strTo = DAY.print(to.getTime());
         String reqURL = client.getAlfrescoUrl() + "alfresco/s/calendar/events/" + siteName + 
                 "/user?from=" + strFrom + "&to" + strTo + "&repeating=all";
         HttpGet get = new HttpGet(reqURL);
@@ -260,9 +250,8 @@ public class SitePagesService
                             String eTime = events.getJSONObject(i).getJSONObject("endAt").getString("iso8601");
                             DateTime st = new DateTime(sTime);
                             DateTime et = new DateTime(eTime);
-                            DateTimeFormatter  sdf = DateTimeFormat.forPattern("HH:mm");
-                            sTime = st.toString(sdf);
-                            eTime = et.toString(sdf);
+                            sTime = st.toString(HOUR_MINUTE);
+                            eTime = et.toString(HOUR_MINUTE);
                             if(timeStart.contains("AM") || timeStart.contains("PM"))
                             {
                                 timeStart = convertTo24Hour(timeStart);
@@ -390,10 +379,6 @@ public class SitePagesService
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
         String reqURL = client.getAlfrescoUrl() + "alfresco/s/calendar/event/" + siteName + "/" + eventName;
         Date currentDate = new Date();
-        String pattern = "yyyy-MM-dd'T'Z";
-        SimpleDateFormat fulldate = new SimpleDateFormat("EEEE, dd MMMM, yyyy");
-        SimpleDateFormat fullFormat = new SimpleDateFormat(pattern);
-        DateTimeFormatter dtf = DateTimeFormat.forPattern(pattern);
         String fulldatefrom = "";
         String fulldateto = "";
         String timeStart24 = "";
@@ -419,32 +404,24 @@ public class SitePagesService
         if(newStartDate == null)
         {
             // set the current date
-            fulldatefrom = fulldate.format(currentDate);
-            startAt = fullFormat.format(currentDate);
-            DateTime dateTime = dtf.parseDateTime(startAt);
-            startAt = dateTime.toString().replaceFirst("00:00", timeStart24);
+            fulldatefrom = FULL_DATE.print(currentDate.getTime());
+            startAt = eventTime(currentDate, timeStart24);
         }
         else
         {
-            fulldatefrom = fulldate.format(newStartDate); 
-            startAt = fullFormat.format(newStartDate);
-            DateTime dateTime = dtf.parseDateTime(startAt);
-            startAt = dateTime.toString().replaceFirst("00:00", timeStart24);
+            fulldatefrom = FULL_DATE.print(newStartDate.getTime()); 
+            startAt = eventTime(newStartDate, timeStart24);
         }
         if(newEndDate == null)
         {
             // set the current date
-            fulldateto = fulldate.format(currentDate);
-            endAt = fullFormat.format(currentDate);
-            DateTime dateTime = dtf.parseDateTime(endAt);
-            endAt = dateTime.toString().replaceFirst("00:00", timeEnd24);
+            fulldateto = FULL_DATE.print(currentDate.getTime());
+            endAt = eventTime(currentDate, timeEnd24);
         }
         else
         {
-            fulldateto = fulldate.format(newEndDate); 
-            endAt = fullFormat.format(newEndDate);
-            DateTime dateTime = dtf.parseDateTime(endAt);
-            endAt = dateTime.toString().replaceFirst("00:00", timeEnd24);
+            fulldateto = FULL_DATE.print(newEndDate.getTime()); 
+            endAt = eventTime(newEndDate, timeEnd24);
         }
         HttpPut put=new HttpPut(reqURL);
         JSONObject body= new JSONObject();
@@ -481,24 +458,31 @@ public class SitePagesService
     /**
      * Convert time to 24 hour format
      * @param time String time
-     * @throws ParseException if error
+     * @throws RuntimeException if error
      * @return String converted hour
      */
     private String convertTo24Hour(String time)
     {
-        DateFormat f1 = new SimpleDateFormat("hh:mm a"); 
-        Date d = null;
         try
         {
-            d = f1.parse(time);
+            return HOUR_MINUTE.print(HOUR_MINUTE_AM_PM.parseLocalTime(time));
         }
-        catch (ParseException e)
+        catch (IllegalArgumentException e)
         {
-           throw new RuntimeException("Failed to parse the date:" + d, e);
+           throw new RuntimeException("Failed to parse the date:" + time, e);
         }
-        DateFormat f2 = new SimpleDateFormat("HH:mm");
-        String x = f2.format(d);
-        return x;
+    }
+
+    /**
+     * Event start or end in ISO format, at the given time of the day
+     * @param date Date the day
+     * @param time24 String time in 24 hour format
+     * @return String date time (e.g. 2015-08-10T12:00:00.000+03:00)
+     */
+    private String eventTime(final Date date,
+                             final String time24)
+    {
+        return new DateTime(date).withTimeAtStartOfDay().toString().replaceFirst("00:00", time24);
     }
 
     @SuppressWarnings("unchecked")
@@ -1165,6 +1149,21 @@ public class SitePagesService
         {
             throw new IllegalArgumentException("Null Parameters: Please correct");
         }
+        return postDiscussion(userName, password, siteName, discussionTitle, text, tags) != null;
+    }
+
+    /**
+     * Create discussion topic
+     * @return String replies url of the topic, empty if the response doesn't have it, null if the topic is not created
+     */
+    @SuppressWarnings("unchecked")
+    private String postDiscussion(final String userName,
+                                  final String password,
+                                  final String siteName,
+                                  final String discussionTitle,
+                                  final String text,
+                                  final List<String>tags)
+    {
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
         String reqUrl = client.getApiUrl() + "forum/site/" + siteName + "/discussions/posts";
         HttpPost post = new HttpPost(reqUrl);
@@ -1172,22 +1171,38 @@ public class SitePagesService
         body.put("title", discussionTitle);
         body.put("content", text);
         body.put("tags", createTagsArray(tags));
-        HttpResponse response = client.executeRequest(userName, password, body, post);
-        switch (response.getStatusLine().getStatusCode())
+        post.setEntity(client.setMessageBody(body));
+        try
         {
-            case HttpStatus.SC_OK:
-                if (logger.isTraceEnabled())
-                {
-                    logger.trace("Discussion " + discussionTitle + " is created successfuly");
-                }
-                return true;
-            case HttpStatus.SC_NOT_FOUND:
-                throw new RuntimeException("Invalid site " + siteName);
-            default:
-                logger.error("Unable to create link: " + response.toString());
-                break;
+            HttpResponse response = client.execute(userName, password, post);
+            switch (response.getStatusLine().getStatusCode())
+            {
+                case HttpStatus.SC_OK:
+                    if (logger.isTraceEnabled())
+                    {
+                        logger.trace("Discussion " + discussionTitle + " is created successfuly");
+                    }
+                    JSONObject item = (JSONObject) client.readStream(response.getEntity()).get("item");
+                    if(item != null && item.get("repliesUrl") != null)
+                    {
+                        return (String) item.get("repliesUrl");
+                    }
+                    return "";
+                case HttpStatus.SC_NOT_FOUND:
+                    throw new RuntimeException("Invalid site " + siteName);
+                case HttpStatus.SC_UNAUTHORIZED:
+                    throw new RuntimeException("Invalid user name or password");
+                default:
+                    logger.error("Unable to create link: " + response.toString());
+                    break;
+            }
         }
-        return false;
+        finally
+        {
+            post.releaseConnection();
+            client.close();
+        }
+        return null;
     }
 
     /**
@@ -1387,7 +1402,6 @@ public class SitePagesService
      * @param comment String comment to add
      * @return true if comment is added successfully
      */
-    @SuppressWarnings("unchecked")
     private boolean addComment(final String userName,
                                final String password, 
                                final String siteName,
@@ -1401,7 +1415,6 @@ public class SitePagesService
         {
             throw new IllegalArgumentException("Parameter missing");
         }
-        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
         Map<String, String> id = getIds(userName, password, siteName, itemTitle, page);
         if(!id.isEmpty())
         {
@@ -1418,6 +1431,24 @@ public class SitePagesService
         {
             throw new RuntimeException(itemTitle +  " doesn't exists ");
         }
+        return postComment(userName, password, siteName, itemTitle, page, commentsUrl, comment);
+    }
+
+    /**
+     * Post a comment or a reply
+     * @param commentsUrl String comments url of a blog or link, replies url of a topic
+     * @return true if comment is added successfully
+     */
+    @SuppressWarnings("unchecked")
+    private boolean postComment(final String userName,
+                                final String password, 
+                                final String siteName,
+                                final String itemTitle,
+                                final Page page,
+                                final String commentsUrl,
+                                final String comment)
+    {
+        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
         String reqUrl = client.getApiUrl() + commentsUrl.replaceFirst("/", "");
         HttpPost post  = new HttpPost(reqUrl);
         JSONObject body = new JSONObject();
@@ -1622,4 +1653,432 @@ public class SitePagesService
     {
         return deleteComment(userName, password, siteName, Page.LINKS, linkTitle, comment);
     }
+
+    /**
+     * Number of items of each type to create in a site with {@link SitePagesService#createSiteItems}
+     */
+    public static class SiteItemsMix
+    {
+        private final String siteName;
+        private int calendarEvents;
+        private int wikiPages;
+        private int blogPosts;
+        private int links;
+        private int discussions;
+        private int repliesPerDiscussion;
+        private double itemsPerSecond;
+        private String namePrefix = "item";
+
+        public SiteItemsMix(final String siteName)
+        {
+            if(StringUtils.isEmpty(siteName))
+            {
+                throw new IllegalArgumentException("Parameter missing");
+            }
+            this.siteName = siteName;
+        }
+
+        public String getSiteName()
+        {
+            return siteName;
+        }
+
+        public int getCalendarEvents()
+        {
+            return calendarEvents;
+        }
+
+        public void setCalendarEvents(int calendarEvents)
+        {
+            this.calendarEvents = calendarEvents;
+        }
+
+        public int getWikiPages()
+        {
+            return wikiPages;
+        }
+
+        public void setWikiPages(int wikiPages)
+        {
+            this.wikiPages = wikiPages;
+        }
+
+        public int getBlogPosts()
+        {
+            return blogPosts;
+        }
+
+        public void setBlogPosts(int blogPosts)
+        {
+            this.blogPosts = blogPosts;
+        }
+
+        public int getLinks()
+        {
+            return links;
+        }
+
+        public void setLinks(int links)
+        {
+            this.links = links;
+        }
+
+        public int getDiscussions()
+        {
+            return discussions;
+        }
+
+        public void setDiscussions(int discussions)
+        {
+            this.discussions = discussions;
+        }
+
+        public int getRepliesPerDiscussion()
+        {
+            return repliesPerDiscussion;
+        }
+
+        public void setRepliesPerDiscussion(int repliesPerDiscussion)
+        {
+            this.repliesPerDiscussion = repliesPerDiscussion;
+        }
+
+        public double getItemsPerSecond()
+        {
+            return itemsPerSecond;
+        }
+
+        /**
+         * @param itemsPerSecond maximum number of items created per second in the site, 0 for no limit
+         */
+        public void setItemsPerSecond(double itemsPerSecond)
+        {
+            this.itemsPerSecond = itemsPerSecond;
+        }
+
+        public String getNamePrefix()
+        {
+            return namePrefix;
+        }
+
+        /**
+         * @param namePrefix prefix of the titles of the created items (e.g. prefix-wiki-1)
+         */
+        public void setNamePrefix(String namePrefix)
+        {
+            this.namePrefix = namePrefix;
+        }
+    }
+
+    /**
+     * Result of one item created by {@link SitePagesService#createSiteItems}
+     */
+    public static class SiteItemResult
+    {
+        private final String siteName;
+        private final String title;
+        private final int created;
+        private final String error;
+
+        private SiteItemResult(final String siteName,
+                               final String title,
+                               final int created,
+                               final String error)
+        {
+            this.siteName = siteName;
+            this.title = title;
+            this.created = created;
+            this.error = error;
+        }
+
+        public String getSiteName()
+        {
+            return siteName;
+        }
+
+        public String getTitle()
+        {
+            return title;
+        }
+
+        /**
+         * @return int number of items created, the replies of a discussion included
+         */
+        public int getCreated()
+        {
+            return created;
+        }
+
+        public boolean isSuccessful()
+        {
+            return created > 0 && error == null;
+        }
+
+        public String getError()
+        {
+            return error;
+        }
+    }
+
+    /**
+     * Limits the rate of the requests sent to a site
+     */
+    private static class RateLimiter
+    {
+        private final long intervalNanos;
+        private long next = System.nanoTime();
+
+        private RateLimiter(final double perSecond)
+        {
+            this.intervalNanos = perSecond > 0 ? (long) (1000000000L / perSecond) : 0;
+        }
+
+        private void acquire()
+        {
+            if(intervalNanos == 0)
+            {
+                return;
+            }
+            long wait;
+            synchronized (this)
+            {
+                long now = System.nanoTime();
+                next = Math.max(next, now);
+                wait = next - now;
+                next = next + intervalNanos;
+            }
+            if(wait > 0)
+            {
+                try
+                {
+                    Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create calendar events, wiki pages, blog posts, links and discussions in many sites.
+     * Each site is checked once, items are created concurrently and the replies of a
+     * discussion are added right after the topic, using the replies url returned at creation.
+     * 
+     * @param userName String user name
+     * @param password String password
+     * @param mixes List<SiteItemsMix> items to create in each site
+     * @param threads int number of items created at the same time
+     * @return int number of items created (replies included)
+     * @throws RuntimeException if a site is not found
+     */
+    public int createSiteItems(final String userName,
+                               final String password,
+                               final List<SiteItemsMix> mixes,
+                               final int threads)
+    {
+        return createSiteItems(userName, password, mixes, threads, null);
+    }
+
+    /**
+     * Create calendar events, wiki pages, blog posts, links and discussions in many sites.
+     * Each site is checked once, items are created concurrently and the replies of a
+     * discussion are added right after the topic, using the replies url returned at creation.
+     * A failed item is reported to the listener and the other items go on.
+     * 
+     * @param userName String user name
+     * @param password String password
+     * @param mixes List<SiteItemsMix> items to create in each site
+     * @param threads int number of items created at the same time
+     * @param listener receives the result of each item as soon as it is done, may be null.
+     * Calls to the listener are synchronized.
+     * @return int number of items created (replies included)
+     * @throws RuntimeException if a site is not found
+     */
+    public int createSiteItems(final String userName,
+                               final String password,
+                               final List<SiteItemsMix> mixes,
+                               final int threads,
+                               final Consumer<SiteItemResult> listener)
+    {
+        if (StringUtils.isEmpty(userName) || StringUtils.isEmpty(password) || mixes == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        List<List<Callable<Integer>>> siteTasks = new ArrayList<List<Callable<Integer>>>();
+        for(SiteItemsMix mix : mixes)
+        {
+            if(!siteService.existsCached(mix.getSiteName(), userName, password))
+            {
+                throw new RuntimeException("Site doesn't exists " + mix.getSiteName());
+            }
+            siteTasks.add(siteItemTasks(userName, password, mix, listener));
+        }
+        // interleave the sites so all of them are filled at the same time
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        boolean added = true;
+        for(int i = 0; added; i++)
+        {
+            added = false;
+            for(List<Callable<Integer>> site : siteTasks)
+            {
+                if(i < site.size())
+                {
+                    tasks.add(site.get(i));
+                    added = true;
+                }
+            }
+        }
+        int created = 0;
+        for(Integer count : BatchExecutor.runAll(tasks, threads))
+        {
+            created = created + count;
+        }
+        return created;
+    }
+
+    private List<Callable<Integer>> siteItemTasks(final String userName,
+                                                  final String password,
+                                                  final SiteItemsMix mix,
+                                                  final Consumer<SiteItemResult> listener)
+    {
+        final String site = mix.getSiteName();
+        final String prefix = mix.getNamePrefix();
+        final RateLimiter limiter = new RateLimiter(mix.getItemsPerSecond());
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        int max = Math.max(Math.max(mix.getCalendarEvents(), mix.getWikiPages()),
+                Math.max(Math.max(mix.getBlogPosts(), mix.getLinks()), mix.getDiscussions()));
+        for(int i = 1; i <= max; i++)
+        {
+            final String suffix = "-" + i;
+            if(i <= mix.getCalendarEvents())
+            {
+                tasks.add(itemTask(site, prefix + "-event" + suffix, listener, new Callable<Integer>()
+                {
+                    @Override
+                    public Integer call()
+                    {
+                        limiter.acquire();
+                        return count(addCalendarEvent(userName, password, site, prefix + "-event" + suffix, site,
+                                prefix + "-event" + suffix, null, null, null, null, false, null));
+                    }
+                }));
+            }
+            if(i <= mix.getWikiPages())
+            {
+                tasks.add(itemTask(site, prefix + "-wiki" + suffix, listener, new Callable<Integer>()
+                {
+                    @Override
+                    public Integer call()
+                    {
+                        limiter.acquire();
+                        return count(createWiki(userName, password, site, prefix + "-wiki" + suffix, prefix + "-wiki" + suffix, null));
+                    }
+                }));
+            }
+            if(i <= mix.getBlogPosts())
+            {
+                tasks.add(itemTask(site, prefix + "-blog" + suffix, listener, new Callable<Integer>()
+                {
+                    @Override
+                    public Integer call()
+                    {
+                        limiter.acquire();
+                        return count(createBlogPost(userName, password, site, prefix + "-blog" + suffix, prefix + "-blog" + suffix, false, null));
+                    }
+                }));
+            }
+            if(i <= mix.getLinks())
+            {
+                tasks.add(itemTask(site, prefix + "-link" + suffix, listener, new Callable<Integer>()
+                {
+                    @Override
+                    public Integer call()
+                    {
+                        limiter.acquire();
+                        return count(createLink(userName, password, site, prefix + "-link" + suffix, "http://www.alfresco.com",
+                                prefix + "-link" + suffix, false, null));
+                    }
+                }));
+            }
+            if(i <= mix.getDiscussions())
+            {
+                final int replies = mix.getRepliesPerDiscussion();
+                tasks.add(itemTask(site, prefix + "-topic" + suffix, listener, new Callable<Integer>()
+                {
+                    @Override
+                    public Integer call()
+                    {
+                        String title = prefix + "-topic" + suffix;
+                        limiter.acquire();
+                        String repliesUrl = postDiscussion(userName, password, site, title, title, null);
+                        if(repliesUrl == null)
+                        {
+                            return 0;
+                        }
+                        int created = 1;
+                        for(int r = 1; r <= replies; r++)
+                        {
+                            limiter.acquire();
+                            try
+                            {
+                                boolean replied = repliesUrl.isEmpty() ? replyToDiscussion(userName, password, site, title, title + "-reply-" + r)
+                                        : postComment(userName, password, site, title, Page.DISCUSSIONS, repliesUrl, title + "-reply-" + r);
+                                created = created + count(replied);
+                            }
+                            catch (RuntimeException e)
+                            {
+                                logger.error("Unable to reply to " + title + " in site " + site, e);
+                            }
+                        }
+                        return created;
+                    }
+                }));
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Run the creation of one item, a failure is reported to the listener instead of stopping the other items
+     */
+    private Callable<Integer> itemTask(final String site,
+                                       final String title,
+                                       final Consumer<SiteItemResult> listener,
+                                       final Callable<Integer> create)
+    {
+        return new Callable<Integer>()
+        {
+            @Override
+            public Integer call()
+            {
+                int created = 0;
+                String error = null;
+                try
+                {
+                    created = create.call();
+                }
+                catch (Exception e)
+                {
+                    logger.error("Unable to create " + title + " in site " + site, e);
+                    error = e.getMessage() != null ? e.getMessage() : e.toString();
+                }
+                if(listener != null)
+                {
+                    synchronized (listener)
+                    {
+                        listener.accept(new SiteItemResult(site, title, created, error));
+                    }
+                }
+                return created;
+            }
+        };
+    }
+
+    private int count(final boolean created)
+    {
+        return created ? 1 : 0;
+    }
 }
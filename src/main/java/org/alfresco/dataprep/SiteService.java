@@ -29,6 +29,7 @@ import java.util.Map;
 import org.alfresco.dataprep.DashboardCustomization.DashletLayout;
 import org.alfresco.dataprep.DashboardCustomization.Page;
 import org.alfresco.dataprep.DashboardCustomization.SiteDashlet;
+import org.alfresco.dataprep.ManifestRecord.RecordType;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
@@ -71,6 +72,10 @@ public class SiteService
     private static Log logger = LogFactory.getLog(SiteService.class);
     @Autowired private PublicApiFactory publicApiFactory;
     @Autowired private AlfrescoHttpClientFactory alfrescoHttpClientFactory;
+    @Autowired private NodeRefCache nodeRefCache;
+    @Autowired private ShareSessionManager shareSessionManager;
+    @Autowired private SiteCache siteCache;
+    @Autowired private ManifestRecorder manifestRecorder;
     
     public enum RMSiteCompliance
     {
@@ -136,6 +141,8 @@ public class SiteService
            throw new RuntimeException("Failed to create site:" + siteId);
        }
        logger.info("Site created successfully: " + title);
+       siteCache.putSite(siteId, username, visibility.name());
+       manifestRecorder.record(RecordType.SITE, siteId, title, siteId, null, username);
    }
     /**
      * Checks if site exists
@@ -158,8 +165,14 @@ public class SiteService
             HttpResponse response = client.execute(username, password, get);
             if( 200 == response.getStatusLine().getStatusCode())
             {
+                Object visibility = client.readStream(response.getEntity()).get("visibility");
+                siteCache.putSite(siteId, username, visibility != null ? visibility.toString() : null);
                 return true;
             }
+            if(404 == response.getStatusLine().getStatusCode())
+            {
+                siteCache.putMissing(siteId, username);
+            }
             return false;
         } 
         finally
@@ -168,6 +181,28 @@ public class SiteService
             client.close();
         }
     }
+
+    /**
+     * Checks if site exists, using the site cache. The server is checked
+     * only if the site is not cached or the cached entry expired.
+     * 
+     * @param siteId site identifier
+     * @param username site user
+     * @param password user password
+     * @return true if exists
+     */
+    public boolean existsCached(final String siteId,
+                                final String username,
+                                final String password)
+    {
+        Boolean exists = siteCache.exists(siteId, username);
+        if(exists == null)
+        {
+            return exists(siteId, username, password);
+        }
+        return exists;
+    }
+
     /**
      * Delete an alfresco site.
      * 
@@ -183,6 +218,8 @@ public class SiteService
     {
         Alfresco publicApi = publicApiFactory.getPublicApi(username,password);
         publicApi.removeSite(domain, siteId);
+        nodeRefCache.removeSite(siteId);
+        siteCache.removeSite(siteId);
     }
     
     /**
@@ -428,12 +465,10 @@ public class SiteService
                              final Page page,
                              final List<Page> pages)
     {
-        if(!exists(siteName, userName, password))
+        if(!existsCached(siteName, userName, password))
         {
             throw new RuntimeException("Site doesn't exists " + siteName);
         }
-        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        String url = client.getAlfrescoUrl() + DashboardCustomization.SITE_PAGES_URL;
         JSONObject body = new JSONObject();
         JSONArray array = new JSONArray();
         body.put("siteId", siteName);
@@ -456,9 +491,8 @@ public class SiteService
         }
         body.put("pages", array);
         body.put("themeId", "");
-        HttpPost post  = new HttpPost(url);
-        HttpResponse response = client.executeRequest(userName, password, body, post);
-        if (HttpStatus.SC_OK == response.getStatusLine().getStatusCode())
+        int status = shareSessionManager.post(userName, password, DashboardCustomization.SITE_PAGES_URL, body);
+        if (HttpStatus.SC_OK == status)
         {
             if(!multiplePages)
             {
@@ -536,12 +570,10 @@ public class SiteService
                               final int column,
                               final int position)
     {        
-        if(!exists(siteName, userName, password))
+        if(!existsCached(siteName, userName, password))
         {
             throw new RuntimeException("Site doesn't exists " + siteName);
         }
-        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        String url = client.getAlfrescoUrl() + DashboardCustomization.ADD_DASHLET_URL;
         JSONObject body = new JSONObject();
         JSONArray array = new JSONArray();
         body.put("dashboardPage", "site/" + siteName + "/dashboard");
@@ -566,9 +598,8 @@ public class SiteService
         newDashlet.put("regionId", region);
         array.add(newDashlet);
         body.put("dashlets", array);
-        HttpPost post  = new HttpPost(url);
-        HttpResponse response = client.executeRequest(userName, password, body, post);
-        if (HttpStatus.SC_OK == response.getStatusLine().getStatusCode())
+        int status = shareSessionManager.post(userName, password, DashboardCustomization.ADD_DASHLET_URL, body);
+        if (HttpStatus.SC_OK == status)
         {
             logger.trace("Dashlet " + dashlet.name + " was added to site " + siteName);
             return true;
@@ -637,6 +668,7 @@ public class SiteService
                         {
                             logger.info("Successfully created RM site");
                         }
+                        siteCache.putSite("rm", userName, "PUBLIC");
                         return true;
                     }
                     else
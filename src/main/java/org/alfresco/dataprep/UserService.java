@@ -16,14 +16,26 @@ package org.alfresco.dataprep;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
 import org.alfresco.dataprep.DashboardCustomization.DashletLayout;
 import org.alfresco.dataprep.DashboardCustomization.UserDashlet;
+import org.alfresco.dataprep.ManifestRecord.RecordType;
+import org.alfresco.dataprep.ServerCapabilities.Feature;
 import org.apache.commons.httpclient.HttpState;
 import org.apache.commons.httpclient.NameValuePair;
 import org.apache.commons.httpclient.URIException;
@@ -46,6 +58,7 @@ import org.apache.http.util.EntityUtils;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.JSONValue;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 @Service
 /**
@@ -60,6 +73,150 @@ public class UserService extends CMISUtil
     public static String DEFAULT_LAST_NAME = "lastName";
     public static String PAGE_ACCEPT_URL = "page/accept-invite";
     public static String PAGE_REJECT_URL = "page/reject-invite";
+    @Autowired private ServerCapabilities serverCapabilities;
+    @Autowired private ShareSessionManager shareSessionManager;
+
+    public enum TrashcanAction
+    {
+        PURGE,
+        RESTORE;
+    }
+
+    /**
+     * Selects the trashcan items to purge or restore. Criteria that are not set match all the items.
+     */
+    public static class TrashcanFilter
+    {
+        private String archivedBy;
+        private Date archivedAfter;
+        private Date archivedBefore;
+        private String siteId;
+        private String name;
+
+        public String getArchivedBy()
+        {
+            return archivedBy;
+        }
+
+        /**
+         * @param archivedBy user that deleted the items
+         */
+        public void setArchivedBy(String archivedBy)
+        {
+            this.archivedBy = archivedBy;
+        }
+
+        public Date getArchivedAfter()
+        {
+            return archivedAfter;
+        }
+
+        /**
+         * @param archivedAfter items deleted at or after this date
+         */
+        public void setArchivedAfter(Date archivedAfter)
+        {
+            this.archivedAfter = archivedAfter;
+        }
+
+        public Date getArchivedBefore()
+        {
+            return archivedBefore;
+        }
+
+        /**
+         * @param archivedBefore items deleted before this date
+         */
+        public void setArchivedBefore(Date archivedBefore)
+        {
+            this.archivedBefore = archivedBefore;
+        }
+
+        public String getSiteId()
+        {
+            return siteId;
+        }
+
+        /**
+         * @param siteId site the items were deleted from
+         */
+        public void setSiteId(String siteId)
+        {
+            this.siteId = siteId;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * @param name name filter applied by the server, * is a wildcard
+         */
+        public void setName(String name)
+        {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Progress of a trashcan purge or restore, reported after each page
+     */
+    public static class TrashcanProgress
+    {
+        private final int page;
+        private final int processed;
+        private final int failed;
+        private final int totalProcessed;
+        private final int totalFailed;
+
+        private TrashcanProgress(final int page,
+                                 final int processed,
+                                 final int failed,
+                                 final int totalProcessed,
+                                 final int totalFailed)
+        {
+            this.page = page;
+            this.processed = processed;
+            this.failed = failed;
+            this.totalProcessed = totalProcessed;
+            this.totalFailed = totalFailed;
+        }
+
+        /**
+         * @return int index of the page, starting from 0
+         */
+        public int getPage()
+        {
+            return page;
+        }
+
+        /**
+         * @return int items of the page purged or restored
+         */
+        public int getProcessed()
+        {
+            return processed;
+        }
+
+        /**
+         * @return int items of the page that could not be purged or restored
+         */
+        public int getFailed()
+        {
+            return failed;
+        }
+
+        public int getTotalProcessed()
+        {
+            return totalProcessed;
+        }
+
+        public int getTotalFailed()
+        {
+            return totalFailed;
+        }
+    }
 
     /**
      * Create an Alfresco user on enterprise.
@@ -96,21 +253,36 @@ public class UserService extends CMISUtil
             logger.trace("Create user using Url - " + reqURL);
         }
         HttpPost post = new HttpPost(reqURL);
-        HttpResponse response = client.executeRequest(adminUser, adminPass, body, post);
-        switch (response.getStatusLine().getStatusCode())
+        post.setEntity(client.setMessageBody(body));
+        try
         {
-            case HttpStatus.SC_OK:
-                logger.info("User created successfully: " + userName);
-                return true;
-            case HttpStatus.SC_CONFLICT:
-                if (logger.isTraceEnabled())
-                {
-                    logger.trace("User: " + userName + " alreary created");
-                }
-                break;
-            default:
-                logger.error("Unable to create user: " + response.toString());
-                break;
+            HttpResponse response = client.execute(adminUser, adminPass, post);
+            switch (response.getStatusLine().getStatusCode())
+            {
+                case HttpStatus.SC_OK:
+                    logger.info("User created successfully: " + userName);
+                    manifestRecorder.record(RecordType.USER, userName, firstName + " " + lastName, null, null, adminUser);
+                    // the person details have the node ref of the new user
+                    personDirectory.remove(userName);
+                    personDirectory.put(userName, (String) client.readStream(response.getEntity()).get("nodeRef"));
+                    return true;
+                case HttpStatus.SC_CONFLICT:
+                    if (logger.isTraceEnabled())
+                    {
+                        logger.trace("User: " + userName + " alreary created");
+                    }
+                    break;
+                case HttpStatus.SC_UNAUTHORIZED:
+                    throw new RuntimeException("Invalid user name or password");
+                default:
+                    logger.error("Unable to create user: " + response.toString());
+                    break;
+            }
+        }
+        finally
+        {
+            post.releaseConnection();
+            client.close();
         }
         return false;
     }
@@ -187,6 +359,7 @@ public class UserService extends CMISUtil
         {
             case HttpStatus.SC_OK:
                 logger.trace("User deleted successfully: " + userName);
+                personDirectory.remove(userName);
                 return true;
             case HttpStatus.SC_NOT_FOUND:
                 throw new RuntimeException("User: " + userName + " doesn't exists");
@@ -255,9 +428,7 @@ public class UserService extends CMISUtil
                     {
                         logger.trace("User successfully invited: " + userToInvite);
                     }
-                    String alfVersion = client.getAlfrescoVersion();
-                    double v = Double.valueOf(StringUtils.substring(alfVersion, 0, 3));
-                    if(v >= 5.1)
+                    if(serverCapabilities.supports(Feature.INVITE_AUTO_ACCEPT))
                     {
                         return true;
                     }
@@ -644,7 +815,6 @@ public class UserService extends CMISUtil
                               final int column,
                               final int position)
     {
-        login(userName, password);
         if(column > 4 || column < 1)
         {
             throw new RuntimeException("Maximum number of columns must be at between 1 and 4");
@@ -653,8 +823,6 @@ public class UserService extends CMISUtil
         {
             throw new RuntimeException("Maximum number of position must be between 1 and 5");
         }
-        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        String url = client.getAlfrescoUrl() + DashboardCustomization.ADD_DASHLET_URL;
         JSONObject body = new JSONObject();
         JSONArray array = new JSONArray();
         body.put("dashboardPage", "user/" + userName + "/dashboard");
@@ -683,25 +851,15 @@ public class UserService extends CMISUtil
         newDashlet.put("regionId", region);
         array.add(newDashlet);
         body.put("dashlets", array);
-        HttpPost post  = new HttpPost(url);
-        post.setEntity(client.setMessageBody(body));
-        try
+        int status = shareSessionManager.post(userName, password, DashboardCustomization.ADD_DASHLET_URL, body);
+        if (HttpStatus.SC_OK == status)
         {
-            HttpResponse response = client.execute(userName, password, post);
-            if (HttpStatus.SC_OK == response.getStatusLine().getStatusCode())
-            {
-                logger.info("Dashlet " + dashlet.name + " was added on user: " + userName + " dashboard");
-                return true;
-            }
-            else
-            {
-                logger.error("Unable to add dashlet to user dashboard " + userName);
-            }
+            logger.info("Dashlet " + dashlet.name + " was added on user: " + userName + " dashboard");
+            return true;
         }
-        finally
+        else
         {
-            post.releaseConnection();
-            client.close();
+            logger.error("Unable to add dashlet to user dashboard " + userName);
         }
         return false;
     }
@@ -891,39 +1049,193 @@ public class UserService extends CMISUtil
     {
         return getFollowUsers(userName, password, false);
     }
-    
+
     /**
-     * Create a new root category
+     * Create the follow relationships of a generated graph. Each follower is handled by one
+     * worker, the users it follows are sent with one request for each batch of users.
+     * The requests are sent as admin, so the followers don't need to authenticate.
      * 
      * @param adminUser String admin user
      * @param adminPass String admin password
-     * @param categoryName String category name
-     * @return true if category is created
+     * @param graph FollowGraph graph to create
+     * @param batchSize int maximum number of users followed with one request
+     * @param threads int number of requests sent at the same time
+     * @return int number of follow relationships created
+     */
+    public int createFollowGraph(final String adminUser,
+                                 final String adminPass,
+                                 final FollowGraph graph,
+                                 final int batchSize,
+                                 final int threads)
+    {
+        if (StringUtils.isEmpty(adminUser) || StringUtils.isEmpty(adminPass) || graph == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        if(batchSize < 1)
+        {
+            throw new IllegalArgumentException("Batch size must be greater than 0");
+        }
+        if(threads < 1)
+        {
+            throw new IllegalArgumentException("Number of threads must be greater than 0");
+        }
+        final int workers = Math.min(threads, graph.getUserCount());
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for(int w = 0; w < workers; w++)
+        {
+            final int worker = w;
+            tasks.add(new Callable<Integer>()
+            {
+                @Override
+                public Integer call()
+                {
+                    int count = 0;
+                    for(int i = worker; i < graph.getUserCount(); i = i + workers)
+                    {
+                        List<String> following = graph.getFollowing(i);
+                        for(int from = 0; from < following.size(); from = from + batchSize)
+                        {
+                            List<String> batch = following.subList(from, Math.min(from + batchSize, following.size()));
+                            if(followUsers(adminUser, adminPass, graph.getUser(i), batch))
+                            {
+                                count = count + batch.size();
+                            }
+                        }
+                    }
+                    return count;
+                }
+            });
+        }
+        int created = 0;
+        for(Integer count : BatchExecutor.runAll(tasks, workers))
+        {
+            created = created + count;
+        }
+        logger.info("Follow graph created: " + created + " relationships between " + graph.getUserCount() + " users");
+        return created;
+    }
+
+    /**
+     * Check a sample of the follow relationships of a generated graph. The followers are picked
+     * from the seed of the graph, their relationships are checked with one request per follower
+     * without reading the full lists of followed users.
+     * 
+     * @param adminUser String admin user
+     * @param adminPass String admin password
+     * @param graph FollowGraph graph to check
+     * @param sampleSize int number of followers checked
+     * @return int number of missing follow relationships in the sample
+     */
+    public int verifyFollowGraph(final String adminUser,
+                                 final String adminPass,
+                                 final FollowGraph graph,
+                                 final int sampleSize)
+    {
+        if (StringUtils.isEmpty(adminUser) || StringUtils.isEmpty(adminPass) || graph == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        Random random = new Random(graph.getSeed());
+        int missing = 0;
+        for(int i = 0; i < Math.min(sampleSize, graph.getUserCount()); i++)
+        {
+            int follower = random.nextInt(graph.getUserCount());
+            missing = missing + countNotFollowed(adminUser, adminPass, graph.getUser(follower), graph.getFollowing(follower));
+        }
+        return missing;
+    }
+
+    /**
+     * Follow several users with one request
+     * 
+     * @return true if all the users are followed
      */
     @SuppressWarnings("unchecked")
-    public boolean createRootCategory(final String adminUser,
-                                      final String adminPass,
-                                      final String categoryName)
+    private boolean followUsers(final String adminUser,
+                                final String adminPass,
+                                final String follower,
+                                final List<String> usersToFollow)
     {
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        String url = client.getApiUrl() + "category";
-        HttpPost post  = new HttpPost(url);
-        JSONObject body = new JSONObject();
-        body.put("name", categoryName);
-        HttpResponse response = client.executeRequest(adminUser, adminPass, body, post);
-        if(HttpStatus.SC_OK == response.getStatusLine().getStatusCode())
+        HttpPost request = new HttpPost(client.getApiUrl() + "subscriptions/" + follower + "/follow");
+        JSONArray requestBody = new JSONArray();
+        requestBody.addAll(usersToFollow);
+        request.setEntity(new StringEntity(requestBody.toString(), AlfrescoHttpClient.UTF_8_ENCODING));
+        HttpResponse response = client.executeRequest(adminUser, adminPass, request);
+        if(HttpStatus.SC_NO_CONTENT == response.getStatusLine().getStatusCode())
         {
-            if (logger.isTraceEnabled())
+            return true;
+        }
+        logger.error("Unable to follow users for " + follower + " - " + response.toString());
+        return false;
+    }
+
+    /**
+     * Check which users are followed with one request
+     * 
+     * @return int number of users that are not followed
+     */
+    @SuppressWarnings("unchecked")
+    private int countNotFollowed(final String adminUser,
+                                 final String adminPass,
+                                 final String follower,
+                                 final List<String> users)
+    {
+        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
+        HttpPost request = new HttpPost(client.getApiUrl() + "subscriptions/" + follower + "/follows");
+        JSONArray requestBody = new JSONArray();
+        requestBody.addAll(users);
+        request.setEntity(new StringEntity(requestBody.toString(), AlfrescoHttpClient.UTF_8_ENCODING));
+        try
+        {
+            HttpResponse response = client.execute(adminUser, adminPass, request);
+            if(HttpStatus.SC_OK != response.getStatusLine().getStatusCode())
             {
-                logger.trace("Successfuly created root category " + categoryName);
+                logger.error("Unable to check the users followed by " + follower + " - " + response.toString());
+                return users.size();
             }
-            return true;
+            // [{"user1": true}, {"user2": false}]
+            JSONArray follows = (JSONArray) JSONValue.parse(EntityUtils.toString(response.getEntity(), AlfrescoHttpClient.UTF_8_ENCODING));
+            int followed = 0;
+            for(Object follow : follows)
+            {
+                for(Object value : ((JSONObject) follow).values())
+                {
+                    if(Boolean.TRUE.equals(value))
+                    {
+                        followed++;
+                    }
+                }
+            }
+            return users.size() - followed;
         }
-        else
+        catch (IOException e)
         {
-            logger.error("Unable to create category " + categoryName + " " +  response.toString());
+            throw new RuntimeException("Failed to read the response", e);
+        }
+        finally
+        {
+            request.releaseConnection();
+            client.close();
         }
-        return false;
+    }
+    
+    /**
+     * Create a new root category
+     * 
+     * @param adminUser String admin user
+     * @param adminPass String admin password
+     * @param categoryName String category name
+     * @return true if category is created
+     */
+    public boolean createRootCategory(final String adminUser,
+                                      final String adminPass,
+                                      final String categoryName)
+    {
+        String nodeRef = createCategory(adminUser, adminPass, null, categoryName);
+        categoryCache.putPath(categoryName, nodeRef);
+        return nodeRef != null;
     }
     
     /**
@@ -935,32 +1247,164 @@ public class UserService extends CMISUtil
      * @param subCategory String subcategory
      * @return true if category is created 
      */
-    @SuppressWarnings("unchecked")
     public boolean createSubCategory(final String adminUser,
                                      final String adminPass,
                                      final String parentCategory,
                                      final String subCategory)
     {
-        String rootCategNodeRef = getCategoryNodeRef(adminPass, adminPass, parentCategory);
+        String rootCategNodeRef = getCategoryNodeRef(adminUser, adminPass, parentCategory);
+        return createCategory(adminUser, adminPass, rootCategNodeRef, subCategory) != null;
+    }
+
+    /**
+     * Create a category tree from the category paths (e.g. Regions/EUROPE/France).
+     * The tree is created level by level, the categories of one level are created
+     * concurrently once their parents exist. Missing parents are created, categories
+     * that already exist (e.g. the root category Regions) are looked up by path and
+     * not created again. The categories are cached by path, so classifying content
+     * with the paths needs no query.
+     * 
+     * @param adminUser String admin user
+     * @param adminPass String admin password
+     * @param categoryPaths List<String> paths of the categories, separated by /
+     * @param threads int number of categories created at the same time
+     * @return Map<String, String> node id by category path, in creation order. Categories that
+     * failed and their subcategories are not in the map.
+     */
+    public Map<String, String> createCategoryTree(final String adminUser,
+                                                  final String adminPass,
+                                                  final List<String> categoryPaths,
+                                                  final int threads)
+    {
+        if (StringUtils.isEmpty(adminUser) || StringUtils.isEmpty(adminPass) || categoryPaths == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        if(threads < 1)
+        {
+            throw new IllegalArgumentException("Number of threads must be greater than 0");
+        }
+        List<Set<String>> levels = new ArrayList<Set<String>>();
+        for(String categoryPath : categoryPaths)
+        {
+            String path = "";
+            int depth = 0;
+            for(String name : StringUtils.split(categoryPath, "/"))
+            {
+                path = depth == 0 ? name : path + "/" + name;
+                if(levels.size() == depth)
+                {
+                    levels.add(new LinkedHashSet<String>());
+                }
+                levels.get(depth).add(path);
+                depth++;
+            }
+        }
+        Map<String, String> created = new LinkedHashMap<String, String>();
+        final Set<String> newPaths = Collections.synchronizedSet(new HashSet<String>());
+        for(Set<String> level : levels)
+        {
+            List<String> paths = new ArrayList<String>();
+            List<Callable<String>> tasks = new ArrayList<Callable<String>>();
+            for(final String path : level)
+            {
+                final String parentPath = path.contains("/") ? StringUtils.substringBeforeLast(path, "/") : null;
+                final String parentNodeRef = parentPath != null ? created.get(parentPath) : null;
+                if(parentPath != null && parentNodeRef == null)
+                {
+                    continue;
+                }
+                String cached = categoryCache.getByPath(path);
+                if(cached != null)
+                {
+                    created.put(path, cached);
+                    continue;
+                }
+                // a category created by this call has no subcategories to look up
+                final boolean lookup = parentPath == null || !newPaths.contains(parentPath);
+                paths.add(path);
+                tasks.add(new Callable<String>()
+                {
+                    @Override
+                    public String call()
+                    {
+                        if(lookup)
+                        {
+                            String existing = getCategoryNodeRefByPath(adminUser, adminPass, path);
+                            if(!StringUtils.isEmpty(existing))
+                            {
+                                return existing;
+                            }
+                        }
+                        String nodeRef = createCategory(adminUser, adminPass, parentNodeRef, StringUtils.substringAfterLast("/" + path, "/"));
+                        if(nodeRef != null)
+                        {
+                            newPaths.add(path);
+                        }
+                        return nodeRef;
+                    }
+                });
+            }
+            List<String> nodeRefs = BatchExecutor.runAll(tasks, threads);
+            for(int i = 0; i < paths.size(); i++)
+            {
+                if(nodeRefs.get(i) != null)
+                {
+                    created.put(paths.get(i), nodeRefs.get(i));
+                    categoryCache.putPath(paths.get(i), nodeRefs.get(i));
+                }
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Create one category
+     * 
+     * @param parentNodeRef String node id of the parent category, null for a root category
+     * @return String node id of the new category, null if it was not created
+     */
+    @SuppressWarnings("unchecked")
+    private String createCategory(final String adminUser,
+                                  final String adminPass,
+                                  final String parentNodeRef,
+                                  final String categoryName)
+    {
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        String url = client.getApiUrl() + "category/workspace/SpacesStore/" + rootCategNodeRef;
+        String url = client.getApiUrl() + "category";
+        if(parentNodeRef != null)
+        {
+            url = url + "/workspace/SpacesStore/" + parentNodeRef;
+        }
         HttpPost post  = new HttpPost(url);
         JSONObject body = new JSONObject();
-        body.put("name", subCategory);
-        HttpResponse response = client.executeRequest(adminUser, adminPass, body, post);
-        if( HttpStatus.SC_OK == response.getStatusLine().getStatusCode())
+        body.put("name", categoryName);
+        post.setEntity(client.setMessageBody(body));
+        try
         {
-            if (logger.isTraceEnabled())
+            HttpResponse response = client.execute(adminUser, adminPass, post);
+            switch (response.getStatusLine().getStatusCode())
             {
-                logger.trace("Successfuly created root category " + subCategory);
+                case HttpStatus.SC_OK:
+                    if (logger.isTraceEnabled())
+                    {
+                        logger.trace("Successfuly created category " + categoryName);
+                    }
+                    String nodeRef = (String) client.readStream(response.getEntity()).get("persistedObject");
+                    return StringUtils.removeStart(nodeRef, "workspace://SpacesStore/");
+                case HttpStatus.SC_UNAUTHORIZED:
+                    throw new RuntimeException("Invalid user name or password");
+                default:
+                    logger.error("Unable to create category " + categoryName + " " +  response.toString());
+                    break;
             }
-            return true;
         }
-        else
+        finally
         {
-            logger.error("Unable to create category " + subCategory + " " +  response.toString());
+            post.releaseConnection();
+            client.close();
         }
-        return false;
+        return null;
     }
     
     /**
@@ -976,7 +1420,7 @@ public class UserService extends CMISUtil
                                   final String categoryName)
     {
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        String categNodeRef = getCategoryNodeRef(adminPass, adminPass, categoryName);
+        String categNodeRef = getCategoryNodeRef(adminUser, adminPass, categoryName);
         if(StringUtils.isEmpty(categNodeRef))
         {
             throw new RuntimeException("Category doesn't exists " + categoryName);
@@ -987,8 +1431,11 @@ public class UserService extends CMISUtil
         switch (response.getStatusLine().getStatusCode())
         {
             case HttpStatus.SC_OK:
+                // the subcategories are deleted as well, forget all the cached paths
+                categoryCache.clear();
                 return true;
             case HttpStatus.SC_NOT_FOUND:
+                categoryCache.clear();
                 throw new RuntimeException("Category doesn't exists " + categoryName);
             default:
                 logger.error("Unable to delete category: " + response.toString());
@@ -1067,7 +1514,8 @@ public class UserService extends CMISUtil
     }
     
     /**
-     * Delete all items from trashcan
+     * Delete all items from trashcan with a single request. Large archives
+     * are purged with {@link #purgeTrashcan} instead.
      * 
      * @param userName String user name
      * @param password String password
@@ -1138,4 +1586,237 @@ public class UserService extends CMISUtil
             client.close();
         }
     }
+
+    /**
+     * Purge the trashcan items that match the filter, page by page
+     * 
+     * @see #processTrashcan(String, String, TrashcanAction, TrashcanFilter, int, int, Consumer)
+     */
+    public int purgeTrashcan(final String userName,
+                             final String password,
+                             final TrashcanFilter filter,
+                             final int pageSize,
+                             final int threads,
+                             final Consumer<TrashcanProgress> listener)
+    {
+        return processTrashcan(userName, password, TrashcanAction.PURGE, filter, pageSize, threads, listener);
+    }
+
+    /**
+     * Restore the trashcan items that match the filter, page by page
+     * 
+     * @see #processTrashcan(String, String, TrashcanAction, TrashcanFilter, int, int, Consumer)
+     */
+    public int restoreTrashcan(final String userName,
+                               final String password,
+                               final TrashcanFilter filter,
+                               final int pageSize,
+                               final int threads,
+                               final Consumer<TrashcanProgress> listener)
+    {
+        return processTrashcan(userName, password, TrashcanAction.RESTORE, filter, pageSize, threads, listener);
+    }
+
+    /**
+     * Purge or restore the trashcan items that match the filter. The archive is read one page
+     * at a time and the items of the page are purged or restored concurrently, so large archives
+     * are emptied without a single long running request. Items purged or restored leave the archive,
+     * the next page is read after the items kept (not matching or failed).
+     * Admin users see the items of all the users, other users only the items they deleted.
+     * 
+     * @param userName String user name
+     * @param password String password
+     * @param action TrashcanAction purge or restore
+     * @param filter TrashcanFilter items to process, null for all the items
+     * @param pageSize int number of items read with one request
+     * @param threads int number of items purged or restored at the same time
+     * @param listener receives the progress after each page, may be null
+     * @return int number of items purged or restored
+     */
+    public int processTrashcan(final String userName,
+                               final String password,
+                               final TrashcanAction action,
+                               final TrashcanFilter filter,
+                               final int pageSize,
+                               final int threads,
+                               final Consumer<TrashcanProgress> listener)
+    {
+        if (StringUtils.isEmpty(userName) || StringUtils.isEmpty(password) || action == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        if(pageSize < 1)
+        {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+        if(threads < 1)
+        {
+            throw new IllegalArgumentException("Number of threads must be greater than 0");
+        }
+        int skipCount = 0;
+        int totalProcessed = 0;
+        int totalFailed = 0;
+        for(int page = 0; ; page++)
+        {
+            JSONArray nodes = getTrashcanPage(userName, password, filter, skipCount, pageSize);
+            List<String> nodeIds = new ArrayList<String>();
+            for(Object node : nodes)
+            {
+                if(matches((JSONObject) node, filter))
+                {
+                    nodeIds.add(StringUtils.substringAfterLast((String) ((JSONObject) node).get("nodeRef"), "/"));
+                }
+                else
+                {
+                    skipCount++;
+                }
+            }
+            int processed = processTrashcanItems(userName, password, action == TrashcanAction.RESTORE, nodeIds, threads);
+            int failed = nodeIds.size() - processed;
+            skipCount = skipCount + failed;
+            totalProcessed = totalProcessed + processed;
+            totalFailed = totalFailed + failed;
+            if(listener != null)
+            {
+                listener.accept(new TrashcanProgress(page, processed, failed, totalProcessed, totalFailed));
+            }
+            if(nodes.size() < pageSize)
+            {
+                break;
+            }
+        }
+        logger.info(action + " trashcan: " + totalProcessed + " items, " + totalFailed + " failed");
+        return totalProcessed;
+    }
+
+    /**
+     * Read one page of the archive
+     */
+    private JSONArray getTrashcanPage(final String userName,
+                                      final String password,
+                                      final TrashcanFilter filter,
+                                      final int skipCount,
+                                      final int maxItems)
+    {
+        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
+        String reqURL = client.getApiUrl() + "archive/workspace/SpacesStore?maxItems=" + maxItems + "&skipCount=" + skipCount;
+        if(filter != null && !StringUtils.isEmpty(filter.getName()))
+        {
+            try
+            {
+                reqURL = reqURL + "&nf=" + URIUtil.encodeWithinQuery(filter.getName());
+            }
+            catch (URIException e)
+            {
+                throw new RuntimeException("Failed to encode name filter " + filter.getName());
+            }
+        }
+        HttpGet get = new HttpGet(reqURL);
+        try
+        {
+            HttpResponse response = client.execute(userName, password, get);
+            switch (response.getStatusLine().getStatusCode())
+            {
+                case HttpStatus.SC_OK:
+                    JSONObject data = (JSONObject) client.readStream(response.getEntity()).get("data");
+                    return (JSONArray) data.get("deletedNodes");
+                case HttpStatus.SC_UNAUTHORIZED:
+                    throw new RuntimeException("Invalid user name or password");
+                default:
+                    throw new RuntimeException("Unable to read the trashcan: " + response.toString());
+            }
+        }
+        finally
+        {
+            get.releaseConnection();
+            client.close();
+        }
+    }
+
+    private boolean matches(final JSONObject node,
+                            final TrashcanFilter filter)
+    {
+        if(filter == null)
+        {
+            return true;
+        }
+        if(filter.getArchivedBy() != null && !filter.getArchivedBy().equalsIgnoreCase((String) node.get("archivedBy")))
+        {
+            return false;
+        }
+        if(filter.getSiteId() != null)
+        {
+            String displayPath = (String) node.get("displayPath");
+            if(!StringUtils.containsIgnoreCase(displayPath + "/", "/Sites/" + filter.getSiteId() + "/"))
+            {
+                return false;
+            }
+        }
+        if(filter.getArchivedAfter() != null || filter.getArchivedBefore() != null)
+        {
+            Date archivedDate;
+            try
+            {
+                archivedDate = Date.from(OffsetDateTime.parse((String) node.get("archivedDate")).toInstant());
+            }
+            catch (RuntimeException e)
+            {
+                return false;
+            }
+            if(filter.getArchivedAfter() != null && archivedDate.before(filter.getArchivedAfter()))
+            {
+                return false;
+            }
+            if(filter.getArchivedBefore() != null && !archivedDate.before(filter.getArchivedBefore()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Purge or restore the items, each worker sends the requests of its share of the items
+     * 
+     * @return int number of items purged or restored
+     */
+    private int processTrashcanItems(final String userName,
+                                     final String password,
+                                     final boolean recover,
+                                     final List<String> nodeIds,
+                                     final int threads)
+    {
+        final int workers = Math.min(threads, nodeIds.size());
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for(int w = 0; w < workers; w++)
+        {
+            final int worker = w;
+            tasks.add(new Callable<Integer>()
+            {
+                @Override
+                public Integer call()
+                {
+                    int count = 0;
+                    for(int i = worker; i < nodeIds.size(); i = i + workers)
+                    {
+                        if(manageTrashcan(userName, password, true, recover, nodeIds.get(i)))
+                        {
+                            count++;
+                        }
+                        else
+                        {
+                            logger.error("Unable to " + (recover ? "restore" : "purge") + " trashcan item " + nodeIds.get(i));
+                        }
+                    }
+                    return count;
+                }
+            });
+        }
+        int processed = 0;
+        for(Integer count : BatchExecutor.runAll(tasks, Math.max(workers, 1)))
+        {
+            processed = processed + count;
+        }
+        return processed;
+    }
 }
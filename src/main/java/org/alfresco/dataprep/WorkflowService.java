@@ -17,8 +17,16 @@ package org.alfresco.dataprep;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
+import org.alfresco.dataprep.ManifestRecord.RecordType;
+import org.alfresco.dataprep.ProcessTaskIndex.TaskEntry;
+import org.apache.chemistry.opencmis.client.api.Session;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -36,6 +44,7 @@ import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 /**
  *  Class to create new workflow processes.
@@ -47,6 +56,7 @@ public class WorkflowService extends CMISUtil
 {
     private static Log logger = LogFactory.getLog(WorkflowService.class);
     private String version = AlfrescoHttpClient.ALFRESCO_API_VERSION.replace("alfresco", "workflow");
+    @Autowired private ProcessTaskIndex processTaskIndex;
     public enum WorkflowType
     {
         NewTask("New Task","activitiAdhoc:1:4"),
@@ -106,34 +116,59 @@ public class WorkflowService extends CMISUtil
                                  final int requiredApprovePercent,
                                  final boolean sendEmail)
     {
-        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        String api = client.getAlfrescoUrl() + "alfresco/api/" + version + "processes";
-        logger.info("Create process using url: " + api);
-        DateTimeFormatter dtf = DateTimeFormat.forPattern("yyyy-MM-dd'T'Z");
-        SimpleDateFormat fullFormat = new SimpleDateFormat("yyyy-MM-dd'T'Z");
-        String dueDate = fullFormat.format(due);
-        DateTime dateTime = dtf.parseDateTime(dueDate);
-        HttpPost post = new HttpPost(api);
-        JSONObject body = new JSONObject();
-        body.put("processDefinitionId", workflowType.getId());
-        JSONArray items = new JSONArray();
+        List<String> items = new ArrayList<String>();
         if(!(docsToAttach == null) || !(pathsToDocs == null))
         {
             if(!docsByPath)
             {
                 for(int i = 0; i<docsToAttach.size(); i++)
                 {
-                    items.add(getNodeRef(userName, password, documentsSite, docsToAttach.get(i)));
+                    items.add(getCachedNodeRef(userName, password, documentsSite, docsToAttach.get(i)));
                 }
             }
             else
             {
                 for(int i=0; i<pathsToDocs.size(); i++)
                 {
-                    items.add(getNodeRefByPath(userName, password, pathsToDocs.get(i)));
+                    items.add(getCachedNodeRefByPath(userName, password, pathsToDocs.get(i)));
                 }
             }
         }
+        return startProcess(userName, password, workflowType, message, due, priority, assignedUsers, assignedGroup,
+                documentsSite, items, requiredApprovePercent, sendEmail);
+    }
+
+    /**
+     * Start a workflow process with items already resolved to node refs
+     * 
+     * @return String workflow id, empty if the process was not started
+     */
+    @SuppressWarnings("unchecked")
+    private String startProcess(final String userName,
+                                final String password,
+                                final WorkflowType workflowType,
+                                final String message,
+                                final Date due,
+                                final Priority priority,
+                                final List<String> assignedUsers,
+                                final String assignedGroup,
+                                final String documentsSite,
+                                final List<String> itemNodeRefs,
+                                final int requiredApprovePercent,
+                                final boolean sendEmail)
+    {
+        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
+        String api = client.getAlfrescoUrl() + "alfresco/api/" + version + "processes";
+        logger.info("Create process using url: " + api);
+        DateTimeFormatter dtf = DateTimeFormat.forPattern("yyyy-MM-dd'T'Z");
+        SimpleDateFormat fullFormat = new SimpleDateFormat("yyyy-MM-dd'T'Z");
+        String dueDate = fullFormat.format(due);
+        DateTime dateTime = dtf.parseDateTime(dueDate);
+        HttpPost post = new HttpPost(api);
+        JSONObject body = new JSONObject();
+        body.put("processDefinitionId", workflowType.getId());
+        JSONArray items = new JSONArray();
+        items.addAll(itemNodeRefs);
         JSONObject variables = new JSONObject();
         if(workflowType.equals(WorkflowType.GroupReview) || workflowType.equals(WorkflowType.PooledReview))
         {
@@ -169,7 +204,9 @@ public class WorkflowService extends CMISUtil
                     {
                         logger.trace("Successfuly started workflow: " + message);
                     }
-                    return client.getParameterFromJSON(response, "id", "entry");
+                    String workflowId = client.getParameterFromJSON(response, "id", "entry");
+                    manifestRecorder.record(RecordType.WORKFLOW, workflowId, workflowType.getTitle(), documentsSite, null, userName);
+                    return workflowId;
                 default:
                     logger.error("Unable to start workflow " + response.toString());
             }
@@ -479,33 +516,78 @@ public class WorkflowService extends CMISUtil
     public String getTaskId(final String assignedUser,
                             final String password,
                             final String workflowId)
+    {
+        String taskId = findTaskId(assignedUser, password, workflowId);
+        if(!StringUtils.isEmpty(taskId))
+        {
+            manifestRecorder.record(RecordType.TASK, taskId, null, null, workflowId, assignedUser);
+        }
+        return taskId;
+    }
+
+    private String findTaskId(final String assignedUser,
+                              final String password,
+                              final String workflowId)
+    {
+        TaskEntry task = findTask(assignedUser, password, workflowId);
+        if(task == null)
+        {
+            return "";
+        }
+        return task.getId();
+    }
+
+    /**
+     * Find the task of a process assigned to the user or waiting in the pool.
+     * The process task index is used first, the tasks are listed from the server
+     * (and indexed) only if the index has no such task.
+     * 
+     * @return TaskEntry task, null if not found
+     */
+    private TaskEntry findTask(final String assignedUser,
+                               final String password,
+                               final String workflowId)
+    {
+        TaskEntry task = processTaskIndex.findTask(workflowId, assignedUser);
+        if(task != null)
+        {
+            return task;
+        }
+        List<TaskEntry> tasks = listTasks(assignedUser, password, workflowId);
+        if(tasks == null)
+        {
+            return null;
+        }
+        processTaskIndex.putTasks(workflowId, tasks);
+        return processTaskIndex.findTask(workflowId, assignedUser);
+    }
+
+    /**
+     * List the tasks of a process from the server
+     * 
+     * @return List<TaskEntry> tasks, null if the process is not found
+     */
+    private List<TaskEntry> listTasks(final String userName,
+                                      final String password,
+                                      final String workflowId)
     {
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
         String api = client.getAlfrescoUrl() + "alfresco/api/" + version + "processes/" + workflowId + "/tasks";
         HttpGet get = new HttpGet(api);
         try
         {
-            HttpResponse response = client.executeRequest(assignedUser, password, get);
+            HttpResponse response = client.executeRequest(userName, password, get);
             if (HttpStatus.SC_OK == response.getStatusLine().getStatusCode())
             {
+                List<TaskEntry> tasks = new ArrayList<TaskEntry>();
                 JSONArray jArray = client.getJSONArray(response, "list", "entries");
                 for (Object item:jArray)
                 {
                     JSONObject jobject = (JSONObject) item;
                     JSONObject entry = (JSONObject) jobject.get("entry");
-                    String assignee = (String) entry.get("assignee");
-                    if(!StringUtils.isEmpty(assignee))
-                    {
-                        if(assignee.equals(assignedUser))
-                        {
-                            return (String) entry.get("id");
-                        }
-                    }
-                    if(entry.get("state").equals("unclaimed"))
-                    {
-                        return (String) entry.get("id");
-                    }
+                    tasks.add(new TaskEntry((String) entry.get("id"), (String) entry.get("assignee"), (String) entry.get("state")));
                 }
+                return tasks;
             }
         }
         finally
@@ -513,14 +595,43 @@ public class WorkflowService extends CMISUtil
             client.close();
             get.releaseConnection();
         }
-        return "";
+        return null;
+    }
+
+    /**
+     * Check the indexed tasks of a process against the server. The index is refreshed
+     * with the tasks listed from the server.
+     * 
+     * @param userName String user name
+     * @param password String password
+     * @param workflowId String workflow id
+     * @return true if the index was consistent with the server
+     */
+    public boolean verifyTaskIndex(final String userName,
+                                   final String password,
+                                   final String workflowId)
+    {
+        List<TaskEntry> tasks = listTasks(userName, password, workflowId);
+        if(tasks == null)
+        {
+            boolean indexed = processTaskIndex.getTasks(workflowId) != null;
+            processTaskIndex.removeProcess(workflowId);
+            return !indexed;
+        }
+        boolean consistent = processTaskIndex.matches(workflowId, tasks);
+        if(!consistent)
+        {
+            logger.warn("Process task index out of date for " + workflowId + ": " + processTaskIndex.getTasks(workflowId) + " on server: " + tasks);
+        }
+        processTaskIndex.putTasks(workflowId, tasks);
+        return consistent;
     }
     
     private String checkTaskId(final String assignedUser,
                                final String password,
                                final String workflowId)
     {
-        String taskId = getTaskId(assignedUser, password, workflowId);
+        String taskId = findTaskId(assignedUser, password, workflowId);
         if(StringUtils.isEmpty(taskId))
         {
             throw new RuntimeException("Invalid process id (" + workflowId +") or wrong assigned user ->" + assignedUser);
@@ -541,9 +652,16 @@ public class WorkflowService extends CMISUtil
                                     final String password,
                                     final String workflowId,
                                     final TaskStatus status)
+    {
+        return updateTaskStatusById(assignedUser, password, checkTaskId(assignedUser, password, workflowId), status);
+    }
+
+    private boolean updateTaskStatusById(final String assignedUser,
+                                         final String password,
+                                         final String taskId,
+                                         final TaskStatus status)
     {
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        String taskId = checkTaskId(assignedUser, password, workflowId);
         String api = client.getAlfrescoUrl() + "alfresco/api/" + version + "tasks/" + taskId + "/variables";
         HttpPost post = new HttpPost(api); 
         String jsonInput =  "[{" + "\"name\": \"bpm_status\",\"value\": \"" + status.getStatus() + "\", \"scope\": \"local\"";
@@ -561,7 +679,8 @@ public class WorkflowService extends CMISUtil
                 }
                 return true;
             case HttpStatus.SC_NOT_FOUND:
-                throw new RuntimeException("Invalid process id: " + workflowId);
+                processTaskIndex.removeTaskProcess(taskId);
+                throw new RuntimeException("Invalid task id: " + taskId);
             default:
                 logger.error("Unable to change the task status " + response.toString());
                 break;
@@ -578,14 +697,21 @@ public class WorkflowService extends CMISUtil
      * @param reassignTo String user to reassign task
      * @return
      */
-    @SuppressWarnings("unchecked")
     public boolean reassignTask(final String assignedUser,
                                 final String password,
                                 final String workflowId,
                                 final String reassignTo)
+    {
+        return reassignTaskById(assignedUser, password, checkTaskId(assignedUser, password, workflowId), reassignTo);
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean reassignTaskById(final String assignedUser,
+                                     final String password,
+                                     final String taskId,
+                                     final String reassignTo)
     {
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        String taskId = checkTaskId(assignedUser, password, workflowId);
         String api = client.getAlfrescoUrl() + "alfresco/api/" + version + "tasks/" + taskId + "?select=state,assignee";
         HttpPut put = new HttpPut(api);
         JSONObject body = new JSONObject();
@@ -599,9 +725,11 @@ public class WorkflowService extends CMISUtil
                 {
                     logger.trace("Successfuly reassigned the task to " + reassignTo);
                 }
+                processTaskIndex.updateTask(taskId, reassignTo, "delegated");
                 return true;
             case HttpStatus.SC_NOT_FOUND:
-                throw new RuntimeException("Invalid process id: " + workflowId);
+                processTaskIndex.removeTaskProcess(taskId);
+                throw new RuntimeException("Invalid task id: " + taskId);
             default:
                 logger.error("Unable to reassign the task to " + reassignTo + " " + response.toString());
                 break;
@@ -619,15 +747,23 @@ public class WorkflowService extends CMISUtil
      * @param comment String comment
      * @return true if task is completed
      */
-    @SuppressWarnings("unchecked")
     public boolean taskDone(final String assignedUser,
                             final String password,
                             final String workflowId,
                             final TaskStatus status,
                             final String comment)
+    {
+        return taskDoneById(assignedUser, password, checkTaskId(assignedUser, password, workflowId), status, comment);
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean taskDoneById(final String assignedUser,
+                                 final String password,
+                                 final String taskId,
+                                 final TaskStatus status,
+                                 final String comment)
     {
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        String taskId = checkTaskId(assignedUser, password, workflowId);
         String api = client.getAlfrescoUrl() + "alfresco/api/" + version + "tasks/" + taskId + "?select=state,variables";
         HttpPut put = new HttpPut(api);
         JSONObject body = new JSONObject();
@@ -655,9 +791,11 @@ public class WorkflowService extends CMISUtil
                 {
                     logger.trace("Successfuly completed task " + taskId);
                 }
+                processTaskIndex.removeTaskProcess(taskId);
                 return true;
             case HttpStatus.SC_NOT_FOUND:
-                throw new RuntimeException("Invalid process id: " + workflowId);
+                processTaskIndex.removeTaskProcess(taskId);
+                throw new RuntimeException("Invalid task id: " + taskId);
             default:
                 logger.error("Unable to complete the task " + taskId + " " + response.toString());
                 break;
@@ -666,13 +804,12 @@ public class WorkflowService extends CMISUtil
     }
     
     @SuppressWarnings("unchecked")
-    private boolean claimTask(final String assignedUser,
-                              final String password,
-                              final String workflowId,
-                              final boolean claim)
+    private boolean claimTaskById(final String assignedUser,
+                                  final String password,
+                                  final String taskId,
+                                  final boolean claim)
     {
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        String taskId = checkTaskId(assignedUser, password, workflowId);
         String api = client.getAlfrescoUrl() + "alfresco/api/" + version + "tasks/" + taskId + "?select=state";
         HttpPut put = new HttpPut(api);
         JSONObject body = new JSONObject();
@@ -692,9 +829,18 @@ public class WorkflowService extends CMISUtil
                 {
                     logger.trace("Successfuly executed " + put);
                 }
+                if(claim)
+                {
+                    processTaskIndex.updateTask(taskId, assignedUser, "claimed");
+                }
+                else
+                {
+                    processTaskIndex.updateTask(taskId, null, "unclaimed");
+                }
                 return true;
             case HttpStatus.SC_NOT_FOUND:
-                throw new RuntimeException("Invalid process id: " + workflowId);
+                processTaskIndex.removeTaskProcess(taskId);
+                throw new RuntimeException("Invalid task id: " + taskId);
             default:
                 logger.error("Unable to execute request " + taskId + " " + response.toString());
                 break;
@@ -714,7 +860,7 @@ public class WorkflowService extends CMISUtil
                              final String password,
                              final String workflowId)
     {
-        return claimTask(assignedUser, password, workflowId, true);
+        return claimTaskById(assignedUser, password, checkTaskId(assignedUser, password, workflowId), true);
     }
     
     /**
@@ -729,7 +875,7 @@ public class WorkflowService extends CMISUtil
                                  final String password,
                                  final String workflowId)
     {
-        return claimTask(assignedUser, password, workflowId, false);
+        return claimTaskById(assignedUser, password, checkTaskId(assignedUser, password, workflowId), false);
     }
     
     /**
@@ -743,16 +889,25 @@ public class WorkflowService extends CMISUtil
      * @param comment String comment
      * @return 200 OK if successful
      */
-    @SuppressWarnings("unchecked")
     public boolean approveTask(final String assignedUser,
                                final String password,
                                final String workflowId,
                                final boolean approve,
                                final TaskStatus status,
                                final String comment)
+    {
+        return approveTaskById(assignedUser, password, checkTaskId(assignedUser, password, workflowId), approve, status, comment);
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean approveTaskById(final String assignedUser,
+                                    final String password,
+                                    final String taskId,
+                                    final boolean approve,
+                                    final TaskStatus status,
+                                    final String comment)
     {
         AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        String taskId = checkTaskId(assignedUser, password, workflowId);
         String api = client.getAlfrescoUrl() + "alfresco/s/api/task/activiti%24" + taskId + "/formprocessor";
         HttpPost post = new HttpPost(api);
         JSONObject data = new JSONObject();
@@ -775,9 +930,11 @@ public class WorkflowService extends CMISUtil
                 {
                     logger.trace("Successfuly executed " + post);
                 }
+                processTaskIndex.removeTaskProcess(taskId);
                 return true;
             case HttpStatus.SC_NOT_FOUND:
-                throw new RuntimeException("Invalid process id: " + workflowId);
+                processTaskIndex.removeTaskProcess(taskId);
+                throw new RuntimeException("Invalid task id: " + taskId);
             default:
                 logger.error("Unable to execute request " + taskId + " " + response.toString());
                 break;
@@ -808,6 +965,7 @@ public class WorkflowService extends CMISUtil
                  {
                      logger.trace("Successfuly canceled workflow " + workflowId);
                  }
+                 processTaskIndex.removeProcess(workflowId);
                  return true;
              case HttpStatus.SC_NOT_FOUND:
                  throw new RuntimeException("Invalid process id: " + workflowId);
@@ -841,6 +999,7 @@ public class WorkflowService extends CMISUtil
                  {
                      logger.trace("Successfuly deleted workflow " + workflowID);
                  }
+                 processTaskIndex.removeProcess(workflowID);
                  return true;
              case HttpStatus.SC_NOT_FOUND:
                  throw new RuntimeException("Invalid process id: " + workflowID);
@@ -867,11 +1026,11 @@ public class WorkflowService extends CMISUtil
         JSONObject data = new JSONObject();
         if(!byPath)
         {
-            data.put("id", getNodeRef(assignedUser, password, itemsSite, itemName));
+            data.put("id", getCachedNodeRef(assignedUser, password, itemsSite, itemName));
         }
         else
         {
-            data.put("id", getNodeRefByPath(assignedUser, password, pathToItem));
+            data.put("id", getCachedNodeRefByPath(assignedUser, password, pathToItem));
         }
         HttpResponse response = client.executeRequest(assignedUser, password, data, post);
         switch (response.getStatusLine().getStatusCode())
@@ -926,5 +1085,493 @@ public class WorkflowService extends CMISUtil
     {
         return addItemToTask(assignedUser, password, workflowId, true, null, null, pathToItem);
     }
-}
 
+    /**
+     * State a task is moved to by {@link WorkflowService#startWorkflows}
+     */
+    public enum TaskTarget
+    {
+        CLAIMED,
+        REASSIGNED,
+        APPROVED,
+        REJECTED,
+        COMPLETED;
+    }
+
+    /**
+     * Workflow to be started by {@link WorkflowService#startWorkflows}.
+     * Items are added either from a site or by path. If a target is set, the task of the
+     * process is moved to that state by the task user (the first assignee if not set).
+     */
+    public static class WorkflowRequest
+    {
+        private final WorkflowType workflowType;
+        private final String message;
+        private final Date dueDate;
+        private final Priority priority;
+        private final List<String> assignedUsers;
+        private final String assignedGroup;
+        private String documentsSite;
+        private List<String> documents;
+        private List<String> pathsToDocuments;
+        private int requiredApprovePercent;
+        private boolean sendEmail;
+        private TaskTarget target;
+        private String taskUser;
+        private String taskPassword;
+        private String reassignTo;
+        private TaskStatus taskStatus = TaskStatus.COMPLETED;
+        private String comment;
+
+        /**
+         * @param workflowType workflow type
+         * @param message workflow description
+         * @param dueDate due date
+         * @param priority priority
+         * @param assignedUsers assignees, not used for group and pooled reviews
+         * @param assignedGroup group name, used only for group and pooled reviews
+         */
+        public WorkflowRequest(final WorkflowType workflowType,
+                               final String message,
+                               final Date dueDate,
+                               final Priority priority,
+                               final List<String> assignedUsers,
+                               final String assignedGroup)
+        {
+            if(workflowType == null || dueDate == null || priority == null)
+            {
+                throw new IllegalArgumentException("Parameter missing");
+            }
+            boolean groupWorkflow = workflowType == WorkflowType.GroupReview || workflowType == WorkflowType.PooledReview;
+            if(groupWorkflow ? StringUtils.isEmpty(assignedGroup) : assignedUsers == null || assignedUsers.isEmpty())
+            {
+                throw new IllegalArgumentException("Parameter missing");
+            }
+            this.workflowType = workflowType;
+            this.message = message;
+            this.dueDate = dueDate;
+            this.priority = priority;
+            this.assignedUsers = assignedUsers;
+            this.assignedGroup = assignedGroup;
+        }
+
+        /**
+         * @param documentsSite site containing the items
+         * @param documents names of the items
+         */
+        public void setDocuments(final String documentsSite,
+                                 final List<String> documents)
+        {
+            this.documentsSite = documentsSite;
+            this.documents = documents;
+            this.pathsToDocuments = null;
+        }
+
+        /**
+         * @param pathsToDocuments paths to the items (e.g. Sites/siteId/documentLibrary/doc.txt)
+         */
+        public void setPathsToDocuments(final List<String> pathsToDocuments)
+        {
+            this.pathsToDocuments = pathsToDocuments;
+            this.documentsSite = null;
+            this.documents = null;
+        }
+
+        /**
+         * @param target state of the task once the process is started, {@link TaskTarget#REASSIGNED}
+         * requires the reassign user to be set before
+         * @param taskUser user acting on the task, null for the first assignee. Required for group and pooled reviews
+         * @param taskPassword password of the task user, null for the password of the workflow starter
+         * @throws IllegalArgumentException if the task user or the reassign user is missing
+         */
+        public void setTarget(final TaskTarget target,
+                              final String taskUser,
+                              final String taskPassword)
+        {
+            if(target != null && StringUtils.isEmpty(taskUser) && (assignedUsers == null || assignedUsers.isEmpty()))
+            {
+                throw new IllegalArgumentException("Task user is required for " + workflowType);
+            }
+            if(target == TaskTarget.REASSIGNED && StringUtils.isEmpty(reassignTo))
+            {
+                throw new IllegalArgumentException("Reassign user is required for " + target);
+            }
+            this.target = target;
+            this.taskUser = taskUser;
+            this.taskPassword = taskPassword;
+        }
+
+        public WorkflowType getWorkflowType()
+        {
+            return workflowType;
+        }
+
+        public String getMessage()
+        {
+            return message;
+        }
+
+        public Date getDueDate()
+        {
+            return dueDate;
+        }
+
+        public Priority getPriority()
+        {
+            return priority;
+        }
+
+        public List<String> getAssignedUsers()
+        {
+            return assignedUsers;
+        }
+
+        public String getAssignedGroup()
+        {
+            return assignedGroup;
+        }
+
+        public String getDocumentsSite()
+        {
+            return documentsSite;
+        }
+
+        public List<String> getDocuments()
+        {
+            return documents;
+        }
+
+        public List<String> getPathsToDocuments()
+        {
+            return pathsToDocuments;
+        }
+
+        public int getRequiredApprovePercent()
+        {
+            return requiredApprovePercent;
+        }
+
+        public void setRequiredApprovePercent(int requiredApprovePercent)
+        {
+            this.requiredApprovePercent = requiredApprovePercent;
+        }
+
+        public boolean isSendEmail()
+        {
+            return sendEmail;
+        }
+
+        public void setSendEmail(boolean sendEmail)
+        {
+            this.sendEmail = sendEmail;
+        }
+
+        public TaskTarget getTarget()
+        {
+            return target;
+        }
+
+        public String getTaskUser()
+        {
+            return taskUser;
+        }
+
+        public String getTaskPassword()
+        {
+            return taskPassword;
+        }
+
+        public String getReassignTo()
+        {
+            return reassignTo;
+        }
+
+        /**
+         * @param reassignTo user the task is reassigned to, required for {@link TaskTarget#REASSIGNED}
+         */
+        public void setReassignTo(String reassignTo)
+        {
+            if(target == TaskTarget.REASSIGNED && StringUtils.isEmpty(reassignTo))
+            {
+                throw new IllegalArgumentException("Reassign user is required for " + target);
+            }
+            this.reassignTo = reassignTo;
+        }
+
+        public TaskStatus getTaskStatus()
+        {
+            return taskStatus;
+        }
+
+        /**
+         * @param taskStatus status set when the task is approved, rejected or completed
+         */
+        public void setTaskStatus(TaskStatus taskStatus)
+        {
+            this.taskStatus = taskStatus;
+        }
+
+        public String getComment()
+        {
+            return comment;
+        }
+
+        public void setComment(String comment)
+        {
+            this.comment = comment;
+        }
+    }
+
+    /**
+     * Outcome of one {@link WorkflowRequest}
+     */
+    public static class WorkflowResult
+    {
+        private final WorkflowRequest request;
+        private final String workflowId;
+        private final String taskId;
+        private final boolean successful;
+        private final String error;
+
+        private WorkflowResult(final WorkflowRequest request,
+                               final String workflowId,
+                               final String taskId,
+                               final boolean successful,
+                               final String error)
+        {
+            this.request = request;
+            this.workflowId = workflowId;
+            this.taskId = taskId;
+            this.successful = successful;
+            this.error = error;
+        }
+
+        public WorkflowRequest getRequest()
+        {
+            return request;
+        }
+
+        /**
+         * @return workflow id, empty if the process was not started
+         */
+        public String getWorkflowId()
+        {
+            return workflowId;
+        }
+
+        /**
+         * @return task id, null if no target was requested or the task was not found
+         */
+        public String getTaskId()
+        {
+            return taskId;
+        }
+
+        public boolean isSuccessful()
+        {
+            return successful;
+        }
+
+        public String getError()
+        {
+            return error;
+        }
+    }
+
+    /**
+     * Start many workflows and move their tasks to the requested state.
+     * The items of all the workflows are resolved once before starting: one walk of the
+     * document library for each site and one lookup for each distinct path, kept in the node ref cache.
+     * An item that can't be resolved fails only the workflows using it.
+     * Workflows are started concurrently, the task of each process is looked up once, right after
+     * the process is started, and all the task operations use that task id.
+     * 
+     * @param userName String user starting the workflows
+     * @param password String password
+     * @param requests List<WorkflowRequest> workflows to start
+     * @param threads int number of workflows processed at the same time
+     * @return List<WorkflowResult> results, in the same order as the requests
+     */
+    public List<WorkflowResult> startWorkflows(final String userName,
+                                               final String password,
+                                               final List<WorkflowRequest> requests,
+                                               final int threads)
+    {
+        if (StringUtils.isEmpty(userName) || StringUtils.isEmpty(password) || requests == null)
+        {
+            throw new IllegalArgumentException("Parameter missing");
+        }
+        resolveItems(userName, password, requests);
+        List<Callable<WorkflowResult>> tasks = new ArrayList<Callable<WorkflowResult>>();
+        for(final WorkflowRequest request : requests)
+        {
+            tasks.add(new Callable<WorkflowResult>()
+            {
+                @Override
+                public WorkflowResult call()
+                {
+                    return startWorkflow(userName, password, request);
+                }
+            });
+        }
+        return BatchExecutor.runAll(tasks, threads);
+    }
+
+    /**
+     * Fill the node ref cache with the items of the requests. Sites and paths that fail are
+     * skipped, their items are resolved again by each workflow and fail that workflow only.
+     */
+    private void resolveItems(final String userName,
+                              final String password,
+                              final List<WorkflowRequest> requests)
+    {
+        Map<String, List<String>> documentsBySite = new LinkedHashMap<String, List<String>>();
+        Set<String> paths = new LinkedHashSet<String>();
+        for(WorkflowRequest request : requests)
+        {
+            if(request.getDocuments() != null)
+            {
+                List<String> siteDocuments = documentsBySite.get(request.getDocumentsSite());
+                if(siteDocuments == null)
+                {
+                    siteDocuments = new ArrayList<String>();
+                    documentsBySite.put(request.getDocumentsSite(), siteDocuments);
+                }
+                siteDocuments.addAll(request.getDocuments());
+            }
+            else if(request.getPathsToDocuments() != null)
+            {
+                paths.addAll(request.getPathsToDocuments());
+            }
+        }
+        Session session = null;
+        for(Map.Entry<String, List<String>> site : documentsBySite.entrySet())
+        {
+            boolean cached = true;
+            for(String document : site.getValue())
+            {
+                cached = cached && nodeRefCache.get(userName, site.getKey(), document) != null;
+            }
+            if(!cached)
+            {
+                try
+                {
+                    if(session == null)
+                    {
+                        session = getCMISSession(userName, password);
+                    }
+                    for(Map.Entry<String, String> content : getNodeRefs(session, site.getKey()).entrySet())
+                    {
+                        nodeRefCache.put(userName, site.getKey(), content.getKey(), content.getValue());
+                    }
+                }
+                catch (RuntimeException e)
+                {
+                    logger.error("Unable to read the items of site " + site.getKey(), e);
+                }
+            }
+        }
+        for(String path : paths)
+        {
+            try
+            {
+                getCachedNodeRefByPath(userName, password, path);
+            }
+            catch (RuntimeException e)
+            {
+                logger.error("Unable to find item " + path, e);
+            }
+        }
+    }
+
+    private WorkflowResult startWorkflow(final String userName,
+                                         final String password,
+                                         final WorkflowRequest request)
+    {
+        String workflowId = "";
+        String taskId = null;
+        try
+        {
+            List<String> items = new ArrayList<String>();
+            if(request.getDocuments() != null)
+            {
+                for(String document : request.getDocuments())
+                {
+                    String nodeRef = getCachedNodeRef(userName, password, request.getDocumentsSite(), document);
+                    if(StringUtils.isEmpty(nodeRef))
+                    {
+                        return new WorkflowResult(request, workflowId, null, false, "Item not found " + document);
+                    }
+                    items.add(nodeRef);
+                }
+            }
+            else if(request.getPathsToDocuments() != null)
+            {
+                for(String path : request.getPathsToDocuments())
+                {
+                    String nodeRef = getCachedNodeRefByPath(userName, password, path);
+                    if(StringUtils.isEmpty(nodeRef))
+                    {
+                        return new WorkflowResult(request, workflowId, null, false, "Item not found " + path);
+                    }
+                    items.add(nodeRef);
+                }
+            }
+            workflowId = startProcess(userName, password, request.getWorkflowType(), request.getMessage(), request.getDueDate(),
+                    request.getPriority(), request.getAssignedUsers(), request.getAssignedGroup(), request.getDocumentsSite(),
+                    items, request.getRequiredApprovePercent(), request.isSendEmail());
+            if(StringUtils.isEmpty(workflowId))
+            {
+                return new WorkflowResult(request, workflowId, null, false, "Unable to start workflow");
+            }
+            if(request.getTarget() == null)
+            {
+                return new WorkflowResult(request, workflowId, null, true, null);
+            }
+            String taskUser = request.getTaskUser() != null ? request.getTaskUser() : request.getAssignedUsers().get(0);
+            String taskPassword = request.getTaskPassword() != null ? request.getTaskPassword() : password;
+            TaskEntry task = findTask(taskUser, taskPassword, workflowId);
+            if(task == null)
+            {
+                return new WorkflowResult(request, workflowId, null, false, "No task found for " + taskUser);
+            }
+            taskId = task.getId();
+            manifestRecorder.record(RecordType.TASK, taskId, null, null, workflowId, taskUser);
+            boolean done = moveTask(taskUser, taskPassword, taskId, "unclaimed".equals(task.getState()), request);
+            return new WorkflowResult(request, workflowId, taskId, done, done ? null : "Unable to move task to " + request.getTarget());
+        }
+        catch (RuntimeException e)
+        {
+            logger.error("Unable to process workflow " + request.getMessage(), e);
+            return new WorkflowResult(request, workflowId, taskId, false, e.getMessage());
+        }
+    }
+
+    /**
+     * Move a task to the requested state. Pooled tasks are claimed first.
+     */
+    private boolean moveTask(final String taskUser,
+                             final String taskPassword,
+                             final String taskId,
+                             final boolean unclaimed,
+                             final WorkflowRequest request)
+    {
+        if(unclaimed && !claimTaskById(taskUser, taskPassword, taskId, true))
+        {
+            return false;
+        }
+        switch (request.getTarget())
+        {
+            case CLAIMED:
+                return unclaimed || claimTaskById(taskUser, taskPassword, taskId, true);
+            case REASSIGNED:
+                return reassignTaskById(taskUser, taskPassword, taskId, request.getReassignTo());
+            case APPROVED:
+                return approveTaskById(taskUser, taskPassword, taskId, true, request.getTaskStatus(), request.getComment());
+            case REJECTED:
+                return approveTaskById(taskUser, taskPassword, taskId, false, request.getTaskStatus(), request.getComment());
+            default:
+                return taskDoneById(taskUser, taskPassword, taskId, request.getTaskStatus(), request.getComment());
+        }
+    }
+}
@@ -15,6 +15,8 @@
 package org.alfresco.test.util;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
@@ -35,4 +37,18 @@ public class AbstractTest extends AbstractTestNGSpringContextTests
     protected static final String domain = "@test";
     protected final String password = "password";
     @Autowired protected static ApplicationContext ctx;
+
+    /**
+     * Listener of a batch keeping the results in the order they are received
+     */
+    protected static class ResultList<T> extends ArrayList<T> implements Consumer<T>
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void accept(T result)
+        {
+            add(result);
+        }
+    }
 }
@@ -21,6 +21,15 @@ import java.util.Map;
 
 import org.alfresco.dataprep.CMISUtil.DocumentType;
 import org.alfresco.dataprep.ContentActions;
+import org.alfresco.dataprep.ContentActions.ActionType;
+import org.alfresco.dataprep.ContentActions.BatchAction;
+import org.alfresco.dataprep.ContentActions.BatchActionResult;
+import org.alfresco.dataprep.ContentActions.MoveItem;
+import org.alfresco.dataprep.ContentActions.MoveResult;
+import org.alfresco.dataprep.ContentActions.PermissionEntry;
+import org.alfresco.dataprep.ContentActions.PermissionResult;
+import org.alfresco.dataprep.ContentActions.VersionHistory;
+import org.alfresco.dataprep.ContentActions.VersionMode;
 import org.alfresco.dataprep.ContentAspects;
 import org.alfresco.dataprep.ContentService;
 import org.alfresco.dataprep.GroupService;
@@ -29,7 +38,9 @@ import org.alfresco.dataprep.UserService;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.api.Folder;
 import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.Session;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.Ace;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.social.alfresco.api.entities.Site.Visibility;
@@ -417,6 +428,27 @@ public class ContentActionsTests extends AbstractTest
         Assert.assertTrue(content.getDocumentContent(userName, password, siteName, docName).equals("third edit"));
     }
     
+    @Test
+    public void createVersionHistory()
+    {
+        String docName1 = "versionDoc1" + System.currentTimeMillis();
+        String docName2 = "versionDoc2" + System.currentTimeMillis();
+        content.createDocument(userName, password, siteName, DocumentType.TEXT_PLAIN, docName1, docName1);
+        content.createDocument(userName, password, siteName, DocumentType.TEXT_PLAIN, docName2, docName2);
+        List<VersionHistory> documents = new ArrayList<VersionHistory>();
+        VersionHistory history = new VersionHistory(siteName, docName1, 5);
+        history.setMajorEvery(2);
+        history.setContentSize(100);
+        documents.add(history);
+        history = new VersionHistory(siteName, docName2, 3);
+        history.setMode(VersionMode.SET_CONTENT);
+        documents.add(history);
+        Assert.assertEquals(contentAction.createVersionHistory(userName, password, documents, 2), 8);
+        Assert.assertEquals(contentAction.getVersion(userName, password, siteName, docName1), "3.1");
+        Assert.assertEquals(content.getDocumentContent(userName, password, siteName, docName1).length(), 100);
+        Assert.assertNotEquals(contentAction.getVersion(userName, password, siteName, docName2), "1.0");
+    }
+    
     @Test
     public void folderCopyTo()
     {
@@ -436,6 +468,36 @@ public class ContentActionsTests extends AbstractTest
         Assert.assertTrue(objectCopied.getFolderParent().getName().equals(targetFolder));
     }
     
+    @Test
+    public void copyFolderTree()
+    {
+        String copyDoc = "treeFile" + System.currentTimeMillis();
+        String targetFolder = "treeTarget" + System.currentTimeMillis();
+        String sourceFolder = "treeSource" + System.currentTimeMillis();
+        String subFolder = "treeSub" + System.currentTimeMillis();
+        content.createFolder(userName, password, targetFolder, siteName);
+        Folder f1 = content.createFolder(userName, password, sourceFolder, siteName);
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(PropertyIds.OBJECT_TYPE_ID, "cmis:folder");
+        properties.put(PropertyIds.NAME, subFolder);
+        f1.createFolder(properties);
+        content.createDocumentInFolder(userName, password, siteName, sourceFolder, DocumentType.TEXT_PLAIN, copyDoc, copyDoc);
+        content.createDocumentInFolder(userName, password, siteName, subFolder, DocumentType.TEXT_PLAIN, copyDoc + "R1", copyDoc + "R1");
+        Map<String, String> copies = contentAction.copyFolderTree(userName, password, siteName, sourceFolder, siteName, targetFolder, 2, false);
+        Assert.assertEquals(copies.size(), 4);
+        Assert.assertFalse(copies.containsValue(null));
+        Assert.assertFalse(copies.get(f1.getId()).equals(f1.getId()));
+        Assert.assertEquals(content.getFolderObject(content.getCMISSession(userName, password), siteName, targetFolder)
+                .getChildren().iterator().next().getId(), copies.get(f1.getId()));
+        // documents are mapped by node ref, as returned by the other apis
+        String docNodeRef = content.getNodeRefByPath(userName, password, "Sites/" + siteName + "/documentLibrary/" + sourceFolder + "/" + copyDoc);
+        String docCopy = copies.get(docNodeRef);
+        Assert.assertNotNull(docCopy);
+        Assert.assertFalse(docCopy.contains(";"));
+        Assert.assertEquals(content.getNodeRefByPath(userName, password, "Sites/" + siteName + "/documentLibrary/" + targetFolder
+                + "/" + sourceFolder + "/" + copyDoc), docCopy);
+    }
+    
     @Test
     public void copyFileAnotherSite()
     {
@@ -629,6 +691,45 @@ public class ContentActionsTests extends AbstractTest
         Assert.assertTrue(contentAction.removePermissionForUser(userName, password, siteName, permissionDoc, permissionUser, "SiteConsumer", false));
     }
     
+    @Test
+    public void applyPermissions()
+    {
+        String aclDoc = "aclDoc" + System.currentTimeMillis();
+        content.createDocument(userName, password, siteName, DocumentType.TEXT_PLAIN, aclDoc, aclDoc);
+        List<PermissionEntry> entries = new ArrayList<PermissionEntry>();
+        entries.add(PermissionEntry.inSite(siteName, aclDoc, permissionUser, "SiteConsumer", false));
+        entries.add(PermissionEntry.inSite(siteName, aclDoc, "GROUP_" + group, "SiteCollaborator", false));
+        entries.add(PermissionEntry.byPath("Sites/" + siteName + "/documentLibrary/" + folder, permissionUser, "SiteContributor", false));
+        entries.add(PermissionEntry.inSite(siteName, "fakeContent", permissionUser, "SiteConsumer", false));
+        ResultList<PermissionResult> results = new ResultList<PermissionResult>();
+        int successful = contentAction.applyPermissions(userName, password, entries, false, 2, results);
+        Assert.assertEquals(successful, 2);
+        Assert.assertEquals(results.size(), 3);
+        String docNodeRef = content.getNodeRef(userName, password, siteName, aclDoc);
+        Assert.assertTrue(getPermissions(docNodeRef, permissionUser).contains("SiteConsumer"));
+        Assert.assertTrue(getPermissions(docNodeRef, "GROUP_" + group).contains("SiteCollaborator"));
+        String folderNodeRef = content.getNodeRefByPath(userName, password, "Sites/" + siteName + "/documentLibrary/" + folder);
+        Assert.assertTrue(getPermissions(folderNodeRef, permissionUser).contains("SiteContributor"));
+    }
+
+    /**
+     * Read back the permissions of an authority from the ACL of a node
+     */
+    private String getPermissions(final String nodeRef,
+                                  final String authority)
+    {
+        Session session = contentAction.getCMISSession(userName, password);
+        StringBuilder permissions = new StringBuilder();
+        for(Ace ace : session.getAcl(session.createObjectId(nodeRef), false).getAces())
+        {
+            if(authority.equals(ace.getPrincipalId()))
+            {
+                permissions.append(ace.getPermissions());
+            }
+        }
+        return permissions.toString();
+    }
+    
     @Test
     public void copyToByPath()
     {
@@ -661,6 +762,29 @@ public class ContentActionsTests extends AbstractTest
         Assert.assertFalse(content.getNodeRefByPath(userName, password, "Shared/" + docToMove).isEmpty());
     }
     
+    @Test
+    public void moveItems()
+    {
+        String moveDoc1 = "moveDoc1" + System.currentTimeMillis();
+        String moveDoc2 = "moveDoc2" + System.currentTimeMillis();
+        String bucket = "bucket" + System.currentTimeMillis();
+        content.createFolder(userName, password, bucket, siteName);
+        content.createDocument(userName, password, siteName, DocumentType.TEXT_PLAIN, moveDoc1, moveDoc1);
+        content.createDocument(userName, password, siteName, DocumentType.TEXT_PLAIN, moveDoc2, moveDoc2);
+        List<MoveItem> items = new ArrayList<MoveItem>();
+        items.add(MoveItem.inSite(siteName, moveDoc1, siteName, bucket));
+        items.add(MoveItem.byPath("Sites/" + siteName + "/documentLibrary/" + moveDoc2, "Sites/" + siteName + "/documentLibrary/" + bucket));
+        items.add(MoveItem.inSite(siteName, "fakeDoc", siteName, bucket));
+        items.add(MoveItem.inSite(siteName, moveDoc1, siteName, "fakeFolder"));
+        ResultList<MoveResult> results = new ResultList<MoveResult>();
+        int successful = contentAction.moveItems(userName, password, items, 2, results);
+        Assert.assertEquals(successful, 2);
+        Assert.assertEquals(results.size(), 4);
+        String bucketPath = "Sites/" + siteName + "/documentLibrary/" + bucket + "/";
+        Assert.assertFalse(content.getNodeRefByPath(userName, password, bucketPath + moveDoc1).isEmpty());
+        Assert.assertFalse(content.getNodeRefByPath(userName, password, bucketPath + moveDoc2).isEmpty());
+    }
+    
     @Test
     public void addTagsInRepository()
     {
@@ -737,4 +861,27 @@ public class ContentActionsTests extends AbstractTest
         Assert.assertTrue(contentAction.removeLike(userToInvite, password, "Shared/" + repoDoc));
         Assert.assertEquals(contentAction.countLikes(userName, password, "Shared/" + repoDoc), 0);
     }
+    
+    @Test
+    public void addBatchActions()
+    {
+        String batchDoc1 = "batchDoc1" + System.currentTimeMillis();
+        String batchDoc2 = "batchDoc2" + System.currentTimeMillis();
+        content.createDocument(userName, password, siteName, DocumentType.TEXT_PLAIN, batchDoc1, batchDoc1);
+        content.createDocument(userName, password, siteName, DocumentType.TEXT_PLAIN, batchDoc2, batchDoc2);
+        List<BatchAction> actions = new ArrayList<BatchAction>();
+        actions.add(BatchAction.inSite(siteName, batchDoc1, ActionType.TAGS, "batchtag1"));
+        actions.add(BatchAction.inSite(siteName, batchDoc2, ActionType.COMMENTS, "batch comment"));
+        actions.add(BatchAction.inSite(siteName, batchDoc1, ActionType.TAGS, "batchtag2"));
+        actions.add(BatchAction.inSite(siteName, batchDoc1, ActionType.LIKES, null));
+        actions.add(BatchAction.inSite(siteName, "fakeDoc", ActionType.TAGS, "batchtag3"));
+        ResultList<BatchActionResult> results = new ResultList<BatchActionResult>();
+        int successful = contentAction.addBatchActions(userName, password, actions, 2, results);
+        Assert.assertEquals(successful, 3);
+        Assert.assertEquals(results.size(), 4);
+        List<String> tags = contentAction.getTagNamesFromContent(userName, password, siteName, batchDoc1);
+        Assert.assertEquals(tags.size(), 2);
+        Assert.assertEquals(contentAction.countLikes(userName, password, siteName, batchDoc1), 1);
+        Assert.assertEquals(contentAction.getComments(userName, password, siteName, batchDoc2).get(0), "batch comment");
+    }
 }
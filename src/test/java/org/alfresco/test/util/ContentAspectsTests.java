@@ -18,6 +18,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -26,11 +27,13 @@ import org.alfresco.dataprep.CMISUtil.DocumentAspect;
 import org.alfresco.dataprep.CMISUtil.DocumentType;
 import org.alfresco.dataprep.ContentActions;
 import org.alfresco.dataprep.ContentAspects;
+import org.alfresco.dataprep.ContentAspects.BulkUpdateResult;
 import org.alfresco.dataprep.ContentService;
 import org.alfresco.dataprep.SiteService;
 import org.alfresco.dataprep.UserService;
 import org.apache.chemistry.opencmis.client.api.Document;
 import org.apache.chemistry.opencmis.client.api.Property;
+import org.apache.chemistry.opencmis.client.api.Session;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -189,6 +192,55 @@ public class ContentAspectsTests extends AbstractTest
         Assert.assertEquals(contentAspect.getPropertyValue(properties, "cm:summary"), summary);
     }
     
+    @Test
+    public void addAspects()
+    {
+        String aspectsDoc = "aspectsDoc" + System.currentTimeMillis();
+        content.createDocument(userName, password, siteName, DocumentType.TEXT_PLAIN, aspectsDoc, aspectsDoc);
+        Map<DocumentAspect, Map<String, Object>> aspects = new HashMap<DocumentAspect, Map<String, Object>>();
+        Map<String, Object> summarizable = new HashMap<String, Object>();
+        summarizable.put("cm:summary", "aspects summary");
+        aspects.put(DocumentAspect.SUMMARIZABLE, summarizable);
+        Map<String, Object> dublinCore = new HashMap<String, Object>();
+        dublinCore.put("cm:publisher", "aspects publisher");
+        aspects.put(DocumentAspect.DUBLIN_CORE, dublinCore);
+        aspects.put(DocumentAspect.INLINE_EDITABLE, null);
+        contentAspect.addAspects(userName, password, siteName, aspectsDoc, aspects);
+        List<Property<?>> properties = contentAspect.getProperties(userName, password, siteName, aspectsDoc);
+        Assert.assertEquals(contentAspect.getPropertyValue(properties, "cm:summary"), "aspects summary");
+        Assert.assertEquals(contentAspect.getPropertyValue(properties, "cm:publisher"), "aspects publisher");
+        Assert.assertTrue(properties.toString().contains(DocumentAspect.INLINE_EDITABLE.getProperty()));
+    }
+    
+    @Test
+    public void bulkUpdateProperties()
+    {
+        List<String> nodeRefs = new ArrayList<String>();
+        for(int i = 0; i < 3; i++)
+        {
+            String bulkDoc = "bulkDoc" + i + System.currentTimeMillis();
+            nodeRefs.add(content.createDocument(userName, password, siteName, DocumentType.TEXT_PLAIN, bulkDoc, bulkDoc).getId());
+        }
+        nodeRefs.add("fakeNodeRef");
+        Map<DocumentAspect, Map<String, Object>> aspects = new HashMap<DocumentAspect, Map<String, Object>>();
+        Map<String, Object> indexControl = new HashMap<String, Object>();
+        indexControl.put("cm:isIndexed", true);
+        indexControl.put("cm:isContentIndexed", false);
+        aspects.put(DocumentAspect.INDEX_CONTROL, indexControl);
+        ResultList<BulkUpdateResult> results = new ResultList<BulkUpdateResult>();
+        int updated = contentAspect.bulkUpdateProperties(userName, password, nodeRefs, aspects, 2, 2, results);
+        Assert.assertEquals(updated, 3);
+        Assert.assertEquals(results.size(), 2);
+        int failed = 0;
+        for(BulkUpdateResult result : results)
+        {
+            failed = failed + result.getFailed().size();
+        }
+        Assert.assertEquals(failed, 1);
+        Session session = contentAspect.getCMISSession(userName, password);
+        Assert.assertEquals(session.getObject(nodeRefs.get(0)).getPropertyValue("cm:isContentIndexed"), Boolean.FALSE);
+    }
+    
     @Test
     public void addTemplatableAspect()
     {
@@ -15,11 +15,21 @@
 package org.alfresco.test.util;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.alfresco.dataprep.ContentService;
+import org.alfresco.dataprep.ContentService.ContentVerification;
+import org.alfresco.dataprep.ContentService.FolderCallback;
+import org.alfresco.dataprep.ContentService.FolderTree;
 import org.alfresco.dataprep.SiteService;
 import org.alfresco.dataprep.UserService;
 import org.alfresco.dataprep.CMISUtil.DocumentType;
@@ -27,6 +37,7 @@ import org.apache.chemistry.opencmis.client.api.Document;
 import org.apache.chemistry.opencmis.client.api.Folder;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.commons.io.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.social.alfresco.api.entities.Site.Visibility;
 import org.testng.Assert;
@@ -371,6 +382,148 @@ public class ContentTest extends AbstractTest
         Assert.assertTrue(content.getDocumentContent(userName, password, siteName, docx).equals(newDocContent));
     }
 
+    @Test
+    public void streamContent() throws IOException
+    {
+        String siteName = "siteStream" + System.currentTimeMillis();
+        String plainDoc = "streamDoc" + System.currentTimeMillis();
+        site.create(userName, password, "mydomain", siteName, "my site description", Visibility.PUBLIC);
+        content.createDocument(userName, password, siteName, DocumentType.TEXT_PLAIN, plainDoc, plainDoc);
+        InputStream stream = content.getDocumentContentStream(userName, password, siteName, plainDoc);
+        try
+        {
+            Assert.assertEquals(IOUtils.toString(stream, "UTF-8"), plainDoc);
+        }
+        finally
+        {
+            stream.close();
+        }
+        Path local = Files.createTempFile(plainDoc, ".txt");
+        try
+        {
+            Assert.assertEquals(content.writeDocumentContent(userName, password, siteName, plainDoc, local), plainDoc.length());
+            Assert.assertEquals(new String(Files.readAllBytes(local), "UTF-8"), plainDoc);
+            Assert.assertEquals(content.getDocumentContentDigest(userName, password, siteName, plainDoc, "SHA-256"),
+                    ContentService.getFileDigest(local, "SHA-256"));
+        }
+        finally
+        {
+            Files.delete(local);
+        }
+    }
+
+    @Test
+    public void verifyContent() throws IOException
+    {
+        String siteName = "siteVerify" + System.currentTimeMillis();
+        site.create(userName, password, "mydomain", siteName, "my site description", Visibility.PUBLIC);
+        Path localDir = Files.createTempDirectory("verify");
+        try
+        {
+            Files.write(localDir.resolve("same.txt"), "same content".getBytes("UTF-8"));
+            Files.write(localDir.resolve("changed.txt"), "first content".getBytes("UTF-8"));
+            content.uploadFiles(localDir.toString(), userName, password, siteName);
+            Files.write(localDir.resolve("changed.txt"), "other content".getBytes("UTF-8"));
+            Files.write(localDir.resolve("missing.txt"), "missing".getBytes("UTF-8"));
+            content.createDocument(userName, password, siteName, DocumentType.TEXT_PLAIN, "extra.txt", "extra");
+            ContentVerification verification = content.verifyContent(userName, password, localDir, siteName, null, "SHA-256", 2);
+            Assert.assertEquals(verification.getVerified(), 1);
+            Assert.assertEquals(verification.getMismatched().get(0), "changed.txt");
+            Assert.assertEquals(verification.getMissing().get(0), "missing.txt");
+            Assert.assertEquals(verification.getExtra().get(0), "extra.txt");
+            Assert.assertFalse(verification.isValid());
+        }
+        finally
+        {
+            for(File file : localDir.toFile().listFiles())
+            {
+                file.delete();
+            }
+            Files.delete(localDir);
+        }
+    }
+
+    @Test
+    public void uploadFileChunked() throws IOException
+    {
+        String siteName = "siteChunk" + System.currentTimeMillis();
+        site.create(userName, password, "mydomain", siteName, "my site description", Visibility.PUBLIC);
+        Path local = Files.createTempFile("chunked", ".bin");
+        try
+        {
+            byte[] data = new byte[250 * 1024];
+            new Random().nextBytes(data);
+            Files.write(local, data);
+            Document doc = content.uploadFileInSiteChunked(userName, password, siteName, local.toString(), 100 * 1024);
+            Assert.assertEquals(doc.getContentStreamLength(), data.length);
+            Assert.assertEquals(content.getDocumentContentDigest(userName, password, siteName, local.getFileName().toString(), "SHA-256"),
+                    ContentService.getFileDigest(local, "SHA-256"));
+        }
+        finally
+        {
+            Files.delete(local);
+        }
+    }
+
+    @Test(expectedExceptions = CmisRuntimeException.class)
+    public void uploadFileChunkedOverOtherDocument() throws IOException
+    {
+        String siteName = "siteChunkOther" + System.currentTimeMillis();
+        site.create(userName, password, "mydomain", siteName, "my site description", Visibility.PUBLIC);
+        Path local = Files.createTempFile("chunked", ".bin");
+        try
+        {
+            byte[] data = new byte[150 * 1024];
+            new Random().nextBytes(data);
+            Files.write(local, data);
+            content.uploadFileInSiteChunked(userName, password, siteName, local.toString(), 100 * 1024);
+            // same name, longer and different content: not a resumable upload
+            byte[] other = new byte[250 * 1024];
+            new Random().nextBytes(other);
+            Files.write(local, other);
+            content.uploadFileInSiteChunked(userName, password, siteName, local.toString(), 100 * 1024);
+        }
+        finally
+        {
+            Files.delete(local);
+        }
+    }
+
+    @Test
+    public void createFolderTree()
+    {
+        String siteName = "siteTree" + System.currentTimeMillis();
+        site.create(userName, password, "mydomain", siteName, "my site description", Visibility.PUBLIC);
+        FolderTree tree = new FolderTree(2, 4);
+        tree.setMaxChildrenPerFolder(3);
+        tree.setNamePattern("tree-%d-%d");
+        final AtomicInteger lastLevel = new AtomicInteger();
+        final Map<String, AtomicInteger> children = new ConcurrentHashMap<String, AtomicInteger>();
+        long created = content.createFolderTree(userName, password, siteName, null, tree, 4, new FolderCallback()
+        {
+            @Override
+            public void folderCreated(String folderId, String name, String parentId, int level)
+            {
+                if(level == 2)
+                {
+                    lastLevel.incrementAndGet();
+                }
+                children.putIfAbsent(parentId, new AtomicInteger());
+                children.get(parentId).incrementAndGet();
+            }
+        });
+        // 4 folders per folder, spread in 2 overflow folders
+        Assert.assertEquals(created, 20);
+        Assert.assertEquals(tree.size(), 20);
+        Assert.assertEquals(tree.getOverflowLevels(), 1);
+        Assert.assertEquals(lastLevel.get(), 16);
+        for(AtomicInteger count : children.values())
+        {
+            Assert.assertTrue(count.get() <= 3);
+        }
+        Assert.assertFalse(content.getNodeRef(userName, password, siteName, "tree-1-4").isEmpty());
+    }
+
     @Test
     public void updateContentEmpty()
     {
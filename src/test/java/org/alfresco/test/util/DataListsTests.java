@@ -12,6 +12,7 @@ import org.alfresco.dataprep.ContentService;
 import org.alfresco.dataprep.DataListsService;
 import org.alfresco.dataprep.UserService;
 import org.alfresco.dataprep.DataListsService.DataList;
+import org.alfresco.dataprep.DataListsService.DataListItem;
 import org.alfresco.dataprep.SiteService;
 import org.apache.chemistry.opencmis.client.api.ObjectId;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
@@ -185,4 +186,41 @@ public class DataListsTests extends AbstractTest
         Assert.assertFalse(id.getId().isEmpty());
         dataLists.deleteDataList(ADMIN, ADMIN, siteId, contactList);
     }
+    
+    @Test
+    public void addItems()
+    {
+        String contactList = "bulkContact" + System.currentTimeMillis();
+        String taskList = "bulkTask" + System.currentTimeMillis();
+        dataLists.createDataList(ADMIN, ADMIN, siteId, DataList.CONTACT_LIST, contactList, "contact description");
+        dataLists.createDataList(ADMIN, ADMIN, siteId, DataList.TASKS_ADVANCED, taskList, "task description");
+        List<DataListItem> items = new ArrayList<DataListItem>();
+        for(int i = 0; i < 5; i++)
+        {
+            DataListItem contact = new DataListItem(siteId, contactList, DataList.CONTACT_LIST);
+            contact.setProperty("dl:contactFirstName", "first" + i);
+            contact.setProperty("dl:contactLastName", "last" + i);
+            items.add(contact);
+            DataListItem task = new DataListItem(siteId, taskList, DataList.TASKS_ADVANCED);
+            task.setTitle("task" + i);
+            task.setProperty("dl:taskPriority", Priority.High.name());
+            task.setProperty("dl:taskStatus", Status.NOT_STARTED.getValue());
+            task.addAssignee(userToAssign1);
+            task.addAssignee(userToAssign2);
+            items.add(task);
+        }
+        List<ObjectId> ids = dataLists.addItems(ADMIN, ADMIN, items, 3);
+        Assert.assertEquals(10, ids.size());
+        for(ObjectId itemId : ids)
+        {
+            Assert.assertFalse(itemId.getId().isEmpty());
+        }
+    }
+    
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void addItemsAssignContact()
+    {
+        DataListItem contact = new DataListItem(siteId, "contactList", DataList.CONTACT_LIST);
+        contact.addAssignee(userToAssign1);
+    }
 }
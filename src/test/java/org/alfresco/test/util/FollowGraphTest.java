@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.test.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.dataprep.FollowGraph;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test the FollowGraph helper class.
+ */
+public class FollowGraphTest
+{
+    List<String> users;
+    @BeforeMethod
+    public void init()
+    {
+        users = new ArrayList<String>();
+        for(int i = 0; i < 1000; i++)
+        {
+            users.add("user" + i);
+        }
+    }
+
+    @Test
+    public void sameSeedSameGraph()
+    {
+        FollowGraph graph = new FollowGraph(users, 42, 10, 1.0);
+        FollowGraph other = new FollowGraph(users, 42, 10, 1.0);
+        for(int i = 0; i < users.size(); i++)
+        {
+            Assert.assertEquals(graph.getFollowing(i), other.getFollowing(i));
+        }
+        Assert.assertNotEquals(new FollowGraph(users, 43, 10, 1.0).getFollowing(0), graph.getFollowing(0));
+    }
+
+    @Test
+    public void noSelfOrDuplicateEdges()
+    {
+        FollowGraph graph = new FollowGraph(users, 7, 20, 1.0);
+        for(int i = 0; i < users.size(); i++)
+        {
+            List<String> following = graph.getFollowing(i);
+            Assert.assertFalse(following.isEmpty());
+            Assert.assertFalse(following.contains(graph.getUser(i)));
+            Assert.assertEquals(new HashSet<String>(following).size(), following.size());
+        }
+    }
+
+    @Test
+    public void followersArePowerLaw()
+    {
+        FollowGraph graph = new FollowGraph(users, 1, 10, 1.0);
+        Map<String, Integer> followers = new HashMap<String, Integer>();
+        int edges = 0;
+        for(int i = 0; i < users.size(); i++)
+        {
+            for(String followed : graph.getFollowing(i))
+            {
+                Integer count = followers.get(followed);
+                followers.put(followed, count == null ? 1 : count + 1);
+                edges++;
+            }
+        }
+        int max = 0;
+        for(Integer count : followers.values())
+        {
+            max = Math.max(max, count);
+        }
+        Assert.assertTrue(edges > users.size() * 5 && edges < users.size() * 20, "Unexpected number of edges " + edges);
+        // the most popular user is followed by far more users than the average
+        Assert.assertTrue(max > 10 * edges / users.size(), "Unexpected maximum followers " + max);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void tooFewUsers()
+    {
+        new FollowGraph(users.subList(0, 1), 1, 10, 1.0);
+    }
+}
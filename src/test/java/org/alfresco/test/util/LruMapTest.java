@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.test.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.dataprep.LruMap;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test the LruMap helper class.
+ */
+public class LruMapTest
+{
+    @Test
+    public void evictLeastRecentlyUsed()
+    {
+        LruMap<String, String> map = new LruMap<String, String>(2);
+        map.put("a", "1");
+        map.put("b", "2");
+        map.get("a");
+        map.put("c", "3");
+        Assert.assertEquals(map.size(), 2);
+        Assert.assertNull(map.get("b"));
+        Assert.assertEquals(map.get("a"), "1");
+        Assert.assertEquals(map.get("c"), "3");
+    }
+
+    @Test
+    public void notifyEvictedEntries()
+    {
+        final List<String> evicted = new ArrayList<String>();
+        LruMap<String, String> map = new LruMap<String, String>(1)
+        {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected void evicted(Map.Entry<String, String> eldest)
+            {
+                evicted.add(eldest.getKey());
+            }
+        };
+        map.put("a", "1");
+        map.put("b", "2");
+        map.put("b", "3");
+        Assert.assertEquals(evicted.size(), 1);
+        Assert.assertEquals(evicted.get(0), "a");
+    }
+
+    @Test
+    public void shrink()
+    {
+        LruMap<String, String> map = new LruMap<String, String>(3);
+        map.put("a", "1");
+        map.put("b", "2");
+        map.put("c", "3");
+        map.get("a");
+        map.setMaxSize(1);
+        Assert.assertEquals(map.getMaxSize(), 1);
+        Assert.assertEquals(map.size(), 1);
+        Assert.assertEquals(map.get("a"), "1");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void invalidSize()
+    {
+        new LruMap<String, String>(0);
+    }
+}
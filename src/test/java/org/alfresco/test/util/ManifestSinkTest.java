@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.test.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.alfresco.dataprep.AsyncManifestSink;
+import org.alfresco.dataprep.BinaryManifestSink;
+import org.alfresco.dataprep.JsonLinesManifestSink;
+import org.alfresco.dataprep.ManifestRecord;
+import org.alfresco.dataprep.ManifestRecord.RecordType;
+import org.alfresco.dataprep.ManifestRecorder;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test the manifest sinks.
+ */
+public class ManifestSinkTest
+{
+    @Test
+    public void jsonLines() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ManifestRecorder recorder = new ManifestRecorder();
+        recorder.record(RecordType.USER, "ignored", null, null, null, null);
+        recorder.setSink(new JsonLinesManifestSink(out, 10));
+        recorder.record(RecordType.SITE, "site1", "Site \"one\"", "site1", null, "admin");
+        recorder.record(RecordType.DOCUMENT, "abc;1.0", "doc.txt", "site1", null, "user");
+        recorder.stop();
+        String[] lines = new String(out.toByteArray(), "UTF-8").split("\n");
+        Assert.assertEquals(lines.length, 2);
+        JSONObject site = (JSONObject) JSONValue.parse(lines[0]);
+        Assert.assertEquals(site.get("type"), "SITE");
+        Assert.assertEquals(site.get("name"), "Site \"one\"");
+        JSONObject doc = (JSONObject) JSONValue.parse(lines[1]);
+        Assert.assertEquals(doc.get("id"), "abc");
+        Assert.assertNull(doc.get("parentId"));
+    }
+
+    @Test
+    public void binaryRoundTrip() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryManifestSink sink = new BinaryManifestSink(out, 2);
+        for(int i = 0; i < 100; i++)
+        {
+            sink.write(new ManifestRecord(RecordType.TASK, "task" + i, null, null, "workflow" + i, "user", i));
+        }
+        sink.flush();
+        sink.close();
+        final List<ManifestRecord> records = new ArrayList<ManifestRecord>();
+        int count = BinaryManifestSink.read(new ByteArrayInputStream(out.toByteArray()), new Consumer<ManifestRecord>()
+        {
+            @Override
+            public void accept(ManifestRecord record)
+            {
+                records.add(record);
+            }
+        });
+        Assert.assertEquals(count, 100);
+        Assert.assertEquals(records.get(42).getId(), "task42");
+        Assert.assertEquals(records.get(42).getParentId(), "workflow42");
+        Assert.assertNull(records.get(42).getName());
+        Assert.assertEquals(records.get(42).getTimestamp(), 42);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void writeAfterClose() throws IOException
+    {
+        JsonLinesManifestSink sink = new JsonLinesManifestSink(new ByteArrayOutputStream(), 10);
+        sink.close();
+        sink.write(new ManifestRecord(RecordType.USER, "user", null, null, null, null, 0));
+    }
+
+    @Test(expectedExceptions = RuntimeException.class, timeOut = 10000)
+    public void flushAfterWriterError() throws IOException
+    {
+        AsyncManifestSink sink = new AsyncManifestSink(new ByteArrayOutputStream(), 1)
+        {
+            @Override
+            protected void writeRecord(OutputStream out, ManifestRecord record)
+            {
+                throw new IllegalStateException("Invalid record " + record.getId());
+            }
+        };
+        for(int i = 0; i < 5; i++)
+        {
+            try
+            {
+                sink.write(new ManifestRecord(RecordType.USER, "user" + i, null, null, null, null, i));
+            }
+            catch (RuntimeException e)
+            {
+                // the writer already failed
+            }
+        }
+        sink.flush();
+    }
+
+    @Test
+    public void closeWhileWriting() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BinaryManifestSink sink = new BinaryManifestSink(out, 1);
+        final AtomicInteger written = new AtomicInteger();
+        List<Thread> writers = new ArrayList<Thread>();
+        for(int t = 0; t < 4; t++)
+        {
+            Thread writer = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for(int i = 0; i < 10000; i++)
+                        {
+                            sink.write(new ManifestRecord(RecordType.USER, "user" + i, null, null, null, null, i));
+                            written.incrementAndGet();
+                        }
+                    }
+                    catch (IllegalStateException e)
+                    {
+                        // closed
+                    }
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        sink.close();
+        for(Thread writer : writers)
+        {
+            writer.join(10000);
+            Assert.assertFalse(writer.isAlive());
+        }
+        // every accepted record is in the manifest
+        Assert.assertEquals(BinaryManifestSink.read(new ByteArrayInputStream(out.toByteArray()), new Consumer<ManifestRecord>()
+        {
+            @Override
+            public void accept(ManifestRecord record)
+            {
+            }
+        }), written.get());
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.test.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.alfresco.dataprep.NodeRefCache;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test the NodeRefCache helper class.
+ */
+public class NodeRefCacheTest
+{
+    NodeRefCache cache;
+    @BeforeMethod
+    public void init()
+    {
+        cache = new NodeRefCache();
+        cache.setMaxSize(3);
+    }
+
+    @Test
+    public void putAndGet()
+    {
+        cache.put("user", "site", "Doc.txt", "abc;1.0");
+        cache.putPath("user", "/Shared/doc.txt", "def");
+        Assert.assertEquals(cache.get("user", "SITE", "doc.txt"), "abc");
+        Assert.assertEquals(cache.getByPath("user", "Shared/doc.txt"), "def");
+        Assert.assertNull(cache.get("user", "site", "other.txt"));
+    }
+
+    @Test
+    public void putAllSiteContents()
+    {
+        Map<String, String> contents = new HashMap<String, String>();
+        contents.put("Doc.txt", "abc;1.0");
+        contents.put("folder", "def");
+        cache.putAll("user", "site", contents);
+        Assert.assertEquals(cache.get("user", "site", "doc.txt"), "abc");
+        Assert.assertEquals(cache.get("user", "site", "FOLDER"), "def");
+        Assert.assertNull(cache.get("admin", "site", "folder"));
+    }
+
+    @Test
+    public void entriesAreKeptPerUser()
+    {
+        cache.put("admin", "site", "doc.txt", "abc");
+        cache.putPath("admin", "Shared/doc.txt", "def");
+        Assert.assertNull(cache.get("user", "site", "doc.txt"));
+        Assert.assertNull(cache.getByPath("user", "Shared/doc.txt"));
+        cache.put("user", "site", "doc.txt", "abc");
+        cache.remove("site", "doc.txt");
+        Assert.assertNull(cache.get("admin", "site", "doc.txt"));
+        Assert.assertNull(cache.get("user", "site", "doc.txt"));
+    }
+
+    @Test
+    public void emptyValuesAreNotCached()
+    {
+        cache.put(null, "site", "doc.txt", "1");
+        cache.put("user", "site", "doc.txt", "");
+        cache.putPath("user", "Shared/doc.txt", null);
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted()
+    {
+        cache.put("user", "site", "a", "1");
+        cache.put("user", "site", "b", "2");
+        cache.put("user", "site", "c", "3");
+        cache.get("user", "site", "a");
+        cache.put("user", "site", "d", "4");
+        Assert.assertEquals(cache.size(), 3);
+        Assert.assertEquals(cache.get("user", "site", "a"), "1");
+        Assert.assertNull(cache.get("user", "site", "b"));
+    }
+
+    @Test
+    public void removeNodeRef()
+    {
+        cache.put("user", "site", "doc.txt", "1");
+        cache.putPath("user", "Sites/site/documentLibrary/doc.txt", "1");
+        cache.removeNodeRef("1");
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void removeNodeRefs()
+    {
+        cache.put("user", "site", "doc.txt", "1;1.0");
+        cache.putPath("user", "Sites/site/documentLibrary/doc.txt", "1");
+        cache.put("user", "site", "doc2.txt", "2");
+        cache.removeNodeRefs(Arrays.asList("1;1.0", "3", null));
+        Assert.assertEquals(cache.size(), 1);
+        Assert.assertEquals(cache.get("user", "site", "doc2.txt"), "2");
+    }
+
+    @Test
+    public void removeSite()
+    {
+        cache.put("user", "site", "doc.txt", "1");
+        cache.putPath("user", "Sites/site/documentLibrary/folder/doc.txt", "2");
+        cache.put("user", "siteTwo", "doc.txt", "3");
+        cache.removeSite("site");
+        Assert.assertEquals(cache.size(), 1);
+        Assert.assertEquals(cache.get("user", "siteTwo", "doc.txt"), "3");
+    }
+
+    @Test
+    public void removePathRemovesChildren()
+    {
+        cache.putPath("user", "Shared/folder", "1");
+        cache.putPath("user", "Shared/folder/doc.txt", "2");
+        cache.putPath("user", "Shared/folder2", "3");
+        cache.removePath("Shared/folder");
+        Assert.assertEquals(cache.size(), 1);
+        Assert.assertEquals(cache.getByPath("user", "Shared/folder2"), "3");
+    }
+}
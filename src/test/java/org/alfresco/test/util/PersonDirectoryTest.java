@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.test.util;
+
+import org.alfresco.dataprep.PersonDirectory;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test the PersonDirectory helper class.
+ */
+public class PersonDirectoryTest
+{
+    PersonDirectory directory;
+    @BeforeMethod
+    public void init()
+    {
+        directory = new PersonDirectory();
+        directory.setMaxSize(2);
+    }
+
+    @Test
+    public void putAndGet()
+    {
+        directory.put("User1", "workspace://SpacesStore/abc");
+        directory.put("user2", "def");
+        Assert.assertEquals(directory.get("user1"), "workspace://SpacesStore/abc");
+        Assert.assertEquals(directory.get("USER2"), "workspace://SpacesStore/def");
+        Assert.assertNull(directory.get("user3"));
+    }
+
+    @Test
+    public void emptyValuesAreNotKept()
+    {
+        directory.put("user1", "");
+        directory.put(null, "abc");
+        Assert.assertEquals(directory.size(), 0);
+    }
+
+    @Test
+    public void removeAndEvict()
+    {
+        directory.put("user1", "a");
+        directory.put("user2", "b");
+        directory.get("user1");
+        directory.put("user3", "c");
+        Assert.assertNull(directory.get("user2"));
+        directory.remove("user1");
+        Assert.assertNull(directory.get("user1"));
+        Assert.assertEquals(directory.size(), 1);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.test.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.alfresco.dataprep.ProcessTaskIndex;
+import org.alfresco.dataprep.ProcessTaskIndex.TaskEntry;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test the ProcessTaskIndex helper class.
+ */
+public class ProcessTaskIndexTest
+{
+    ProcessTaskIndex index;
+    @BeforeMethod
+    public void init()
+    {
+        index = new ProcessTaskIndex();
+        index.setMaxSize(2);
+    }
+
+    private List<TaskEntry> tasks(TaskEntry... entries)
+    {
+        List<TaskEntry> tasks = new ArrayList<TaskEntry>();
+        for(TaskEntry entry : entries)
+        {
+            tasks.add(entry);
+        }
+        return tasks;
+    }
+
+    @Test
+    public void findTask()
+    {
+        index.putTasks("1", tasks(new TaskEntry("10", "user1", "claimed"), new TaskEntry("11", null, "unclaimed")));
+        Assert.assertEquals(index.findTask("1", "user1").getId(), "10");
+        Assert.assertEquals(index.findTask("1", "user2").getId(), "11");
+        Assert.assertNull(index.findTask("2", "user1"));
+    }
+
+    @Test
+    public void updateAndRemoveTask()
+    {
+        index.putTasks("1", tasks(new TaskEntry("10", null, "unclaimed")));
+        index.updateTask("10", "user1", "claimed");
+        Assert.assertNull(index.findTask("1", "user2"));
+        Assert.assertEquals(index.findTask("1", "user1").getState(), "claimed");
+        index.updateTask("10", "user2", "delegated");
+        Assert.assertEquals(index.findTask("1", "user2").getId(), "10");
+        index.removeTaskProcess("10");
+        Assert.assertNull(index.getTasks("1"));
+        Assert.assertEquals(index.size(), 0);
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted()
+    {
+        index.putTasks("1", tasks(new TaskEntry("10", "user", "claimed")));
+        index.putTasks("2", tasks(new TaskEntry("20", "user", "claimed")));
+        index.findTask("1", "user");
+        index.putTasks("3", tasks(new TaskEntry("30", "user", "claimed")));
+        Assert.assertEquals(index.size(), 2);
+        Assert.assertNull(index.getTasks("2"));
+        index.updateTask("20", "other", "delegated");
+        Assert.assertNull(index.getTasks("2"));
+    }
+
+    @Test
+    public void matches()
+    {
+        index.putTasks("1", tasks(new TaskEntry("10", "user1", "claimed"), new TaskEntry("11", "user2", "claimed")));
+        Assert.assertTrue(index.matches("1", tasks(new TaskEntry("11", "user2", "claimed"), new TaskEntry("10", "user1", "claimed"))));
+        Assert.assertFalse(index.matches("1", tasks(new TaskEntry("10", "user1", "completed"))));
+        Assert.assertTrue(index.matches("2", tasks(new TaskEntry("20", "user1", "claimed"))));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.test.util;
+
+import java.util.EnumSet;
+
+import org.alfresco.dataprep.ServerCapabilities.Capabilities;
+import org.alfresco.dataprep.ServerCapabilities.Feature;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test the server capabilities parsing.
+ */
+public class ServerCapabilitiesTest
+{
+    @Test
+    public void version51()
+    {
+        Capabilities capabilities = new Capabilities("5.1.0 (r119263-b116)", "Enterprise", EnumSet.of(Feature.PUBLIC_API));
+        Assert.assertEquals(capabilities.getMajor(), 5);
+        Assert.assertEquals(capabilities.getMinor(), 1);
+        Assert.assertTrue(capabilities.isEnterprise());
+        Assert.assertTrue(capabilities.isAtLeast(4, 2));
+        Assert.assertTrue(capabilities.supports(Feature.INVITE_AUTO_ACCEPT));
+        Assert.assertTrue(capabilities.supports(Feature.PUBLIC_API));
+        Assert.assertFalse(capabilities.supports(Feature.RECORDS_MANAGEMENT));
+    }
+
+    @Test
+    public void version50()
+    {
+        Capabilities capabilities = new Capabilities("5.0.d (r99759-b2)", "Community", EnumSet.noneOf(Feature.class));
+        Assert.assertFalse(capabilities.isEnterprise());
+        Assert.assertFalse(capabilities.isAtLeast(5, 1));
+        Assert.assertFalse(capabilities.supports(Feature.INVITE_AUTO_ACCEPT));
+    }
+
+    @Test
+    public void unknownVersion()
+    {
+        Capabilities capabilities = new Capabilities("", null, EnumSet.noneOf(Feature.class));
+        Assert.assertEquals(capabilities.getMajor(), 0);
+        Assert.assertFalse(capabilities.isAtLeast(4, 0));
+    }
+}
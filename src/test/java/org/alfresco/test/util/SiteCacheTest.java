@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.test.util;
+
+import org.alfresco.dataprep.SiteCache;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test the SiteCache helper class.
+ */
+public class SiteCacheTest
+{
+    SiteCache cache;
+    @BeforeMethod
+    public void init()
+    {
+        cache = new SiteCache();
+        cache.setTtlMs(60000);
+    }
+
+    @Test
+    public void publicSiteIsShared()
+    {
+        cache.putSite("Site1", "user1", "PUBLIC");
+        Assert.assertTrue(cache.exists("site1", "user2"));
+        Assert.assertEquals(cache.getVisibility("site1", "user2"), "PUBLIC");
+    }
+
+    @Test
+    public void privateSiteIsPerUser()
+    {
+        cache.putSite("site1", "user1", "PRIVATE");
+        Assert.assertTrue(cache.exists("site1", "user1"));
+        Assert.assertNull(cache.exists("site1", "user2"));
+    }
+
+    @Test
+    public void missingSite()
+    {
+        cache.putSite("site1", "user1", "PUBLIC");
+        cache.putMissing("site1", "user1");
+        Assert.assertFalse(cache.exists("site1", "user1"));
+        Assert.assertNull(cache.exists("site1", "user2"));
+        cache.removeSite("site1");
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void expiredEntry() throws InterruptedException
+    {
+        cache.setTtlMs(1);
+        cache.putSite("site1", "user1", "PUBLIC");
+        Thread.sleep(5);
+        Assert.assertNull(cache.exists("site1", "user1"));
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void disabled()
+    {
+        cache.setTtlMs(0);
+        cache.putSite("site1", "user1", "PUBLIC");
+        Assert.assertNull(cache.exists("site1", "user1"));
+    }
+}
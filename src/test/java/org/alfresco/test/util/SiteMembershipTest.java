@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ * This file is part of Alfresco
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.test.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.alfresco.dataprep.GroupService;
+import org.alfresco.dataprep.SiteMembershipService;
+import org.alfresco.dataprep.SiteMembershipService.MembershipResult;
+import org.alfresco.dataprep.SiteMembershipService.MembershipRow;
+import org.alfresco.dataprep.SiteMembershipService.MembershipStatus;
+import org.alfresco.dataprep.SiteService;
+import org.alfresco.dataprep.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.social.alfresco.api.entities.Site.Visibility;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Test the bulk site membership api.
+ */
+public class SiteMembershipTest extends AbstractTest
+{
+    @Autowired private SiteService site;
+    @Autowired private UserService userService;
+    @Autowired private GroupService groupService;
+    @Autowired private SiteMembershipService membershipService;
+    private String manager = "manager" + System.currentTimeMillis();
+    private String publicSite = "publicSite" + System.currentTimeMillis();
+    private String moderatedSite = "moderatedSite" + System.currentTimeMillis();
+    private String group = "memberGroup" + System.currentTimeMillis();
+    private List<String> users = new ArrayList<String>();
+
+    @BeforeClass(alwaysRun = true)
+    public void setup()
+    {
+        userService.create(ADMIN, ADMIN, manager, password, manager + domain, "firstName", "lastName");
+        site.create(manager, password, "mydomain", publicSite, publicSite, Visibility.PUBLIC);
+        site.create(manager, password, "mydomain", moderatedSite, moderatedSite, Visibility.MODERATED);
+        groupService.createGroup(ADMIN, ADMIN, group);
+        for(int i = 0; i < 3; i++)
+        {
+            String user = "member" + i + "-" + System.currentTimeMillis();
+            userService.create(ADMIN, ADMIN, user, password, user + domain, "firstName", "lastName");
+            users.add(user);
+        }
+    }
+
+    @Test
+    public void addMembers()
+    {
+        List<MembershipRow> rows = new ArrayList<MembershipRow>();
+        for(String user : users)
+        {
+            rows.add(new MembershipRow(publicSite, user, "SiteCollaborator", false));
+            rows.add(new MembershipRow(moderatedSite, user, "SiteConsumer", false));
+        }
+        rows.add(new MembershipRow(publicSite, group, "SiteContributor", true));
+        rows.add(new MembershipRow(publicSite, manager, "SiteConsumer", false));
+        List<MembershipResult> results = membershipService.addMembers(manager, password, rows, 4);
+        Assert.assertEquals(results.size(), rows.size());
+        for(int i = 0; i < rows.size() - 1; i++)
+        {
+            Assert.assertEquals(results.get(i).getStatus(), MembershipStatus.ADDED, results.get(i).getRow().toString());
+        }
+        Assert.assertEquals(results.get(rows.size() - 1).getStatus(), MembershipStatus.CONFLICT);
+        List<MembershipRow> mismatches = membershipService.verifyMembers(manager, password, rows);
+        Assert.assertEquals(mismatches.size(), 1);
+        Assert.assertEquals(mismatches.get(0).getAuthority(), manager);
+        Assert.assertEquals(membershipService.getMembers(manager, password, moderatedSite).get(users.get(0).toLowerCase()), "SiteConsumer");
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void addMembersFakeSite()
+    {
+        List<MembershipRow> rows = new ArrayList<MembershipRow>();
+        rows.add(new MembershipRow("fakeSite" + System.currentTimeMillis(), users.get(0), "SiteConsumer", false));
+        membershipService.addMembers(manager, password, rows, 2);
+    }
+}
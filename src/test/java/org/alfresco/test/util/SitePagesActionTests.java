@@ -20,6 +20,7 @@ import java.util.List;
 
 import org.alfresco.dataprep.ContentService;
 import org.alfresco.dataprep.SitePagesService;
+import org.alfresco.dataprep.SitePagesService.SiteItemsMix;
 import org.alfresco.dataprep.SiteService;
 import org.alfresco.dataprep.UserService;
 import org.alfresco.dataprep.DashboardCustomization.Page;
@@ -451,4 +452,31 @@ public class SitePagesActionTests extends AbstractTest
         Assert.assertTrue(pageService.commentBlog(user, password, theSite, draftBlog, true, "comment1"));
         Assert.assertFalse(pageService.deleteBlogComment(userContributor, userContributor, theSite, draftBlog, "comment1"));
     }
+
+    @Test
+    public void createSiteItems()
+    {
+        SiteItemsMix mix = new SiteItemsMix(theSite);
+        mix.setNamePrefix("bulk" + System.currentTimeMillis());
+        mix.setCalendarEvents(2);
+        mix.setWikiPages(2);
+        mix.setBlogPosts(2);
+        mix.setLinks(2);
+        mix.setDiscussions(2);
+        mix.setRepliesPerDiscussion(2);
+        mix.setItemsPerSecond(10);
+        List<SiteItemsMix> mixes = new ArrayList<SiteItemsMix>();
+        mixes.add(mix);
+        Assert.assertEquals(14, pageService.createSiteItems(user, password, mixes, 4));
+        Assert.assertTrue(pageService.wikiExists(user, password, theSite, mix.getNamePrefix() + "-wiki-1"));
+        Assert.assertTrue(pageService.linkExists(user, password, theSite, mix.getNamePrefix() + "-link-2"));
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void createSiteItemsFakeSite()
+    {
+        List<SiteItemsMix> mixes = new ArrayList<SiteItemsMix>();
+        mixes.add(new SiteItemsMix("fakeSite" + System.currentTimeMillis()));
+        pageService.createSiteItems(user, password, mixes, 2);
+    }
 }
@@ -14,14 +14,20 @@
  */
 package org.alfresco.test.util;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.alfresco.dataprep.CMISUtil.DocumentType;
 import org.alfresco.dataprep.ContentService;
 import org.alfresco.dataprep.DashboardCustomization.DashletLayout;
 import org.alfresco.dataprep.DashboardCustomization.UserDashlet;
+import org.alfresco.dataprep.FollowGraph;
 import org.alfresco.dataprep.SiteService;
 import org.alfresco.dataprep.UserService;
+import org.alfresco.dataprep.UserService.TrashcanFilter;
+import org.alfresco.dataprep.UserService.TrashcanProgress;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.social.alfresco.api.entities.Site.Visibility;
 import org.testng.Assert;
@@ -423,6 +429,27 @@ public class UserTest extends AbstractTest
         Assert.assertTrue(followers.contains(user3));
     }
     
+    @Test
+    public void createFollowGraph()
+    {
+        List<String> users = new ArrayList<String>();
+        for(int i = 0; i < 6; i++)
+        {
+            String user = "graphUser" + i + "-" + System.currentTimeMillis();
+            userService.create(ADMIN, ADMIN, user, password, user + domain, firstName, lastName);
+            users.add(user);
+        }
+        FollowGraph graph = new FollowGraph(users, 5, 2, 1.0);
+        int edges = 0;
+        for(int i = 0; i < users.size(); i++)
+        {
+            edges = edges + graph.getFollowing(i).size();
+        }
+        Assert.assertEquals(userService.createFollowGraph(ADMIN, ADMIN, graph, 2, 3), edges);
+        Assert.assertEquals(userService.verifyFollowGraph(ADMIN, ADMIN, graph, 3), 0);
+        Assert.assertEquals(userService.getFollowingUsers(users.get(0), password).size(), graph.getFollowing(0).size());
+    }
+    
     @Test
     public void unfollowUser()
     {
@@ -500,6 +527,20 @@ public class UserTest extends AbstractTest
         Assert.assertTrue(userService.deleteCategory(ADMIN, ADMIN, rootCateg));
         Assert.assertFalse(userService.categoryExists(ADMIN, ADMIN, rootCateg));
     }
+
+    @Test
+    public void createCategoryTree()
+    {
+        String rootCateg = "treeCateg" + System.currentTimeMillis();
+        List<String> paths = Arrays.asList(rootCateg + "/europe/france", rootCateg + "/europe/spain", rootCateg + "/asia");
+        Map<String, String> categories = userService.createCategoryTree(ADMIN, ADMIN, paths, 3);
+        Assert.assertEquals(categories.size(), 5);
+        Assert.assertTrue(userService.categoryExists(ADMIN, ADMIN, rootCateg));
+        Assert.assertEquals(userService.getCategoryNodeRef(ADMIN, ADMIN, rootCateg + "/europe/spain"), categories.get(rootCateg + "/europe/spain"));
+        // existing categories are not created again
+        Assert.assertEquals(userService.createCategoryTree(ADMIN, ADMIN, paths, 3), categories);
+        Assert.assertTrue(userService.deleteCategory(ADMIN, ADMIN, rootCateg));
+    }
     
     @Test
     public void emptyTrashcan()
@@ -542,9 +583,44 @@ public class UserTest extends AbstractTest
         Assert.assertFalse(contentService.getNodeRef(globalUser, password, globalSite, doc).isEmpty());
     }
     
+    @Test
+    public void purgeAndRestoreTrashcan()
+    {
+        String doc1 = "purgeDoc" + System.currentTimeMillis();
+        String doc2 = "restoreDoc" + System.currentTimeMillis();
+        contentService.createDocument(globalUser, password, globalSite, DocumentType.TEXT_PLAIN, doc1, doc1);
+        contentService.createDocument(globalUser, password, globalSite, DocumentType.TEXT_PLAIN, doc2, doc2);
+        contentService.deleteDocument(globalUser, password, globalSite, doc1);
+        contentService.deleteDocument(globalUser, password, globalSite, doc2);
+        TrashcanFilter filter = new TrashcanFilter();
+        filter.setSiteId(globalSite);
+        filter.setArchivedBy(globalUser);
+        filter.setName(doc2);
+        ResultList<TrashcanProgress> progress = new ResultList<TrashcanProgress>();
+        Assert.assertEquals(userService.restoreTrashcan(globalUser, password, filter, 1, 2, progress), 1);
+        Assert.assertEquals(progress.get(progress.size() - 1).getTotalProcessed(), 1);
+        Assert.assertFalse(contentService.getNodeRef(globalUser, password, globalSite, doc2).isEmpty());
+        filter.setName(null);
+        Assert.assertTrue(userService.purgeTrashcan(globalUser, password, filter, 1, 2, null) >= 1);
+        Assert.assertFalse(userService.getItemsFromTrashcan(globalUser, password).contains(doc1));
+    }
+    
     @Test
     public void deleteTrashcanFakeItem()
     {
         Assert.assertFalse(userService.deleteItemFromTranshcan(globalUser, password, "34242-3242wed-3652"));
     }
+    
+    @Test
+    public void loadPersonDirectory()
+    {
+        String user = "person" + System.currentTimeMillis();
+        userService.create(ADMIN, ADMIN, user, password, user + domain, firstName, lastName);
+        String nodeRef = userService.getUserNodeRef(ADMIN, ADMIN, user);
+        Assert.assertTrue(nodeRef.startsWith("workspace://SpacesStore/"));
+        Assert.assertTrue(userService.loadPersonDirectory(ADMIN, ADMIN) > 1);
+        Assert.assertEquals(userService.getUserNodeRef(ADMIN, ADMIN, globalUser), userService.getUserNodeRef(globalUser, password, globalUser));
+        userService.delete(ADMIN, ADMIN, user);
+        Assert.assertTrue(userService.getUserNodeRef(ADMIN, ADMIN, user).isEmpty());
+    }
 }
@@ -15,6 +15,7 @@
 package org.alfresco.test.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -22,11 +23,17 @@ import org.alfresco.dataprep.CMISUtil.DocumentType;
 import org.alfresco.dataprep.CMISUtil.Priority;
 import org.alfresco.dataprep.ContentService;
 import org.alfresco.dataprep.GroupService;
+import org.alfresco.dataprep.ProcessTaskIndex;
+import org.alfresco.dataprep.ProcessTaskIndex.TaskEntry;
 import org.alfresco.dataprep.SitePagesService;
 import org.alfresco.dataprep.SiteService;
 import org.alfresco.dataprep.UserService;
 import org.alfresco.dataprep.WorkflowService;
 import org.alfresco.dataprep.WorkflowService.TaskStatus;
+import org.alfresco.dataprep.WorkflowService.TaskTarget;
+import org.alfresco.dataprep.WorkflowService.WorkflowRequest;
+import org.alfresco.dataprep.WorkflowService.WorkflowResult;
+import org.alfresco.dataprep.WorkflowService.WorkflowType;
 import org.junit.Assert;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.social.alfresco.api.entities.Site.Visibility;
@@ -41,6 +48,7 @@ import org.testng.annotations.Test;
 public class WorkflowTests extends AbstractTest
 {
     @Autowired WorkflowService workflow;
+    @Autowired ProcessTaskIndex processTaskIndex;
     @Autowired ContentService contentService;
     @Autowired SiteService siteService;
     @Autowired UserService userService;
@@ -382,4 +390,82 @@ public class WorkflowTests extends AbstractTest
         contentService.createDocumentInRepository(workflowUser, password, "Shared", DocumentType.MSPOWERPOINT, docToAdd1, docToAdd1);
         Assert.assertTrue(workflow.addItemToTask(workflowUser, password, workflowId, "Shared/" + docToAdd1));
     }
+    
+    @Test
+    public void startWorkflows()
+    {
+        List<WorkflowRequest> requests = new ArrayList<WorkflowRequest>();
+        List<String> assignee = new ArrayList<String>();
+        assignee.add(workflowUser);
+        for(int i = 0; i < 4; i++)
+        {
+            WorkflowRequest request = new WorkflowRequest(WorkflowType.NewTask, "bulkTask" + i, new Date(), Priority.Normal, assignee, null);
+            request.setDocuments(workflowSite, docs);
+            requests.add(request);
+        }
+        requests.get(1).setTarget(TaskTarget.CLAIMED, null, null);
+        requests.get(2).setTarget(TaskTarget.COMPLETED, null, null);
+        WorkflowRequest review = new WorkflowRequest(WorkflowType.SingleReviewer, "bulkReview", new Date(), Priority.High, reviewers, null);
+        review.setPathsToDocuments(pathToItems);
+        review.setTarget(TaskTarget.APPROVED, reviewer1, password);
+        requests.add(review);
+        List<WorkflowResult> results = workflow.startWorkflows(workflowUser, password, requests, 3);
+        Assert.assertEquals(requests.size(), results.size());
+        for(WorkflowResult result : results)
+        {
+            Assert.assertTrue(result.getError(), result.isSuccessful());
+            Assert.assertFalse(result.getWorkflowId().isEmpty());
+        }
+        Assert.assertNull(results.get(0).getTaskId());
+        Assert.assertNotNull(results.get(4).getTaskId());
+    }
+    
+    @Test
+    public void startWorkflowsWithMissingItem()
+    {
+        List<String> assignee = new ArrayList<String>();
+        assignee.add(workflowUser);
+        WorkflowRequest missing = new WorkflowRequest(WorkflowType.NewTask, "bulkMissing", new Date(), Priority.Normal, assignee, null);
+        missing.setPathsToDocuments(Arrays.asList("Sites/" + workflowSite + "/documentLibrary/fakeDoc"));
+        WorkflowRequest request = new WorkflowRequest(WorkflowType.NewTask, "bulkFound", new Date(), Priority.Normal, assignee, null);
+        request.setDocuments(workflowSite, docs);
+        List<WorkflowResult> results = workflow.startWorkflows(workflowUser, password, Arrays.asList(missing, request), 2);
+        Assert.assertFalse(results.get(0).isSuccessful());
+        Assert.assertTrue(results.get(0).getWorkflowId().isEmpty());
+        Assert.assertTrue(results.get(1).isSuccessful());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void groupWorkflowTargetWithoutTaskUser()
+    {
+        WorkflowRequest request = new WorkflowRequest(WorkflowType.GroupReview, "bulkGroup", new Date(), Priority.Normal, null, "group");
+        request.setTarget(TaskTarget.APPROVED, null, null);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void reassignTargetWithoutUser()
+    {
+        WorkflowRequest request = new WorkflowRequest(WorkflowType.NewTask, "bulkReassign", new Date(), Priority.Normal, Arrays.asList(workflowUser), null);
+        request.setTarget(TaskTarget.REASSIGNED, null, null);
+    }
+    
+    @Test
+    public void verifyTaskIndex()
+    {
+        String workflowId = workflow.startNewTask(workflowUser, password, "verifyTaskIndex", new Date(), workflowUser, Priority.High, workflowSite, docs, true);
+        Assert.assertTrue(workflow.updateTaskStatus(workflowUser, password, workflowId, TaskStatus.IN_PROGRESS));
+        Assert.assertTrue(workflow.updateTaskStatus(workflowUser, password, workflowId, TaskStatus.ON_HOLD));
+        Assert.assertTrue(workflow.verifyTaskIndex(workflowUser, password, workflowId));
+        String taskId = workflow.getTaskId(workflowUser, password, workflowId);
+        Assert.assertTrue(workflow.taskDone(workflowUser, password, workflowId, TaskStatus.COMPLETED, "done"));
+        // the completed task is not served from the index anymore
+        Assert.assertNull(processTaskIndex.getTasks(workflowId));
+        Assert.assertTrue(workflow.verifyTaskIndex(workflowUser, password, workflowId));
+        List<TaskEntry> tasks = processTaskIndex.getTasks(workflowId);
+        Assert.assertNotNull(tasks);
+        for(TaskEntry task : tasks)
+        {
+            Assert.assertFalse(taskId.equals(task.getId()));
+        }
+    }
 }